@@ -8,7 +8,9 @@ import cn.popcraft.residencesync.database.DatabaseManager;
 import cn.popcraft.residencesync.listener.PlayerListener;
 import cn.popcraft.residencesync.listener.ResidenceListener;
 import cn.popcraft.residencesync.placeholder.PlaceholderExpansion;
+import cn.popcraft.residencesync.placeholder.PlaceholderSnapshotStore;
 import cn.popcraft.residencesync.service.ResidenceService;
+import cn.popcraft.residencesync.service.ResidenceSyncService;
 import cn.popcraft.residencesync.service.TeleportService;
 import cn.popcraft.residencesync.service.CrossServerService;
 import cn.popcraft.residencesync.util.LoggerUtil;
@@ -34,8 +36,10 @@ public class ResidenceSyncPlugin extends JavaPlugin {
     private PluginConfig pluginConfig;
     private MessageConfig messageConfig;
     private ResidenceService residenceService;
+    private ResidenceSyncService residenceSyncService;
     private TeleportService teleportService;
     private CrossServerService crossServerService;
+    private PlaceholderSnapshotStore placeholderSnapshots;
     
     @Override
     public void onEnable() {
@@ -76,6 +80,9 @@ public class ResidenceSyncPlugin extends JavaPlugin {
             // 注册占位符API扩展
             registerPlaceholderAPI();
             
+            // 服务器启动完成后同步本服领地
+            getServer().getScheduler().runTask(this, () -> residenceSyncService.synchronize());
+            
             LoggerUtil.info("领地跨服同步插件启动完成！");
             
         } catch (Exception e) {
@@ -89,6 +96,11 @@ public class ResidenceSyncPlugin extends JavaPlugin {
         LoggerUtil.info("正在关闭领地跨服同步插件...");
         
         try {
+            // 写入缓冲中的玩家信息
+            if (residenceService != null) {
+                residenceService.shutdown();
+            }
+            
             // 关闭数据库连接
             if (databaseManager != null) {
                 databaseManager.close();
@@ -156,9 +168,13 @@ public class ResidenceSyncPlugin extends JavaPlugin {
      */
     private void initializeServices() {
         residenceService = new ResidenceService(this);
+        residenceSyncService = new ResidenceSyncService(this);
         teleportService = new TeleportService(this);
         crossServerService = new CrossServerService(this);
         
+        residenceService.initialize();
+        crossServerService.initialize();
+        
         LoggerUtil.info("服务初始化完成");
     }
     
@@ -194,7 +210,9 @@ public class ResidenceSyncPlugin extends JavaPlugin {
      */
     private void registerPlaceholderAPI() {
         if (getServer().getPluginManager().getPlugin("PlaceholderAPI") != null) {
-            new PlaceholderExpansion(this).register();
+            PlaceholderExpansion expansion = new PlaceholderExpansion(this);
+            expansion.register();
+            placeholderSnapshots = expansion.getSnapshotStore();
             LoggerUtil.info("占位符API扩展已注册");
         } else {
             LoggerUtil.warning("未找到 PlaceholderAPI，占位符功能将不可用");
@@ -236,6 +254,10 @@ public class ResidenceSyncPlugin extends JavaPlugin {
         return residenceService;
     }
     
+    public ResidenceSyncService getResidenceSyncService() {
+        return residenceSyncService;
+    }
+    
     /**
      * 获取传送服务
      */
@@ -249,4 +271,11 @@ public class ResidenceSyncPlugin extends JavaPlugin {
     public CrossServerService getCrossServerService() {
         return crossServerService;
     }
+    
+    /**
+     * 获取占位符快照存储，未安装 PlaceholderAPI 时返回null
+     */
+    public PlaceholderSnapshotStore getPlaceholderSnapshots() {
+        return placeholderSnapshots;
+    }
 }
\ No newline at end of file
@@ -1,7 +1,16 @@
 package cn.popcraft.residencesync.commands;
 
 import cn.popcraft.residencesync.config.MessageConfig;
+import cn.popcraft.residencesync.database.DatabaseExecutor;
 import cn.popcraft.residencesync.database.ResidenceData;
+import cn.popcraft.residencesync.messaging.ClusterMembership;
+import cn.popcraft.residencesync.messaging.InboundQueue;
+import cn.popcraft.residencesync.messaging.MessageRouter;
+import cn.popcraft.residencesync.messaging.MessageTransport;
+import cn.popcraft.residencesync.messaging.OutboundBatcher;
+import cn.popcraft.residencesync.messaging.PlayerPresence;
+import cn.popcraft.residencesync.messaging.PresenceDirectory;
+import cn.popcraft.residencesync.service.ResidenceQueryTable;
 import cn.popcraft.residencesync.service.ResidenceService;
 import cn.popcraft.residencesync.util.LoggerUtil;
 import org.bukkit.Bukkit;
@@ -11,6 +20,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import java.util.Map;
+import java.util.StringJoiner;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -50,9 +60,11 @@ public class AdminCommand implements CommandExecutor {
             case "getuuid":
                 return handleGetUuid(sender, args);
             case "save":
-                return handleSave(sender);
+                return handleSave(sender, args);
             case "info":
                 return handleInfo(sender, args);
+            case "status":
+                return handleStatus(sender);
             case "help":
                 return handleHelp(sender);
             default:
@@ -75,6 +87,9 @@ public class AdminCommand implements CommandExecutor {
             plugin.getPluginConfig().reloadConfig();
             plugin.getMessageConfig().reloadMessages();
             
+            // 清空领地缓存，后续读取重新从数据库加载
+            plugin.getResidenceService().clearCache();
+            
             LoggerUtil.info("配置文件已重载");
             plugin.getMessageConfig().sendMessage(sender, "createSuccess", 
                     Map.of("resName", "配置文件重载"));
@@ -135,16 +150,22 @@ public class AdminCommand implements CommandExecutor {
         String residenceName = args[1];
         String targetPlayerName = args[2];
         
-        // 获取目标玩家
+        // 获取目标玩家，本服没有时查找其他子服
         Player targetPlayer = Bukkit.getPlayer(targetPlayerName);
-        if (targetPlayer == null) {
+        if (targetPlayer != null) {
+            performGive(sender, residenceName, targetPlayer.getUniqueId(), targetPlayer.getName());
+            return true;
+        }
+        
+        PlayerPresence remotePlayer = plugin.getCrossServerService().getPresence().find(targetPlayerName);
+        if (remotePlayer == null) {
             plugin.getMessageConfig().sendMessage(sender, "playerIsOffline", 
                     Map.of("targetPlayer", targetPlayerName));
             return true;
         }
         
         // 执行给予操作
-        performGive(sender, residenceName, targetPlayer);
+        performGive(sender, residenceName, remotePlayer.uuid, remotePlayer.name);
         
         return true;
     }
@@ -166,8 +187,12 @@ public class AdminCommand implements CommandExecutor {
         String playerName = args[1];
         Player player = Bukkit.getPlayer(playerName);
         
+        PlayerPresence remotePlayer = player == null ? plugin.getCrossServerService().getPresence().find(playerName) : null;
+        
         if (player != null) {
             sender.sendMessage("§a玩家 " + playerName + " 的UUID: §e" + player.getUniqueId());
+        } else if (remotePlayer != null) {
+            sender.sendMessage("§a玩家 " + playerName + " 的UUID: §e" + remotePlayer.uuid);
         } else {
             // 尝试从数据库获取
             plugin.getResidenceService().getPlayerName(playerName)
@@ -187,18 +212,22 @@ public class AdminCommand implements CommandExecutor {
     /**
      * 处理保存命令
      */
-    private boolean handleSave(CommandSender sender) {
+    private boolean handleSave(CommandSender sender, String[] args) {
         if (!hasPermission(sender, "residencesync.admin")) {
             plugin.getMessageConfig().sendMessage(sender, "noIsOp");
             return true;
         }
         
+        boolean force = args.length >= 2 && args[1].equalsIgnoreCase("--force");
         sender.sendMessage("§a开始同步Residence插件数据...");
         
-        plugin.getDatabaseManager().syncResidenceData()
-                .thenAccept(success -> {
-                    if (success) {
-                        sender.sendMessage("§a数据同步完成！");
+        plugin.getResidenceSyncService().synchronize(force)
+                .whenComplete((result, throwable) -> {
+                    if (throwable == null) {
+                        sender.sendMessage("§a数据同步完成！§7" + result);
+                        if (result.getSkippedDeletes() > 0) {
+                            sender.sendMessage("§e已跳过删除 " + result.getSkippedDeletes() + " 个记录，确认无误后可使用 save --force");
+                        }
                     } else {
                         sender.sendMessage("§c数据同步失败！");
                     }
@@ -236,6 +265,99 @@ public class AdminCommand implements CommandExecutor {
         return true;
     }
     
+    /**
+     * 处理状态命令
+     */
+    private boolean handleStatus(CommandSender sender) {
+        if (!hasPermission(sender, "residencesync.admin")) {
+            plugin.getMessageConfig().sendMessage(sender, "noIsOp");
+            return true;
+        }
+        
+        DatabaseExecutor executor = plugin.getDatabaseManager().getExecutor();
+        
+        sender.sendMessage("§6========== 运行状态 ==========");
+        sender.sendMessage("§7服务器ID: §e" + plugin.getPluginConfig().getServerId());
+        sender.sendMessage("§7缓存领地数量: §e" + plugin.getResidenceService().getCachedResidenceCount());
+        sender.sendMessage("§7索引领地数量: §e" + plugin.getResidenceService().getIndexedResidenceCount());
+        if (plugin.getDatabaseManager().getStore() != null) {
+            sender.sendMessage("§7存储后端: §e" + plugin.getDatabaseManager().getStore().getName());
+        }
+        if (plugin.getDatabaseManager().getCircuitBreaker() != null) {
+            sender.sendMessage("§7数据库状态: " + (plugin.getDatabaseManager().isAvailable() ? "§a正常" : "§c降级")
+                    + " §7熔断器: §e" + plugin.getDatabaseManager().getCircuitBreaker().getState()
+                    + " §7待回放日志: §e" + plugin.getDatabaseManager().getJournal().getPendingEntries());
+        }
+        MessageTransport transport = plugin.getCrossServerService().getTransport();
+        if (transport != null) {
+            sender.sendMessage("§7跨服传输: §e" + transport.getName()
+                    + " §7排队 §e" + transport.getQueuedCount()
+                    + " §7已发送 §e" + transport.getSentCount()
+                    + " §7已丢弃 §e" + transport.getDroppedCount());
+            sender.sendMessage("§7等待响应的传送请求: §e" + plugin.getCrossServerService().getPendingTeleports().size()
+                    + "§7/§e" + plugin.getCrossServerService().getPendingTeleports().getMaxPending()
+                    + " §7重发 §e" + plugin.getCrossServerService().getPendingTeleports().getRetryCount()
+                    + " §7等待到达确认 §e" + plugin.getCrossServerService().getHandoffs().size());
+            MessageRouter router = plugin.getCrossServerService().getRouter();
+            if (router != null) {
+                sender.sendMessage("§7消息路由: §7单播 §e" + router.getUnicastCount()
+                        + " §7广播 §e" + router.getScatterCount()
+                        + " §7跳过 §e" + router.getSkippedCount()
+                        + " §7按路由 §e" + router.getRouteCounts());
+            }
+            InboundQueue inbound = plugin.getCrossServerService().getInbound();
+            if (inbound != null) {
+                sender.sendMessage("§7接收队列: §7排队 §e" + inbound.getQueuedCount()
+                        + " §7主线程排队 §e" + inbound.getMainThreadQueuedCount()
+                        + " §7已收到 §e" + inbound.getReceivedCount()
+                        + " §7工作线程 §e" + inbound.getWorkerCount()
+                        + " §7主线程 §e" + inbound.getMainThreadCount()
+                        + " §7已丢弃 §e" + inbound.getDroppedCount()
+                        + " §7限流 §e" + inbound.getShedCount()
+                        + " §7重复 §e" + plugin.getCrossServerService().getDuplicates().getDuplicateCount());
+            }
+            OutboundBatcher batcher = plugin.getCrossServerService().getBatcher();
+            if (batcher != null) {
+                sender.sendMessage("§7批量发送: §7消息 §e" + batcher.getMessageCount()
+                        + " §7实际发出 §e" + batcher.getFrameCount());
+            }
+            sender.sendMessage("§7等待到达的跨服传送: §e" + plugin.getTeleportService().getArrivals().size());
+            PresenceDirectory presence = plugin.getCrossServerService().getPresence();
+            sender.sendMessage("§7全网在线玩家: §e" + presence.size() + " §7按子服 §e" + presence.getServerCounts());
+            ResidenceQueryTable queries = plugin.getCrossServerService().getResidenceQueries();
+            sender.sendMessage("§7领地查询: §7进行中 §e" + queries.size()
+                    + " §7总数 §e" + queries.getQueryCount()
+                    + " §7请求 §e" + queries.getRequestCount()
+                    + " §7对冲 §e" + queries.getHedgedCount()
+                    + " §7p95 §e" + plugin.getCrossServerService().getQueryLatencies().getP95Values());
+            ClusterMembership membership = plugin.getCrossServerService().getMembership();
+            if (membership != null) {
+                sender.sendMessage("§7跨服成员: §7可达 §e" + membership.getAvailableMembers().size()
+                        + "§7/§e" + membership.size()
+                        + " §7phi §e" + formatPhiValues(membership.getPhiValues()));
+            }
+        }
+        if (executor != null) {
+            sender.sendMessage("§7数据库执行器: §e" + (executor.isVirtualThreads() ? "虚拟线程" : "线程池")
+                    + " §7容量: §e" + executor.getCapacity());
+            sender.sendMessage("§7数据库任务: §7执行中 §e" + executor.getActiveCount()
+                    + " §7排队 §e" + executor.getQueueSize()
+                    + " §7已提交 §e" + executor.getSubmittedCount()
+                    + " §7已拒绝 §e" + executor.getRejectedCount());
+        }
+        
+        return true;
+    }
+    
+    /**
+     * 格式化各成员的 phi 值，保留一位小数
+     */
+    private String formatPhiValues(Map<String, Double> phiValues) {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        phiValues.forEach((serverId, phi) -> joiner.add(serverId + "=" + String.format("%.1f", phi)));
+        return joiner.toString();
+    }
+    
     /**
      * 处理帮助命令
      */
@@ -250,7 +372,7 @@ public class AdminCommand implements CommandExecutor {
     private void performRename(CommandSender sender, String oldName, String newName) {
         String serverId = plugin.getPluginConfig().getServerId();
         
-        plugin.getDatabaseManager().getResidence(oldName, serverId)
+        plugin.getResidenceService().getResidence(oldName, serverId)
                 .thenCompose(residence -> {
                     if (residence == null) {
                         plugin.getMessageConfig().sendMessage(sender, "resIsNull");
@@ -258,7 +380,7 @@ public class AdminCommand implements CommandExecutor {
                     }
                     
                     // 检查新名称是否已存在
-                    return plugin.getDatabaseManager().getResidence(newName, serverId)
+                    return plugin.getResidenceService().getResidence(newName, serverId)
                             .thenCompose(existingResidence -> {
                                 if (existingResidence != null) {
                                     plugin.getMessageConfig().sendMessage(sender, "renameCancel");
@@ -282,7 +404,7 @@ public class AdminCommand implements CommandExecutor {
                                 );
                                 
                                 // 删除旧记录，添加新记录
-                                return plugin.getDatabaseManager().deleteResidence(oldName, serverId)
+                                return plugin.getResidenceService().deleteResidence(oldName, serverId)
                                         .thenCompose(deleteSuccess -> {
                                             if (!deleteSuccess) {
                                                 plugin.getMessageConfig().sendMessage(sender, "createFailNoMoney", 
@@ -290,7 +412,7 @@ public class AdminCommand implements CommandExecutor {
                                                 return CompletableFuture.completedFuture(false);
                                             }
                                             
-                                            return plugin.getDatabaseManager().addOrUpdateResidence(updatedResidence)
+                                            return plugin.getResidenceService().addResidence(updatedResidence)
                                                     .thenCompose(addSuccess -> {
                                                         if (addSuccess) {
                                                             plugin.getMessageConfig().sendMessage(sender, "renameSuccess", 
@@ -309,10 +431,10 @@ public class AdminCommand implements CommandExecutor {
     /**
      * 执行给予操作
      */
-    private void performGive(CommandSender sender, String residenceName, Player targetPlayer) {
+    private void performGive(CommandSender sender, String residenceName, UUID targetUuid, String targetName) {
         String serverId = plugin.getPluginConfig().getServerId();
         
-        plugin.getDatabaseManager().getResidence(residenceName, serverId)
+        plugin.getResidenceService().getResidence(residenceName, serverId)
                 .thenCompose(residence -> {
                     if (residence == null) {
                         plugin.getMessageConfig().sendMessage(sender, "resIsNull");
@@ -322,7 +444,7 @@ public class AdminCommand implements CommandExecutor {
                     // 更新领地所有者
                     ResidenceData updatedResidence = new ResidenceData(
                             residence.getName(),
-                            targetPlayer.getUniqueId().toString(),
+                            targetUuid.toString(),
                             residence.getServerId(),
                             residence.getWorld(),
                             residence.getX1(),
@@ -335,11 +457,11 @@ public class AdminCommand implements CommandExecutor {
                             residence.getLastModified()
                     );
                     
-                    return plugin.getDatabaseManager().addOrUpdateResidence(updatedResidence)
+                    return plugin.getResidenceService().addResidence(updatedResidence)
                             .thenCompose(success -> {
                                 if (success) {
                                     plugin.getMessageConfig().sendMessage(sender, "giveSuccess", 
-                                            Map.of("resName", residenceName, "targetPlayer", targetPlayer.getName()));
+                                            Map.of("resName", residenceName, "targetPlayer", targetName));
                                 } else {
                                     plugin.getMessageConfig().sendMessage(sender, "createFailNoMoney", 
                                             Map.of("resName", "给予领地"));
@@ -379,7 +501,7 @@ public class AdminCommand implements CommandExecutor {
     private void showResidenceInfo(CommandSender sender, String residenceName) {
         String serverId = plugin.getPluginConfig().getServerId();
         
-        plugin.getDatabaseManager().getResidence(residenceName, serverId)
+        plugin.getResidenceService().getResidence(residenceName, serverId)
                 .thenAccept(residence -> {
                     if (residence == null) {
                         plugin.getMessageConfig().sendMessage(sender, "resIsNull");
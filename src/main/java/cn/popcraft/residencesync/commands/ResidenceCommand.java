@@ -1,6 +1,7 @@
 package cn.popcraft.residencesync.commands;
 
 import cn.popcraft.residencesync.database.ResidenceData;
+import cn.popcraft.residencesync.messaging.PlayerPresence;
 import cn.popcraft.residencesync.service.ResidenceService;
 import cn.popcraft.residencesync.service.TeleportService;
 import cn.popcraft.residencesync.util.LoggerUtil;
@@ -10,6 +11,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -169,16 +171,21 @@ public class ResidenceCommand implements CommandExecutor {
                         return CompletableFuture.completedFuture(false);
                     }
                     
-                    // 检查目标玩家是否在线
+                    // 检查目标玩家是否在线，本服没有时查找其他子服
                     org.bukkit.entity.Player targetPlayer = plugin.getServer().getPlayer(targetPlayerName);
-                    if (targetPlayer == null) {
+                    if (targetPlayer != null) {
+                        return performGive(player, residenceName, targetPlayer.getUniqueId(), targetPlayer.getName());
+                    }
+                    
+                    PlayerPresence remotePlayer = plugin.getCrossServerService().getPresence().find(targetPlayerName);
+                    if (remotePlayer == null) {
                         plugin.getMessageConfig().sendMessage(player, "playerIsOffline", 
                                 Map.of("targetPlayer", targetPlayerName));
                         return CompletableFuture.completedFuture(false);
                     }
                     
                     // 执行给予操作
-                    return performGive(player, residenceName, targetPlayer);
+                    return performGive(player, residenceName, remotePlayer.uuid, remotePlayer.name);
                 });
         
         return true;
@@ -257,7 +264,7 @@ public class ResidenceCommand implements CommandExecutor {
     private CompletableFuture<Boolean> performRename(Player player, String oldName, String newName) {
         String serverId = plugin.getPluginConfig().getServerId();
         
-        return plugin.getDatabaseManager().getResidence(oldName, serverId)
+        return plugin.getResidenceService().getResidence(oldName, serverId)
                 .thenCompose(residence -> {
                     if (residence == null) {
                         plugin.getMessageConfig().sendMessage(player, "resIsNull");
@@ -265,7 +272,7 @@ public class ResidenceCommand implements CommandExecutor {
                     }
                     
                     // 检查新名称是否已存在
-                    return plugin.getDatabaseManager().getResidence(newName, serverId)
+                    return plugin.getResidenceService().getResidence(newName, serverId)
                             .thenCompose(existingResidence -> {
                                 if (existingResidence != null) {
                                     plugin.getMessageConfig().sendMessage(player, "renameCancel");
@@ -289,7 +296,7 @@ public class ResidenceCommand implements CommandExecutor {
                                 );
                                 
                                 // 删除旧记录，添加新记录
-                                return plugin.getDatabaseManager().deleteResidence(oldName, serverId)
+                                return plugin.getResidenceService().deleteResidence(oldName, serverId)
                                         .thenCompose(deleteSuccess -> {
                                             if (!deleteSuccess) {
                                                 plugin.getMessageConfig().sendMessage(player, "createFailNoMoney", 
@@ -297,7 +304,7 @@ public class ResidenceCommand implements CommandExecutor {
                                                 return CompletableFuture.completedFuture(false);
                                             }
                                             
-                                            return plugin.getDatabaseManager().addOrUpdateResidence(updatedResidence)
+                                            return plugin.getResidenceService().addResidence(updatedResidence)
                                                     .thenCompose(addSuccess -> {
                                                         if (addSuccess) {
                                                             plugin.getMessageConfig().sendMessage(player, "renameSuccess", 
@@ -316,10 +323,10 @@ public class ResidenceCommand implements CommandExecutor {
     /**
      * 执行给予操作
      */
-    private CompletableFuture<Boolean> performGive(Player player, String residenceName, org.bukkit.entity.Player targetPlayer) {
+    private CompletableFuture<Boolean> performGive(Player player, String residenceName, UUID targetUuid, String targetName) {
         String serverId = plugin.getPluginConfig().getServerId();
         
-        return plugin.getDatabaseManager().getResidence(residenceName, serverId)
+        return plugin.getResidenceService().getResidence(residenceName, serverId)
                 .thenCompose(residence -> {
                     if (residence == null) {
                         plugin.getMessageConfig().sendMessage(player, "resIsNull");
@@ -329,7 +336,7 @@ public class ResidenceCommand implements CommandExecutor {
                     // 更新领地所有者
                     ResidenceData updatedResidence = new ResidenceData(
                             residence.getName(),
-                            targetPlayer.getUniqueId().toString(),
+                            targetUuid.toString(),
                             residence.getServerId(),
                             residence.getWorld(),
                             residence.getX1(),
@@ -342,15 +349,18 @@ public class ResidenceCommand implements CommandExecutor {
                             residence.getLastModified()
                     );
                     
-                    return plugin.getDatabaseManager().addOrUpdateResidence(updatedResidence)
+                    return plugin.getResidenceService().addResidence(updatedResidence)
                             .thenCompose(success -> {
                                 if (success) {
                                     plugin.getMessageConfig().sendMessage(player, "giveSuccess", 
-                                            Map.of("resName", residenceName, "targetPlayer", targetPlayer.getName()));
+                                            Map.of("resName", residenceName, "targetPlayer", targetName));
                                     
-                                    // 通知目标玩家
-                                    plugin.getMessageConfig().sendMessage(targetPlayer, "giveSuccess", 
-                                            Map.of("resName", residenceName, "targetPlayer", targetPlayer.getName()));
+                                    // 通知目标玩家，玩家在其他子服时不通知
+                                    org.bukkit.entity.Player targetPlayer = plugin.getServer().getPlayer(targetUuid);
+                                    if (targetPlayer != null) {
+                                        plugin.getMessageConfig().sendMessage(targetPlayer, "giveSuccess", 
+                                                Map.of("resName", residenceName, "targetPlayer", targetName));
+                                    }
                                 } else {
                                     plugin.getMessageConfig().sendMessage(player, "createFailNoMoney", 
                                             Map.of("resName", "给予领地"));
@@ -366,7 +376,7 @@ public class ResidenceCommand implements CommandExecutor {
     private CompletableFuture<Boolean> performRemove(Player player, String residenceName) {
         String serverId = plugin.getPluginConfig().getServerId();
         
-        return plugin.getDatabaseManager().deleteResidence(residenceName, serverId)
+        return plugin.getResidenceService().deleteResidence(residenceName, serverId)
                 .thenCompose(success -> {
                     if (success) {
                         player.sendMessage("§a领地 " + residenceName + " 已删除");
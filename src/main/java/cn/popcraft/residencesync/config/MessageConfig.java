@@ -62,6 +62,8 @@ public class MessageConfig {
         messageConfig.set("targetLocationIsNull", "%PluginTitle% 目的地不安全，无法传送");
         messageConfig.set("playerTpSuccess", "%PluginTitle% 您已传送至领地 %resName%");
         messageConfig.set("tpPermissionCancel", "%PluginTitle% 您没有 residence.command.tp 权限");
+        messageConfig.set("tpRequestTimeout", "%PluginTitle% 传送至领地 %resName% 的请求超时，请稍后再试");
+        messageConfig.set("tpHandoffTimeout", "%PluginTitle% 未能切换到领地 %resName% 所在的服务器，请稍后再试");
         
         // 领地操作消息
         messageConfig.set("renameUsage", "%PluginTitle% 用法：/res rename [旧领地名字] [新领地名字]");
@@ -114,7 +116,8 @@ public class MessageConfig {
         helpTitle.add("&#ccffbb/ResidenceSync rename [旧领地名字] [新领地名字] - 管理员给玩家领地改名");
         helpTitle.add("&#ccffbb/ResidenceSync give [领地名字] [玩家名字] - 管理员将某个领地强制给予某个玩家");
         helpTitle.add("&#ccffbb/ResidenceSync getuuid [玩家名字] - 管理员获取玩家UUID");
-        helpTitle.add("&#ccffbb/ResidenceSync save - 立刻进行一次当前子服的所有数据的重新载入数据库");
+        helpTitle.add("&#ccffbb/ResidenceSync save [--force] - 立刻进行一次当前子服的所有数据的重新载入数据库，--force 允许删除大量记录");
+        helpTitle.add("&#ccffbb/ResidenceSync status - 查看缓存和数据库执行器的运行状态");
         messageConfig.set("HelpTitle", helpTitle);
         
         saveMessages();
@@ -23,17 +23,78 @@ public class PluginConfig {
     private FileConfiguration config;
     
     // 数据库配置
+    private String databaseType = "mysql";
     private String databaseHost = "localhost";
     private int databasePort = 3306;
     private String databaseName = "residencesync";
     private String databaseUsername = "root";
     private String databasePassword = "password";
+    private int databaseBatchSize = 500;
+    private int databaseMaximumPoolSize = 10;
+    private int databaseMinimumIdle = 2;
+    private int databaseExecutorQueueCapacity = 1000;
+    private boolean databaseVirtualThreads = false;
+    private int playerBufferFlushIntervalMillis = 1000;
+    private int playerBufferMaxEntries = 200;
+    
+    // 只读副本配置
+    private boolean replicaEnabled = false;
+    private String replicaHost = "localhost";
+    private int replicaPort = 3306;
+    private String replicaUsername = "root";
+    private String replicaPassword = "password";
+    private int replicaMaximumPoolSize = 10;
+    private int replicaReadYourWritesMillis = 2000;
+    
+    // 熔断和本地写入日志配置
+    private int circuitBreakerFailureThreshold = 3;
+    private int circuitBreakerOpenMillis = 10000;
+    private int journalFsyncIntervalMillis = 200;
+    private int journalFsyncBatchSize = 64;
+    private int journalReplayIntervalMillis = 5000;
     
     // 服务器配置
     private String serverId = "";
     
     // 默认设置
     private boolean defaultCreateTpFlag = false;
+    private int syncMaxDeletePercent = 20;
+    
+    // 缓存配置
+    private int cacheTtlSeconds = 300;
+    private int placeholderRefreshSeconds = 30;
+    private int indexRefreshSeconds = 60;
+    
+    // 跨服通信配置
+    private int messagingMaxMessagesPerTick = 50;
+    private int messagingMaxQueuedPerServer = 1000;
+    private int messagingTeleportTimeoutMillis = 10000;
+    private int messagingMaxPendingTeleports = 1000;
+    private int messagingHeartbeatIntervalMillis = 500;
+    private int messagingGossipFanout = 3;
+    private double messagingPhiThreshold = 8.0;
+    private int messagingMemberRemoveMillis = 60000;
+    private int messagingBatchWindowTicks = 1;
+    private int messagingMaxBatchBytes = 30000;
+    private int messagingQueryFanout = 2;
+    private int messagingQueryHedgeMinMillis = 100;
+    private int messagingQueryTimeoutMillis = 3000;
+    private int messagingArrivalTimeoutMillis = 30000;
+    private int messagingHandoffTimeoutMillis = 15000;
+    private int messagingInboundCapacity = 5000;
+    private String messagingInboundOverflowPolicy = "drop-newest";
+    private int messagingInboundMainThreadCapacity = 1000;
+    private int messagingInboundMaxPerTick = 100;
+    private int messagingInboundQueryRatePerSecond = 50;
+    private int messagingPresenceSnapshotMillis = 30000;
+    private int messagingTeleportRetryMillis = 1000;
+    private int messagingDedupWindow = 1024;
+    private String messagingTransport = "bungee";
+    private String messagingSocketBind = "127.0.0.1:25590";
+    private String messagingSocketSecret = "";
+    private Map<String, String> messagingSocketPeers = new LinkedHashMap<>();
+    private int messagingSocketReconnectMinMillis = 500;
+    private int messagingSocketReconnectMaxMillis = 30000;
     
     // 权限配置
     private Map<String, Integer> tpPermissions = new HashMap<>();
@@ -69,11 +130,31 @@ public class PluginConfig {
         config = new YamlConfiguration();
         
         // 数据库配置
+        config.set("database.type", databaseType);
         config.set("database.host", databaseHost);
         config.set("database.port", databasePort);
         config.set("database.name", databaseName);
         config.set("database.username", databaseUsername);
         config.set("database.password", databasePassword);
+        config.set("database.batchSize", databaseBatchSize);
+        config.set("database.pool.maximumPoolSize", databaseMaximumPoolSize);
+        config.set("database.pool.minimumIdle", databaseMinimumIdle);
+        config.set("database.executor.queueCapacity", databaseExecutorQueueCapacity);
+        config.set("database.executor.virtualThreads", databaseVirtualThreads);
+        config.set("database.playerBuffer.flushIntervalMillis", playerBufferFlushIntervalMillis);
+        config.set("database.playerBuffer.maxEntries", playerBufferMaxEntries);
+        config.set("database.replica.enabled", replicaEnabled);
+        config.set("database.replica.host", replicaHost);
+        config.set("database.replica.port", replicaPort);
+        config.set("database.replica.username", replicaUsername);
+        config.set("database.replica.password", replicaPassword);
+        config.set("database.replica.maximumPoolSize", replicaMaximumPoolSize);
+        config.set("database.replica.readYourWritesMillis", replicaReadYourWritesMillis);
+        config.set("database.circuitBreaker.failureThreshold", circuitBreakerFailureThreshold);
+        config.set("database.circuitBreaker.openMillis", circuitBreakerOpenMillis);
+        config.set("database.journal.fsyncIntervalMillis", journalFsyncIntervalMillis);
+        config.set("database.journal.fsyncBatchSize", journalFsyncBatchSize);
+        config.set("database.journal.replayIntervalMillis", journalReplayIntervalMillis);
         
         // 服务器配置
         config.set("serverId", serverId);
@@ -81,6 +162,57 @@ public class PluginConfig {
         // 设置
         config.set("settings.defaultCreateTpFlag", defaultCreateTpFlag);
         config.set("settings.language", "message_zh.yml");
+        // 全量同步一次最多删除本服已存记录的百分比，超过时需要 save --force
+        config.set("settings.syncMaxDeletePercent", syncMaxDeletePercent);
+        
+        // 缓存配置
+        config.set("cache.ttlSeconds", cacheTtlSeconds);
+        config.set("cache.placeholderRefreshSeconds", placeholderRefreshSeconds);
+        config.set("cache.indexRefreshSeconds", indexRefreshSeconds);
+        
+        // 跨服通信配置
+        config.set("messaging.maxMessagesPerTick", messagingMaxMessagesPerTick);
+        config.set("messaging.maxQueuedPerServer", messagingMaxQueuedPerServer);
+        config.set("messaging.teleportTimeoutMillis", messagingTeleportTimeoutMillis);
+        config.set("messaging.maxPendingTeleports", messagingMaxPendingTeleports);
+        config.set("messaging.heartbeatIntervalMillis", messagingHeartbeatIntervalMillis);
+        config.set("messaging.gossipFanout", messagingGossipFanout);
+        config.set("messaging.phiThreshold", messagingPhiThreshold);
+        config.set("messaging.memberRemoveMillis", messagingMemberRemoveMillis);
+        // 合并发往同一子服的消息的窗口（tick），0 表示不合并
+        config.set("messaging.batchWindowTicks", messagingBatchWindowTicks);
+        config.set("messaging.maxBatchBytes", messagingMaxBatchBytes);
+        // 跨服领地查询：同时查询的子服数量（0 为全部）、对冲请求的最短等待时间和查询超时
+        config.set("messaging.queryFanout", messagingQueryFanout);
+        config.set("messaging.queryHedgeMinMillis", messagingQueryHedgeMinMillis);
+        config.set("messaging.queryTimeoutMillis", messagingQueryTimeoutMillis);
+        // 目标子服为跨服传送准备的落点保留时间
+        config.set("messaging.arrivalTimeoutMillis", messagingArrivalTimeoutMillis);
+        // 来源子服发出切换请求后等待目标子服确认到达的时间
+        config.set("messaging.handoffTimeoutMillis", messagingHandoffTimeoutMillis);
+        
+        // 接收队列：容量与溢出策略（drop-newest 或 drop-oldest）、主线程每tick处理的消息数量、每个子服每秒的领地查询上限
+        config.set("messaging.inbound.capacity", messagingInboundCapacity);
+        config.set("messaging.inbound.overflowPolicy", messagingInboundOverflowPolicy);
+        config.set("messaging.inbound.mainThreadCapacity", messagingInboundMainThreadCapacity);
+        config.set("messaging.inbound.maxPerTick", messagingInboundMaxPerTick);
+        config.set("messaging.inbound.queryRatePerSecond", messagingInboundQueryRatePerSecond);
+        
+        // 定期广播本服完整玩家列表的间隔，用于纠正丢失的进出消息
+        config.set("messaging.presenceSnapshotMillis", messagingPresenceSnapshotMillis);
+        
+        // 传送请求未收到响应时的重发间隔（0为不重发），以及接收方按序号去重的窗口大小
+        config.set("messaging.teleportRetryMillis", messagingTeleportRetryMillis);
+        config.set("messaging.dedupWindow", messagingDedupWindow);
+        
+        // 跨服传输方式：bungee 使用插件消息，socket 在子服之间直连
+        config.set("messaging.transport", messagingTransport);
+        config.set("messaging.socket.bind", messagingSocketBind);
+        // 所有子服共用的认证密钥，监听非回环地址时必须配置
+        config.set("messaging.socket.secret", messagingSocketSecret);
+        config.createSection("messaging.socket.peers");
+        config.set("messaging.socket.reconnectMinMillis", messagingSocketReconnectMinMillis);
+        config.set("messaging.socket.reconnectMaxMillis", messagingSocketReconnectMaxMillis);
         
         // 权限配置 - 传送时间
         config.set("permission.tp.ResLinkDefault", 3);
@@ -99,11 +231,34 @@ public class PluginConfig {
      * 加载数据库配置
      */
     private void loadDatabaseConfig() {
+        databaseType = config.getString("database.type", "mysql");
         databaseHost = config.getString("database.host", "localhost");
         databasePort = config.getInt("database.port", 3306);
         databaseName = config.getString("database.name", "residencesync");
         databaseUsername = config.getString("database.username", "root");
         databasePassword = config.getString("database.password", "password");
+        databaseBatchSize = config.getInt("database.batchSize", 500);
+        databaseMaximumPoolSize = config.getInt("database.pool.maximumPoolSize", 10);
+        databaseMinimumIdle = config.getInt("database.pool.minimumIdle", 2);
+        databaseExecutorQueueCapacity = config.getInt("database.executor.queueCapacity", 1000);
+        databaseVirtualThreads = config.getBoolean("database.executor.virtualThreads", false);
+        playerBufferFlushIntervalMillis = config.getInt("database.playerBuffer.flushIntervalMillis", 1000);
+        playerBufferMaxEntries = config.getInt("database.playerBuffer.maxEntries", 200);
+        
+        // 只读副本未配置账号时沿用主库账号
+        replicaEnabled = config.getBoolean("database.replica.enabled", false);
+        replicaHost = config.getString("database.replica.host", databaseHost);
+        replicaPort = config.getInt("database.replica.port", databasePort);
+        replicaUsername = config.getString("database.replica.username", databaseUsername);
+        replicaPassword = config.getString("database.replica.password", databasePassword);
+        replicaMaximumPoolSize = config.getInt("database.replica.maximumPoolSize", 10);
+        replicaReadYourWritesMillis = config.getInt("database.replica.readYourWritesMillis", 2000);
+        
+        circuitBreakerFailureThreshold = config.getInt("database.circuitBreaker.failureThreshold", 3);
+        circuitBreakerOpenMillis = config.getInt("database.circuitBreaker.openMillis", 10000);
+        journalFsyncIntervalMillis = config.getInt("database.journal.fsyncIntervalMillis", 200);
+        journalFsyncBatchSize = config.getInt("database.journal.fsyncBatchSize", 64);
+        journalReplayIntervalMillis = config.getInt("database.journal.replayIntervalMillis", 5000);
     }
     
     /**
@@ -142,6 +297,47 @@ public class PluginConfig {
      */
     private void loadSettings() {
         defaultCreateTpFlag = config.getBoolean("settings.defaultCreateTpFlag", false);
+        syncMaxDeletePercent = config.getInt("settings.syncMaxDeletePercent", 20);
+        cacheTtlSeconds = config.getInt("cache.ttlSeconds", 300);
+        placeholderRefreshSeconds = config.getInt("cache.placeholderRefreshSeconds", 30);
+        indexRefreshSeconds = config.getInt("cache.indexRefreshSeconds", 60);
+        messagingMaxMessagesPerTick = config.getInt("messaging.maxMessagesPerTick", 50);
+        messagingMaxQueuedPerServer = config.getInt("messaging.maxQueuedPerServer", 1000);
+        messagingTeleportTimeoutMillis = config.getInt("messaging.teleportTimeoutMillis", 10000);
+        messagingMaxPendingTeleports = config.getInt("messaging.maxPendingTeleports", 1000);
+        messagingHeartbeatIntervalMillis = config.getInt("messaging.heartbeatIntervalMillis", 500);
+        messagingGossipFanout = config.getInt("messaging.gossipFanout", 3);
+        messagingPhiThreshold = config.getDouble("messaging.phiThreshold", 8.0);
+        messagingMemberRemoveMillis = config.getInt("messaging.memberRemoveMillis", 60000);
+        messagingBatchWindowTicks = config.getInt("messaging.batchWindowTicks", 1);
+        messagingMaxBatchBytes = config.getInt("messaging.maxBatchBytes", 30000);
+        messagingQueryFanout = config.getInt("messaging.queryFanout", 2);
+        messagingQueryHedgeMinMillis = config.getInt("messaging.queryHedgeMinMillis", 100);
+        messagingQueryTimeoutMillis = config.getInt("messaging.queryTimeoutMillis", 3000);
+        messagingArrivalTimeoutMillis = config.getInt("messaging.arrivalTimeoutMillis", 30000);
+        messagingHandoffTimeoutMillis = config.getInt("messaging.handoffTimeoutMillis", 15000);
+        messagingInboundCapacity = config.getInt("messaging.inbound.capacity", 5000);
+        messagingInboundOverflowPolicy = config.getString("messaging.inbound.overflowPolicy", "drop-newest");
+        messagingInboundMainThreadCapacity = config.getInt("messaging.inbound.mainThreadCapacity", 1000);
+        messagingInboundMaxPerTick = config.getInt("messaging.inbound.maxPerTick", 100);
+        messagingInboundQueryRatePerSecond = config.getInt("messaging.inbound.queryRatePerSecond", 50);
+        messagingPresenceSnapshotMillis = config.getInt("messaging.presenceSnapshotMillis", 30000);
+        messagingTeleportRetryMillis = config.getInt("messaging.teleportRetryMillis", 1000);
+        messagingDedupWindow = config.getInt("messaging.dedupWindow", 1024);
+        messagingTransport = config.getString("messaging.transport", "bungee");
+        messagingSocketBind = config.getString("messaging.socket.bind", "127.0.0.1:25590");
+        messagingSocketSecret = config.getString("messaging.socket.secret", "");
+        messagingSocketReconnectMinMillis = config.getInt("messaging.socket.reconnectMinMillis", 500);
+        messagingSocketReconnectMaxMillis = config.getInt("messaging.socket.reconnectMaxMillis", 30000);
+        
+        // 子服ID到套接字地址（host:port 或 unix:路径）的映射
+        messagingSocketPeers.clear();
+        if (config.isConfigurationSection("messaging.socket.peers")) {
+            for (String key : config.getConfigurationSection("messaging.socket.peers").getKeys(false)) {
+                messagingSocketPeers.put(key, config.getString("messaging.socket.peers." + key));
+            }
+        }
+        messagingSocketPeers.remove(serverId);
     }
     
     /**
@@ -164,6 +360,10 @@ public class PluginConfig {
     
     // Getters
     
+    public String getDatabaseType() {
+        return databaseType;
+    }
+    
     public String getDatabaseHost() {
         return databaseHost;
     }
@@ -184,6 +384,82 @@ public class PluginConfig {
         return databasePassword;
     }
     
+    public int getDatabaseBatchSize() {
+        return databaseBatchSize;
+    }
+    
+    public int getDatabaseMaximumPoolSize() {
+        return databaseMaximumPoolSize;
+    }
+    
+    public int getDatabaseMinimumIdle() {
+        return databaseMinimumIdle;
+    }
+    
+    public int getDatabaseExecutorQueueCapacity() {
+        return databaseExecutorQueueCapacity;
+    }
+    
+    public boolean isDatabaseVirtualThreads() {
+        return databaseVirtualThreads;
+    }
+    
+    public int getPlayerBufferFlushIntervalMillis() {
+        return playerBufferFlushIntervalMillis;
+    }
+    
+    public int getPlayerBufferMaxEntries() {
+        return playerBufferMaxEntries;
+    }
+    
+    public boolean isReplicaEnabled() {
+        return replicaEnabled;
+    }
+    
+    public String getReplicaHost() {
+        return replicaHost;
+    }
+    
+    public int getReplicaPort() {
+        return replicaPort;
+    }
+    
+    public String getReplicaUsername() {
+        return replicaUsername;
+    }
+    
+    public String getReplicaPassword() {
+        return replicaPassword;
+    }
+    
+    public int getReplicaMaximumPoolSize() {
+        return replicaMaximumPoolSize;
+    }
+    
+    public int getReplicaReadYourWritesMillis() {
+        return replicaReadYourWritesMillis;
+    }
+    
+    public int getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+    
+    public int getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+    
+    public int getJournalFsyncIntervalMillis() {
+        return journalFsyncIntervalMillis;
+    }
+    
+    public int getJournalFsyncBatchSize() {
+        return journalFsyncBatchSize;
+    }
+    
+    public int getJournalReplayIntervalMillis() {
+        return journalReplayIntervalMillis;
+    }
+    
     public String getServerId() {
         return serverId;
     }
@@ -192,6 +468,138 @@ public class PluginConfig {
         return defaultCreateTpFlag;
     }
     
+    public int getSyncMaxDeletePercent() {
+        return syncMaxDeletePercent;
+    }
+    
+    public int getCacheTtlSeconds() {
+        return cacheTtlSeconds;
+    }
+    
+    public int getPlaceholderRefreshSeconds() {
+        return placeholderRefreshSeconds;
+    }
+    
+    public int getIndexRefreshSeconds() {
+        return indexRefreshSeconds;
+    }
+    
+    public int getMessagingMaxMessagesPerTick() {
+        return messagingMaxMessagesPerTick;
+    }
+    
+    public int getMessagingMaxQueuedPerServer() {
+        return messagingMaxQueuedPerServer;
+    }
+    
+    public int getMessagingTeleportTimeoutMillis() {
+        return messagingTeleportTimeoutMillis;
+    }
+    
+    public int getMessagingMaxPendingTeleports() {
+        return messagingMaxPendingTeleports;
+    }
+    
+    public int getMessagingHeartbeatIntervalMillis() {
+        return messagingHeartbeatIntervalMillis;
+    }
+    
+    public int getMessagingGossipFanout() {
+        return messagingGossipFanout;
+    }
+    
+    public double getMessagingPhiThreshold() {
+        return messagingPhiThreshold;
+    }
+    
+    public int getMessagingMemberRemoveMillis() {
+        return messagingMemberRemoveMillis;
+    }
+    
+    public int getMessagingBatchWindowTicks() {
+        return messagingBatchWindowTicks;
+    }
+    
+    public int getMessagingMaxBatchBytes() {
+        return messagingMaxBatchBytes;
+    }
+    
+    public int getMessagingQueryFanout() {
+        return messagingQueryFanout;
+    }
+    
+    public int getMessagingQueryHedgeMinMillis() {
+        return messagingQueryHedgeMinMillis;
+    }
+    
+    public int getMessagingQueryTimeoutMillis() {
+        return messagingQueryTimeoutMillis;
+    }
+    
+    public int getMessagingArrivalTimeoutMillis() {
+        return messagingArrivalTimeoutMillis;
+    }
+    
+    public int getMessagingHandoffTimeoutMillis() {
+        return messagingHandoffTimeoutMillis;
+    }
+    
+    public int getMessagingInboundCapacity() {
+        return messagingInboundCapacity;
+    }
+    
+    public String getMessagingInboundOverflowPolicy() {
+        return messagingInboundOverflowPolicy;
+    }
+    
+    public int getMessagingInboundMainThreadCapacity() {
+        return messagingInboundMainThreadCapacity;
+    }
+    
+    public int getMessagingInboundMaxPerTick() {
+        return messagingInboundMaxPerTick;
+    }
+    
+    public int getMessagingInboundQueryRatePerSecond() {
+        return messagingInboundQueryRatePerSecond;
+    }
+    
+    public int getMessagingPresenceSnapshotMillis() {
+        return messagingPresenceSnapshotMillis;
+    }
+    
+    public int getMessagingTeleportRetryMillis() {
+        return messagingTeleportRetryMillis;
+    }
+    
+    public int getMessagingDedupWindow() {
+        return messagingDedupWindow;
+    }
+    
+    public String getMessagingTransport() {
+        return messagingTransport;
+    }
+    
+    public String getMessagingSocketBind() {
+        return messagingSocketBind;
+    }
+    
+    public String getMessagingSocketSecret() {
+        return messagingSocketSecret;
+    }
+    
+    public Map<String, String> getMessagingSocketPeers() {
+        return new LinkedHashMap<>(messagingSocketPeers);
+    }
+    
+    public int getMessagingSocketReconnectMinMillis() {
+        return messagingSocketReconnectMinMillis;
+    }
+    
+    public int getMessagingSocketReconnectMaxMillis() {
+        return messagingSocketReconnectMaxMillis;
+    }
+    
     /**
      * 获取玩家的传送延迟时间（秒）
      */
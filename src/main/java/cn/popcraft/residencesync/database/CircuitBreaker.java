@@ -0,0 +1,112 @@
+package cn.popcraft.residencesync.database;
+
+import cn.popcraft.residencesync.util.LoggerUtil;
+
+/**
+ * 数据库熔断器
+ * 
+ * 连续出现指定次数的连接失败后打开，打开期间直接拒绝数据库操作；
+ * 经过 openMillis 后进入半开状态，只放行一次探测请求，探测成功则关闭，失败则重新打开。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class CircuitBreaker {
+    
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    private final int failureThreshold;
+    private final long openMillis;
+    
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    // 打开或开始探测的时间
+    private long stateChangedAt;
+    
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0L, openMillis);
+    }
+    
+    /**
+     * 检查是否允许执行数据库操作
+     */
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (now - stateChangedAt >= openMillis) {
+                        state = State.HALF_OPEN;
+                        stateChangedAt = now;
+                        return true;
+                    }
+                    return false;
+                default:
+                    // 探测请求没有返回结果（例如被执行器拒绝）时，超时后允许新的探测
+                    if (now - stateChangedAt >= openMillis) {
+                        stateChangedAt = now;
+                        return true;
+                    }
+                    return false;
+            }
+        }
+    }
+    
+    /**
+     * 记录一次成功的数据库操作
+     */
+    public void recordSuccess() {
+        if (state == State.CLOSED && consecutiveFailures == 0) {
+            return;
+        }
+        
+        synchronized (this) {
+            if (state != State.CLOSED) {
+                LoggerUtil.info("数据库连接已恢复，退出降级模式");
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        }
+    }
+    
+    /**
+     * 记录一次连接失败
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            if (state == State.CLOSED) {
+                LoggerUtil.warning("数据库连续 " + consecutiveFailures + " 次连接失败，进入降级模式");
+            }
+            state = State.OPEN;
+            stateChangedAt = System.currentTimeMillis();
+        }
+    }
+    
+    /**
+     * 获取当前状态
+     */
+    public State getState() {
+        return state;
+    }
+    
+    /**
+     * 检查熔断器是否处于打开或半开状态
+     */
+    public boolean isOpen() {
+        return state != State.CLOSED;
+    }
+}
\ No newline at end of file
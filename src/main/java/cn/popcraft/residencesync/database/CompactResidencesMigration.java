@@ -0,0 +1,234 @@
+package cn.popcraft.residencesync.database;
+
+import cn.popcraft.residencesync.util.LoggerUtil;
+
+import java.sql.*;
+
+/**
+ * V2：紧凑的领地表结构
+ * 
+ * 所有者UUID改为 BINARY(16)，服务器ID改为指向 residencesync_servers 的 SMALLINT，
+ * 方块坐标改为 INT，从而缩小索引并加快按所有者查询。
+ * 迁移时先建立新表并按主键分块复制现有数据，旧表在复制期间仍可写入；
+ * 复制完成后补齐复制期间的改动，再锁住相关表做最后一轮补齐并通过 RENAME TABLE 切换，旧表保留为 _legacy。
+ * 上次迁移在切换后、记录版本前中断时，再次执行只确认切换已完成；已存在的 _legacy 表不会被删除。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class CompactResidencesMigration implements SchemaMigration {
+    
+    private static final String NEW_TABLE = JdbcResidenceStore.RESIDENCES_TABLE + "_v2";
+    private static final String LEGACY_TABLE = JdbcResidenceStore.RESIDENCES_TABLE + "_legacy";
+    
+    // 从旧表复制到新表的语句，条件部分由调用方拼接
+    private static final String COPY_SQL = "INSERT INTO `" + NEW_TABLE + "` " + """
+            (`id`, `residence_name`, `owner_uuid`, `server_id`, `world`, `x1`, `y1`, `z1`, `x2`, `y2`, `z2`, `creation_time`, `last_modified`)
+            SELECT r.`id`, r.`residence_name`, UNHEX(REPLACE(r.`owner_uuid`, '-', '')), s.`id`, r.`world`,
+                   FLOOR(r.`x1`), FLOOR(r.`y1`), FLOOR(r.`z1`), FLOOR(r.`x2`), FLOOR(r.`y2`), FLOOR(r.`z2`),
+                   r.`creation_time`, r.`last_modified`
+            """ + "FROM `" + JdbcResidenceStore.RESIDENCES_TABLE + "` r "
+            + "JOIN `" + JdbcResidenceStore.SERVERS_TABLE + "` s ON s.`server_id` = r.`server_id` ";
+    
+    private static final String COPY_ON_DUPLICATE_SQL = """
+             ON DUPLICATE KEY UPDATE
+            `residence_name` = VALUES(`residence_name`),
+            `owner_uuid` = VALUES(`owner_uuid`),
+            `server_id` = VALUES(`server_id`),
+            `world` = VALUES(`world`),
+            `x1` = VALUES(`x1`),
+            `y1` = VALUES(`y1`),
+            `z1` = VALUES(`z1`),
+            `x2` = VALUES(`x2`),
+            `y2` = VALUES(`y2`),
+            `z2` = VALUES(`z2`),
+            `last_modified` = VALUES(`last_modified`)
+            """;
+    
+    private final int chunkSize;
+    
+    public CompactResidencesMigration(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+    
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "紧凑的领地表结构（BINARY(16) UUID、SMALLINT 服务器ID、INT 坐标）";
+    }
+    
+    @Override
+    public void migrate(Connection conn) throws SQLException {
+        // 检查上次迁移留下的状态
+        if (isCompact(conn)) {
+            LoggerUtil.info("领地表已是紧凑表结构，上次迁移已完成切换");
+            return;
+        }
+        if (tableExists(conn, LEGACY_TABLE)) {
+            throw new SQLException("表 " + LEGACY_TABLE + " 已存在，为避免覆盖其中的数据已中止迁移，请确认后手动重命名或删除该表");
+        }
+        
+        try (Statement stmt = conn.createStatement()) {
+            // 服务器ID对照表
+            stmt.execute("CREATE TABLE IF NOT EXISTS `" + JdbcResidenceStore.SERVERS_TABLE + "` " + """
+                    (
+                      `id` smallint unsigned NOT NULL AUTO_INCREMENT,
+                      `server_id` varchar(100) NOT NULL,
+                      PRIMARY KEY (`id`),
+                      UNIQUE KEY `server_id_unique` (`server_id`)
+                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                    """);
+            
+            // 清理上次未完成的迁移留下的新表
+            stmt.execute("DROP TABLE IF EXISTS `" + NEW_TABLE + "`");
+            stmt.execute("CREATE TABLE `" + NEW_TABLE + "` " + """
+                    (
+                      `id` int(11) NOT NULL AUTO_INCREMENT,
+                      `residence_name` varchar(255) NOT NULL,
+                      `owner_uuid` binary(16) NOT NULL,
+                      `server_id` smallint unsigned NOT NULL,
+                      `world` varchar(255) NOT NULL,
+                      `x1` int NOT NULL,
+                      `y1` int NOT NULL,
+                      `z1` int NOT NULL,
+                      `x2` int NOT NULL,
+                      `y2` int NOT NULL,
+                      `z2` int NOT NULL,
+                      `creation_time` timestamp DEFAULT CURRENT_TIMESTAMP,
+                      `last_modified` timestamp DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                      PRIMARY KEY (`id`),
+                      UNIQUE KEY `residence_server_unique` (`residence_name`, `server_id`),
+                      KEY `owner_uuid_idx` (`owner_uuid`),
+                      KEY `server_id_idx` (`server_id`)
+                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                    """);
+        }
+        
+        Timestamp copyStartedAt = getDatabaseTime(conn);
+        registerServers(conn);
+        copyInChunks(conn);
+        
+        // 不加锁先补齐一轮，缩短下面锁表的时间
+        Timestamp catchUpStartedAt = getDatabaseTime(conn);
+        catchUp(conn, copyStartedAt);
+        
+        // 锁住旧表后其他子服的写入会等待，最后一轮补齐到切换之间不会丢失改动
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("LOCK TABLES "
+                    + "`" + JdbcResidenceStore.RESIDENCES_TABLE + "` WRITE, "
+                    + "`" + JdbcResidenceStore.RESIDENCES_TABLE + "` AS r WRITE, "
+                    + "`" + NEW_TABLE + "` WRITE, "
+                    + "`" + NEW_TABLE + "` AS n WRITE, "
+                    + "`" + JdbcResidenceStore.SERVERS_TABLE + "` WRITE, "
+                    + "`" + JdbcResidenceStore.SERVERS_TABLE + "` AS s WRITE");
+            try {
+                catchUp(conn, catchUpStartedAt);
+                
+                int copied;
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM `" + NEW_TABLE + "`")) {
+                    copied = rs.next() ? rs.getInt(1) : 0;
+                }
+                
+                stmt.execute("RENAME TABLE `" + JdbcResidenceStore.RESIDENCES_TABLE + "` TO `" + LEGACY_TABLE + "`, "
+                        + "`" + NEW_TABLE + "` TO `" + JdbcResidenceStore.RESIDENCES_TABLE + "`");
+                
+                LoggerUtil.info("已迁移 " + copied + " 个领地到紧凑表结构，旧表保留为 " + LEGACY_TABLE);
+            } finally {
+                stmt.execute("UNLOCK TABLES");
+            }
+        }
+    }
+    
+    /**
+     * 删除复制期间被删除的领地，再补齐 since 之后新增或修改的领地
+     */
+    private void catchUp(Connection conn, Timestamp since) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE n FROM `" + NEW_TABLE + "` n "
+                    + "LEFT JOIN `" + JdbcResidenceStore.RESIDENCES_TABLE + "` r ON r.`id` = n.`id` "
+                    + "WHERE r.`id` IS NULL");
+        }
+        
+        registerServers(conn);
+        try (PreparedStatement stmt = conn.prepareStatement(COPY_SQL + "WHERE r.`last_modified` >= ?" + COPY_ON_DUPLICATE_SQL)) {
+            stmt.setTimestamp(1, since);
+            stmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * 检查领地表是否已是紧凑表结构
+     */
+    private boolean isCompact(Connection conn) throws SQLException {
+        String sql = "SELECT `DATA_TYPE` FROM information_schema.`COLUMNS` "
+                + "WHERE `TABLE_SCHEMA` = DATABASE() AND `TABLE_NAME` = ? AND `COLUMN_NAME` = 'owner_uuid'";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, JdbcResidenceStore.RESIDENCES_TABLE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && "binary".equalsIgnoreCase(rs.getString(1));
+            }
+        }
+    }
+    
+    /**
+     * 检查当前数据库中是否存在指定的表
+     */
+    private boolean tableExists(Connection conn, String table) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.`TABLES` WHERE `TABLE_SCHEMA` = DATABASE() AND `TABLE_NAME` = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+    
+    /**
+     * 将旧表中出现的服务器ID写入对照表
+     */
+    private void registerServers(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT IGNORE INTO `" + JdbcResidenceStore.SERVERS_TABLE + "` (`server_id`) "
+                    + "SELECT DISTINCT r.`server_id` FROM `" + JdbcResidenceStore.RESIDENCES_TABLE + "` r");
+        }
+    }
+    
+    /**
+     * 按主键范围分块复制，每块单独提交，避免长时间锁住旧表
+     */
+    private void copyInChunks(Connection conn) throws SQLException {
+        long minId;
+        long maxId;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(`id`), MAX(`id`) FROM `" + JdbcResidenceStore.RESIDENCES_TABLE + "`")) {
+            if (!rs.next() || rs.getObject(1) == null) {
+                return;
+            }
+            minId = rs.getLong(1);
+            maxId = rs.getLong(2);
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement(COPY_SQL + "WHERE r.`id` >= ? AND r.`id` < ?" + COPY_ON_DUPLICATE_SQL)) {
+            for (long start = minId; start <= maxId; start += chunkSize) {
+                stmt.setLong(1, start);
+                stmt.setLong(2, start + chunkSize);
+                stmt.executeUpdate();
+            }
+        }
+    }
+    
+    /**
+     * 获取数据库当前时间，与 last_modified 使用同一时钟
+     */
+    private Timestamp getDatabaseTime(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CURRENT_TIMESTAMP")) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+package cn.popcraft.residencesync.database;
+
+import cn.popcraft.residencesync.util.LoggerUtil;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据库任务执行器
+ * 
+ * 专用于阻塞的JDBC操作，避免占用 ForkJoinPool.commonPool()。
+ * 默认使用与连接池大小相同的命名线程池和有界队列；在 JDK 21 及以上可选择
+ * 每个任务一个虚拟线程，此时提交时通过信号量限制已提交未完成的任务数量，与线程池模式的容量相同；
+ * 虚拟线程在执行任务前再获取一个与线程数相同的执行许可，同时向连接池申请连接的任务不超过线程数，
+ * 其余任务在许可上等待，不会因获取连接超时而失败。
+ * 超出容量的任务会被拒绝并计数。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class DatabaseExecutor implements Executor {
+    
+    private static final String THREAD_NAME_PREFIX = "ResidenceSync-DB-";
+    
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor threadPool;
+    private final Semaphore inFlightPermits;
+    private final Semaphore runningPermits;
+    private final int capacity;
+    private final boolean virtualThreads;
+    
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    
+    /**
+     * @param threads 工作线程数，应与连接池最大连接数一致
+     * @param queueCapacity 等待队列容量
+     * @param useVirtualThreads 是否尝试使用虚拟线程
+     */
+    public DatabaseExecutor(int threads, int queueCapacity, boolean useVirtualThreads) {
+        this.capacity = threads + queueCapacity;
+        
+        ExecutorService virtualExecutor = useVirtualThreads ? createVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.threadPool = null;
+            this.inFlightPermits = new Semaphore(capacity);
+            this.runningPermits = new Semaphore(threads);
+            this.virtualThreads = true;
+            LoggerUtil.info("数据库执行器使用虚拟线程模式，同时执行: " + threads + "，最多排队: " + queueCapacity);
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+            
+            this.threadPool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory,
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.executor = threadPool;
+            this.inFlightPermits = null;
+            this.runningPermits = null;
+            this.virtualThreads = false;
+            LoggerUtil.info("数据库执行器线程数: " + threads + "，队列容量: " + queueCapacity);
+        }
+    }
+    
+    /**
+     * 通过反射创建虚拟线程执行器，当前运行时不支持时返回null
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LoggerUtil.warning("当前Java版本不支持虚拟线程，数据库执行器使用普通线程池");
+            return null;
+        }
+    }
+    
+    /**
+     * 提交任务，超出容量或已关闭时抛出 RejectedExecutionException
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (inFlightPermits != null && !inFlightPermits.tryAcquire()) {
+            reject();
+        }
+        
+        try {
+            executor.execute(() -> {
+                if (runningPermits != null) {
+                    // 虚拟线程在这里排队，获得许可后才会申请数据库连接
+                    runningPermits.acquireUninterruptibly();
+                }
+                activeCount.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    activeCount.decrementAndGet();
+                    if (runningPermits != null) {
+                        runningPermits.release();
+                    }
+                    if (inFlightPermits != null) {
+                        inFlightPermits.release();
+                    }
+                }
+            });
+            submittedCount.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            if (inFlightPermits != null) {
+                inFlightPermits.release();
+            }
+            reject();
+        }
+    }
+    
+    /**
+     * 记录并抛出拒绝异常
+     */
+    private void reject() {
+        long rejected = rejectedCount.incrementAndGet();
+        LoggerUtil.debug("数据库任务被拒绝，累计拒绝次数: " + rejected);
+        throw new RejectedExecutionException("数据库任务队列已满");
+    }
+    
+    /**
+     * 关闭执行器，等待已提交的任务完成
+     */
+    public void shutdown(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, unit)) {
+                LoggerUtil.warning("数据库任务未能在关闭前全部完成，剩余任务已取消");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * 获取等待执行的任务数量
+     */
+    public int getQueueSize() {
+        if (threadPool != null) {
+            return threadPool.getQueue().size();
+        }
+        return Math.max(0, capacity - inFlightPermits.availablePermits() - activeCount.get());
+    }
+    
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+    
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+    
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+}
\ No newline at end of file
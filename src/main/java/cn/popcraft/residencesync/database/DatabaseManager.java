@@ -1,19 +1,27 @@
 package cn.popcraft.residencesync.database;
 
 import cn.popcraft.residencesync.util.LoggerUtil;
-import com.zaxxer.hikari.HikariConfig;
-import com.zaxxer.hikari.HikariDataSource;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 数据库管理器
  * 
- * 负责管理MySQL数据库连接、初始化表结构和数据库操作
+ * 负责选择存储后端（MySQL 或 SQLite），并在数据库执行器上异步执行存储操作。
+ * 存储操作由熔断器保护：数据库不可达时读取以 DatabaseUnavailableException 快速失败，
+ * 写入追加到本地写入日志，数据库恢复后按原顺序分批回放。
+ * 同一领地或玩家的写入按提交顺序依次执行，较早的写入连接超时后追加到日志时，不会有较新的写入已经直接写入数据库。
  * 
  * @author MiniMax Agent
  * @version 1.0.0
@@ -21,51 +29,45 @@ import java.util.concurrent.CompletableFuture;
 public class DatabaseManager {
     
     private final cn.popcraft.residencesync.ResidenceSyncPlugin plugin;
-    private HikariDataSource dataSource;
-    
-    // 表名常量
-    private static final String RESIDENCES_TABLE = "residencesync_residences";
-    private static final String PLAYERS_TABLE = "residencesync_players";
+    private ResidenceStore store;
+    private DatabaseExecutor executor;
+    private CircuitBreaker circuitBreaker;
+    private WriteJournal journal;
+    private final AtomicBoolean replaying = new AtomicBoolean(false);
+    // 每个写入键最后提交的写入，只在同步块中访问
+    private final Map<String, CompletableFuture<?>> writeTails = new HashMap<>();
+    private BukkitTask journalSyncTask;
+    private BukkitTask journalReplayTask;
     
     public DatabaseManager(cn.popcraft.residencesync.ResidenceSyncPlugin plugin) {
         this.plugin = plugin;
     }
     
     /**
-     * 初始化数据库连接池
+     * 初始化存储后端和数据库执行器
      */
     public boolean initialize() {
         try {
-            HikariConfig config = new HikariConfig();
-            
-            // 数据库连接配置
-            config.setJdbcUrl(String.format("jdbc:mysql://%s:%d/%s?useSSL=false&serverTimezone=UTC&characterEncoding=utf8",
-                    plugin.getPluginConfig().getDatabaseHost(),
-                    plugin.getPluginConfig().getDatabasePort(),
-                    plugin.getPluginConfig().getDatabaseName()));
+            store = createStore();
+            store.initialize();
             
-            config.setUsername(plugin.getPluginConfig().getDatabaseUsername());
-            config.setPassword(plugin.getPluginConfig().getDatabasePassword());
+            // 注册本服务器ID
+            store.registerServer(plugin.getPluginConfig().getServerId());
             
-            // 连接池配置
-            config.setMaximumPoolSize(10);
-            config.setMinimumIdle(2);
-            config.setConnectionTimeout(30000);
-            config.setIdleTimeout(600000);
-            config.setMaxLifetime(1800000);
-            config.setLeakDetectionThreshold(60000);
+            // 数据库任务执行器，线程数与连接池大小一致
+            executor = new DatabaseExecutor(store.getMaximumPoolSize(),
+                    plugin.getPluginConfig().getDatabaseExecutorQueueCapacity(),
+                    plugin.getPluginConfig().isDatabaseVirtualThreads());
             
-            // 数据库驱动
-            config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+            // 熔断器和本地写入日志
+            circuitBreaker = new CircuitBreaker(plugin.getPluginConfig().getCircuitBreakerFailureThreshold(),
+                    plugin.getPluginConfig().getCircuitBreakerOpenMillis());
+            journal = new WriteJournal(new File(plugin.getDataFolder(), "journal.log"),
+                    plugin.getPluginConfig().getJournalFsyncBatchSize());
+            journal.open();
+            startJournalTasks();
             
-            dataSource = new HikariDataSource(config);
-            
-            // 初始化表结构
-            if (!initializeTables()) {
-                return false;
-            }
-            
-            LoggerUtil.info("数据库连接池初始化完成");
+            LoggerUtil.info("数据库初始化完成，存储后端: " + store.getName());
             return true;
             
         } catch (Exception e) {
@@ -75,312 +77,513 @@ public class DatabaseManager {
     }
     
     /**
-     * 初始化数据库表
-     */
-    private boolean initializeTables() {
-        try (Connection conn = getConnection()) {
-            // 创建领地表
-            String createResidencesTable = """
-                CREATE TABLE IF NOT EXISTS `""" + RESIDENCES_TABLE + """` (
-                  `id` int(11) NOT NULL AUTO_INCREMENT,
-                  `residence_name` varchar(255) NOT NULL,
-                  `owner_uuid` varchar(36) NOT NULL,
-                  `server_id` varchar(100) NOT NULL,
-                  `world` varchar(255) NOT NULL,
-                  `x1` double NOT NULL,
-                  `y1` double NOT NULL,
-                  `z1` double NOT NULL,
-                  `x2` double NOT NULL,
-                  `y2` double NOT NULL,
-                  `z2` double NOT NULL,
-                  `creation_time` timestamp DEFAULT CURRENT_TIMESTAMP,
-                  `last_modified` timestamp DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-                  PRIMARY KEY (`id`),
-                  UNIQUE KEY `residence_server_unique` (`residence_name`, `server_id`),
-                  KEY `owner_uuid_idx` (`owner_uuid`),
-                  KEY `server_id_idx` (`server_id`)
-                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
-                """;
-            
-            // 创建玩家表
-            String createPlayersTable = """
-                CREATE TABLE IF NOT EXISTS `""" + PLAYERS_TABLE + """` (
-                  `id` int(11) NOT NULL AUTO_INCREMENT,
-                  `uuid` varchar(36) NOT NULL,
-                  `player_name` varchar(16) NOT NULL,
-                  `last_seen` timestamp DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-                  PRIMARY KEY (`id`),
-                  UNIQUE KEY `uuid_unique` (`uuid`),
-                  KEY `player_name_idx` (`player_name`)
-                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
-                """;
-            
-            Statement stmt = conn.createStatement();
-            stmt.execute(createResidencesTable);
-            stmt.execute(createPlayersTable);
-            
-            LoggerUtil.info("数据库表初始化完成");
-            return true;
-            
-        } catch (SQLException e) {
-            LoggerUtil.severe("创建数据库表失败: " + e.getMessage(), e);
-            return false;
+     * 根据 database.type 创建存储后端
+     */
+    private ResidenceStore createStore() {
+        String type = plugin.getPluginConfig().getDatabaseType();
+        
+        switch (type.toLowerCase()) {
+            case "sqlite":
+                return new SqliteResidenceStore(new File(plugin.getDataFolder(), "residencesync.db"));
+            case "mysql":
+                return new MySqlResidenceStore(plugin.getPluginConfig());
+            default:
+                LoggerUtil.warning("未知的数据库类型: " + type + "，使用MySQL");
+                return new MySqlResidenceStore(plugin.getPluginConfig());
         }
     }
     
     /**
-     * 获取数据库连接
+     * 启动日志定时同步和回放任务
      */
-    private Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+    private void startJournalTasks() {
+        long syncTicks = Math.max(1L, plugin.getPluginConfig().getJournalFsyncIntervalMillis() / 50L);
+        journalSyncTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                try {
+                    journal.sync();
+                } catch (IOException e) {
+                    LoggerUtil.severe("同步本地写入日志失败: " + e.getMessage(), e);
+                }
+            }
+        }.runTaskTimerAsynchronously(plugin, syncTicks, syncTicks);
+        
+        long replayTicks = Math.max(1L, plugin.getPluginConfig().getJournalReplayIntervalMillis() / 50L);
+        journalReplayTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                replayJournal();
+            }
+        }.runTaskTimerAsynchronously(plugin, 1L, replayTicks);
     }
     
     /**
-     * 关闭数据库连接池
+     * 将本地写入日志分批回放到数据库
+     * 
+     * 回放期间新的写入仍追加到日志末尾，直到读到末尾时才清空日志并恢复直接写入，保证写入顺序。
+     * 中途失败时下次从头回放，所有操作都是幂等的；连接失败或死锁、锁等待超时等暂时性错误都不会清空日志。
      */
-    public void close() {
-        if (dataSource != null && !dataSource.isClosed()) {
-            dataSource.close();
-            LoggerUtil.info("数据库连接池已关闭");
+    private void replayJournal() {
+        if (!journal.hasPending() || !replaying.compareAndSet(false, true)) {
+            return;
+        }
+        
+        int batchSize = Math.max(1, plugin.getPluginConfig().getDatabaseBatchSize());
+        long position = 0;
+        int replayed = 0;
+        
+        try {
+            while (circuitBreaker.allowRequest()) {
+                WriteJournal.Batch batch = journal.read(position, batchSize);
+                if (batch.getEntries().isEmpty()) {
+                    if (batch.hasUnreadableRecord()) {
+                        // 损坏的记录无法跳过，隔离后从这里继续，否则会反复读到同一位置
+                        journal.quarantine(position);
+                    }
+                    if (journal.completeReplay(position)) {
+                        LoggerUtil.info("本地写入日志回放完成: " + replayed + " 条记录");
+                        return;
+                    }
+                    continue;
+                }
+                
+                applyJournalEntries(batch.getEntries(), batchSize);
+                circuitBreaker.recordSuccess();
+                position = batch.getEndPosition();
+                replayed += batch.getEntries().size();
+            }
+        } catch (SQLException e) {
+            if (isConnectionFailure(e)) {
+                circuitBreaker.recordFailure();
+            }
+            LoggerUtil.warning("回放本地写入日志失败，稍后重试: " + e.getMessage());
+        } catch (IOException e) {
+            LoggerUtil.severe("读取本地写入日志失败: " + e.getMessage(), e);
+        } finally {
+            replaying.set(false);
         }
     }
     
     /**
-     * 添加或更新领地信息
+     * 按顺序应用日志条目，连续的同类写入合并为一次批量操作
+     * 
+     * 连接失败和暂时性错误向上抛出，由下次回放重试；其他错误时逐条重放该组，只跳过本身无法写入的条目
      */
-    public CompletableFuture<Boolean> addOrUpdateResidence(ResidenceData residence) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection conn = getConnection()) {
-                String sql = """
-                    INSERT INTO `""" + RESIDENCES_TABLE + """` 
-                    (`residence_name`, `owner_uuid`, `server_id`, `world`, `x1`, `y1`, `z1`, `x2`, `y2`, `z2`)
-                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-                    ON DUPLICATE KEY UPDATE
-                    `owner_uuid` = VALUES(`owner_uuid`),
-                    `world` = VALUES(`world`),
-                    `x1` = VALUES(`x1`),
-                    `y1` = VALUES(`y1`),
-                    `z1` = VALUES(`z1`),
-                    `x2` = VALUES(`x2`),
-                    `y2` = VALUES(`y2`),
-                    `z2` = VALUES(`z2`),
-                    `last_modified` = CURRENT_TIMESTAMP
-                    """;
-                
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                stmt.setString(1, residence.getName());
-                stmt.setString(2, residence.getOwnerUuid());
-                stmt.setString(3, residence.getServerId());
-                stmt.setString(4, residence.getWorld());
-                stmt.setDouble(5, residence.getX1());
-                stmt.setDouble(6, residence.getY1());
-                stmt.setDouble(7, residence.getZ1());
-                stmt.setDouble(8, residence.getX2());
-                stmt.setDouble(9, residence.getY2());
-                stmt.setDouble(10, residence.getZ2());
-                
-                int result = stmt.executeUpdate();
-                stmt.close();
-                
-                return result > 0;
-                
+    private void applyJournalEntries(List<JournalEntry> entries, int batchSize) throws SQLException {
+        int start = 0;
+        while (start < entries.size()) {
+            JournalEntry.Type type = entries.get(start).getType();
+            int end = start + 1;
+            while (end < entries.size() && entries.get(end).getType() == type) {
+                end++;
+            }
+            
+            List<JournalEntry> group = entries.subList(start, end);
+            try {
+                applyJournalGroup(type, group, batchSize);
             } catch (SQLException e) {
-                LoggerUtil.severe("添加或更新领地信息失败: " + e.getMessage(), e);
-                return false;
+                if (isRetryable(e)) {
+                    throw e;
+                }
+                for (JournalEntry entry : group) {
+                    try {
+                        applyJournalGroup(type, List.of(entry), 1);
+                    } catch (SQLException entryError) {
+                        if (isRetryable(entryError)) {
+                            throw entryError;
+                        }
+                        // 数据库可用但条目本身无法写入，跳过以免阻塞后续回放
+                        LoggerUtil.severe("回放本地写入日志时跳过记录 " + entry.getKey() + ": " + entryError.getMessage(), entryError);
+                    }
+                }
             }
-        });
+            start = end;
+        }
     }
     
     /**
-     * 删除领地信息
+     * 应用一组同类日志条目
      */
-    public CompletableFuture<Boolean> deleteResidence(String residenceName, String serverId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection conn = getConnection()) {
-                String sql = "DELETE FROM `" + RESIDENCES_TABLE + "` WHERE `residence_name` = ? AND `server_id` = ?";
-                
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                stmt.setString(1, residenceName);
-                stmt.setString(2, serverId);
-                
-                int result = stmt.executeUpdate();
-                stmt.close();
-                
-                return result > 0;
-                
+    private void applyJournalGroup(JournalEntry.Type type, List<JournalEntry> group, int batchSize) throws SQLException {
+        switch (type) {
+            case UPSERT_RESIDENCE:
+                store.upsertResidences(group.stream().map(JournalEntry::getResidence).toList(), batchSize);
+                break;
+            case DELETE_RESIDENCE:
+                for (JournalEntry entry : group) {
+                    store.deleteResidence(entry.getResidenceName(), entry.getServerId());
+                }
+                break;
+            case UPSERT_PLAYER:
+                store.upsertPlayers(group.stream().map(JournalEntry::getPlayer).toList(), batchSize);
+                break;
+        }
+    }
+    
+    /**
+     * 检查异常是否可以稍后重试：连接失败、死锁、锁等待超时等
+     */
+    private static boolean isRetryable(SQLException e) {
+        if (isConnectionFailure(e) || e instanceof SQLTransientException) {
+            return true;
+        }
+        String sqlState = e.getSQLState();
+        // 40xxx 为事务回滚（含死锁），1205 为 MySQL 锁等待超时，5/6 为 SQLite 数据库忙或表被锁
+        return (sqlState != null && sqlState.startsWith("40"))
+                || e.getErrorCode() == 1205
+                || e.getErrorCode() == 5 || e.getErrorCode() == 6;
+    }
+    
+    /**
+     * 检查异常是否表示无法连接数据库
+     */
+    private static boolean isConnectionFailure(SQLException e) {
+        if (e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String sqlState = e.getSQLState();
+        return sqlState != null && sqlState.startsWith("08");
+    }
+    
+    /**
+     * 执行读取操作
+     * 
+     * 熔断器打开、连接失败或数据库执行器已满时以 DatabaseUnavailableException 完成，其他错误记录日志并返回默认值
+     */
+    private <T> CompletableFuture<T> read(String failureMessage, StoreCall<T> call, Supplier<T> fallback) {
+        if (!circuitBreaker.allowRequest()) {
+            return CompletableFuture.failedFuture(new DatabaseUnavailableException("数据库暂时不可用"));
+        }
+        
+        return supplyAsync(() -> {
+            try {
+                T result = call.call();
+                circuitBreaker.recordSuccess();
+                return result;
             } catch (SQLException e) {
-                LoggerUtil.severe("删除领地信息失败: " + e.getMessage(), e);
-                return false;
+                if (isConnectionFailure(e)) {
+                    circuitBreaker.recordFailure();
+                    throw new DatabaseUnavailableException(failureMessage + e.getMessage(), e);
+                }
+                circuitBreaker.recordSuccess();
+                LoggerUtil.severe(failureMessage + e.getMessage(), e);
+                return fallback.get();
             }
-        });
+        }, rejected -> CompletableFuture.failedFuture(
+                new DatabaseUnavailableException(failureMessage + rejected.getMessage(), rejected)));
     }
     
     /**
-     * 获取玩家的所有领地
+     * 执行写入操作
+     * 
+     * 日志中还有未回放的条目、熔断器打开或连接失败时，写入追加到本地写入日志并返回 journaledResult。
+     * 涉及相同键的写入在前一个写入完成（包括追加到日志）后才开始，不同键的写入并行执行。
      */
-    public CompletableFuture<List<ResidenceData>> getPlayerResidences(UUID playerUuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<ResidenceData> residences = new ArrayList<>();
-            
-            try (Connection conn = getConnection()) {
-                String sql = "SELECT * FROM `" + RESIDENCES_TABLE + "` WHERE `owner_uuid` = ? ORDER BY `creation_time` DESC";
-                
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                stmt.setString(1, playerUuid.toString());
-                
-                ResultSet rs = stmt.executeQuery();
-                
-                while (rs.next()) {
-                    ResidenceData residence = new ResidenceData(
-                        rs.getString("residence_name"),
-                        rs.getString("owner_uuid"),
-                        rs.getString("server_id"),
-                        rs.getString("world"),
-                        rs.getDouble("x1"),
-                        rs.getDouble("y1"),
-                        rs.getDouble("z1"),
-                        rs.getDouble("x2"),
-                        rs.getDouble("y2"),
-                        rs.getDouble("z2"),
-                        rs.getTimestamp("creation_time"),
-                        rs.getTimestamp("last_modified")
-                    );
-                    residences.add(residence);
+    private <T> CompletableFuture<T> write(String failureMessage, Collection<JournalEntry> entries,
+                                           StoreCall<T> call, T journaledResult, T fallback) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Set<String> keys = new HashSet<>();
+        List<CompletableFuture<?>> predecessors = new ArrayList<>();
+        synchronized (writeTails) {
+            for (JournalEntry entry : entries) {
+                String key = entry.getKey();
+                if (keys.add(key)) {
+                    CompletableFuture<?> previous = writeTails.put(key, result);
+                    if (previous != null) {
+                        predecessors.add(previous);
+                    }
                 }
-                
-                rs.close();
-                stmt.close();
-                
-            } catch (SQLException e) {
-                LoggerUtil.severe("获取玩家领地信息失败: " + e.getMessage(), e);
             }
-            
-            return residences;
+        }
+        result.whenComplete((value, error) -> {
+            synchronized (writeTails) {
+                for (String key : keys) {
+                    writeTails.remove(key, result);
+                }
+            }
+        });
+        
+        CompletableFuture<T> task;
+        if (predecessors.isEmpty()) {
+            task = writeAsync(failureMessage, entries, call, journaledResult, fallback);
+        } else {
+            // 前一个写入失败与否都不影响本次写入
+            task = CompletableFuture.allOf(predecessors.toArray(new CompletableFuture<?>[0]))
+                    .handle((ignored, error) -> null)
+                    .thenCompose(ignored -> writeAsync(failureMessage, entries, call, journaledResult, fallback));
+        }
+        task.whenComplete((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
         });
+        return result;
     }
     
     /**
-     * 根据名称和服务器ID获取领地
+     * 在数据库执行器上执行一次写入，失败或执行器已满时追加到本地写入日志
      */
-    public CompletableFuture<ResidenceData> getResidence(String residenceName, String serverId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection conn = getConnection()) {
-                String sql = "SELECT * FROM `" + RESIDENCES_TABLE + "` WHERE `residence_name` = ? AND `server_id` = ?";
-                
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                stmt.setString(1, residenceName);
-                stmt.setString(2, serverId);
-                
-                ResultSet rs = stmt.executeQuery();
-                
-                if (rs.next()) {
-                    ResidenceData residence = new ResidenceData(
-                        rs.getString("residence_name"),
-                        rs.getString("owner_uuid"),
-                        rs.getString("server_id"),
-                        rs.getString("world"),
-                        rs.getDouble("x1"),
-                        rs.getDouble("y1"),
-                        rs.getDouble("z1"),
-                        rs.getDouble("x2"),
-                        rs.getDouble("y2"),
-                        rs.getDouble("z2"),
-                        rs.getTimestamp("creation_time"),
-                        rs.getTimestamp("last_modified")
-                    );
-                    
-                    rs.close();
-                    stmt.close();
-                    return residence;
+    private <T> CompletableFuture<T> writeAsync(String failureMessage, Collection<JournalEntry> entries,
+                                                StoreCall<T> call, T journaledResult, T fallback) {
+        return supplyAsync(() -> {
+            try {
+                if (journal.appendIfPending(entries)) {
+                    return journaledResult;
                 }
                 
-                rs.close();
-                stmt.close();
+                if (!circuitBreaker.allowRequest()) {
+                    journal.append(entries);
+                    return journaledResult;
+                }
                 
-            } catch (SQLException e) {
-                LoggerUtil.severe("获取领地信息失败: " + e.getMessage(), e);
+                try {
+                    T result = call.call();
+                    circuitBreaker.recordSuccess();
+                    return result;
+                } catch (SQLException e) {
+                    if (isRetryable(e)) {
+                        // 死锁等暂时性错误不代表数据库不可用，只有连接失败计入熔断器
+                        if (isConnectionFailure(e)) {
+                            circuitBreaker.recordFailure();
+                        } else {
+                            circuitBreaker.recordSuccess();
+                        }
+                        journal.append(entries);
+                        LoggerUtil.warning(failureMessage + e.getMessage() + "，已写入本地日志");
+                        return journaledResult;
+                    }
+                    circuitBreaker.recordSuccess();
+                    LoggerUtil.severe(failureMessage + e.getMessage(), e);
+                    return fallback;
+                }
+            } catch (IOException e) {
+                LoggerUtil.severe("写入本地日志失败: " + e.getMessage(), e);
+                return fallback;
+            }
+        }, rejected -> {
+            // 执行器已满时在调用线程追加到日志，之后的写入也会进入日志，顺序不变
+            try {
+                journal.append(entries);
+                LoggerUtil.warning(failureMessage + rejected.getMessage() + "，已写入本地日志");
+                return CompletableFuture.completedFuture(journaledResult);
+            } catch (IOException e) {
+                LoggerUtil.severe("写入本地日志失败: " + e.getMessage(), e);
+                return CompletableFuture.completedFuture(fallback);
             }
-            
-            return null;
         });
     }
     
     /**
-     * 更新玩家信息
+     * 可能抛出SQLException的存储操作
      */
-    public CompletableFuture<Boolean> updatePlayer(UUID uuid, String playerName) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection conn = getConnection()) {
-                String sql = """
-                    INSERT INTO `""" + PLAYERS_TABLE + """` (`uuid`, `player_name`)
-                    VALUES (?, ?)
-                    ON DUPLICATE KEY UPDATE 
-                    `player_name` = VALUES(`player_name`),
-                    `last_seen` = CURRENT_TIMESTAMP
-                    """;
-                
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                stmt.setString(1, uuid.toString());
-                stmt.setString(2, playerName);
-                
-                int result = stmt.executeUpdate();
-                stmt.close();
-                
-                return result > 0;
-                
-            } catch (SQLException e) {
-                LoggerUtil.severe("更新玩家信息失败: " + e.getMessage(), e);
-                return false;
-            }
-        });
+    @FunctionalInterface
+    private interface StoreCall<T> {
+        T call() throws SQLException;
     }
     
     /**
-     * 获取玩家姓名
+     * 在数据库执行器上异步执行任务，任务被拒绝时返回 onRejected 的结果
      */
-    public CompletableFuture<String> getPlayerName(UUID uuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection conn = getConnection()) {
-                String sql = "SELECT `player_name` FROM `" + PLAYERS_TABLE + "` WHERE `uuid` = ?";
-                
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                stmt.setString(1, uuid.toString());
-                
-                ResultSet rs = stmt.executeQuery();
-                
-                if (rs.next()) {
-                    String playerName = rs.getString("player_name");
-                    rs.close();
-                    stmt.close();
-                    return playerName;
-                }
-                
-                rs.close();
-                stmt.close();
-                
-            } catch (SQLException e) {
-                LoggerUtil.severe("获取玩家姓名失败: " + e.getMessage(), e);
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> task,
+                                                 Function<RejectedExecutionException, CompletableFuture<T>> onRejected) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return onRejected.apply(e);
+        }
+    }
+    
+    /**
+     * 获取数据库任务执行器
+     */
+    public DatabaseExecutor getExecutor() {
+        return executor;
+    }
+    
+    /**
+     * 获取当前使用的存储后端
+     */
+    public ResidenceStore getStore() {
+        return store;
+    }
+    
+    /**
+     * 检查数据库是否可用，熔断器打开时返回false
+     */
+    public boolean isAvailable() {
+        return circuitBreaker == null || !circuitBreaker.isOpen();
+    }
+    
+    /**
+     * 获取数据库熔断器
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    
+    /**
+     * 获取本地写入日志
+     */
+    public WriteJournal getJournal() {
+        return journal;
+    }
+    
+    /**
+     * 关闭数据库连接池，未回放的写入保留在本地日志中，下次启动时回放
+     */
+    public void close() {
+        if (journalSyncTask != null) {
+            journalSyncTask.cancel();
+        }
+        if (journalReplayTask != null) {
+            journalReplayTask.cancel();
+        }
+        
+        if (executor != null) {
+            executor.shutdown(10, TimeUnit.SECONDS);
+        }
+        
+        if (journal != null) {
+            if (journal.getPendingEntries() > 0) {
+                LoggerUtil.warning("本地写入日志中还有 " + journal.getPendingEntries() + " 条记录未回放，将在下次启动时回放");
             }
-            
-            return null;
+            journal.close();
+        }
+        
+        if (store != null) {
+            store.close();
+            LoggerUtil.info("数据库连接池已关闭");
+        }
+    }
+    
+    /**
+     * 添加或更新领地信息
+     */
+    public CompletableFuture<Boolean> addOrUpdateResidence(ResidenceData residence) {
+        return write("添加或更新领地信息失败: ", List.of(JournalEntry.upsertResidence(residence)),
+                () -> store.upsertResidence(residence), true, false);
+    }
+    
+    /**
+     * 批量添加或更新领地信息
+     * 
+     * 按 database.batchSize 分块，每块使用一次 JDBC 批处理并单独提交，
+     * MySQL 连接参数 rewriteBatchedStatements 会将其改写为多行 INSERT ... ON DUPLICATE KEY UPDATE。
+     * 
+     * @return 成功写入的领地数量
+     */
+    public CompletableFuture<Integer> addOrUpdateResidences(Collection<ResidenceData> residences) {
+        List<JournalEntry> entries = residences.stream().map(JournalEntry::upsertResidence).toList();
+        return write("批量添加或更新领地信息失败: ", entries,
+                () -> store.upsertResidences(residences, Math.max(1, plugin.getPluginConfig().getDatabaseBatchSize())),
+                residences.size(), 0);
+    }
+    
+    /**
+     * 删除领地信息
+     */
+    public CompletableFuture<Boolean> deleteResidence(String residenceName, String serverId) {
+        return write("删除领地信息失败: ", List.of(JournalEntry.deleteResidence(residenceName, serverId)),
+                () -> store.deleteResidence(residenceName, serverId), true, false);
+    }
+    
+    /**
+     * 批量删除领地信息
+     * 
+     * @return 成功处理的领地数量
+     */
+    public CompletableFuture<Integer> deleteResidences(Collection<ResidenceData> residences) {
+        List<JournalEntry> entries = residences.stream()
+                .map(residence -> JournalEntry.deleteResidence(residence.getName(), residence.getServerId()))
+                .toList();
+        return write("批量删除领地信息失败: ", entries,
+                () -> store.deleteResidences(residences, Math.max(1, plugin.getPluginConfig().getDatabaseBatchSize())),
+                residences.size(), 0);
+    }
+    
+    /**
+     * 获取玩家的所有领地
+     */
+    public CompletableFuture<List<ResidenceData>> getPlayerResidences(UUID playerUuid) {
+        return read("获取玩家领地信息失败: ", () -> store.getPlayerResidences(playerUuid), ArrayList::new);
+    }
+    
+    /**
+     * 获取玩家拥有的领地数量
+     */
+    public CompletableFuture<Integer> countResidences(UUID playerUuid) {
+        return read("获取玩家领地数量失败: ", () -> store.countResidences(playerUuid), () -> 0);
+    }
+    
+    /**
+     * 检查玩家是否拥有指定名称的领地，名称不区分大小写
+     */
+    public CompletableFuture<Boolean> ownsResidence(UUID playerUuid, String residenceName) {
+        return read("检查玩家领地失败: ", () -> store.ownsResidence(playerUuid, residenceName), () -> false);
+    }
+    
+    /**
+     * 获取玩家拥有的领地名称，按名称排序
+     */
+    public CompletableFuture<List<String>> listResidenceNames(UUID playerUuid) {
+        return read("获取玩家领地名称失败: ", () -> store.listResidenceNames(playerUuid), ArrayList::new);
+    }
+    
+    /**
+     * 根据名称和服务器ID获取领地
+     */
+    public CompletableFuture<ResidenceData> getResidence(String residenceName, String serverId) {
+        return read("获取领地信息失败: ", () -> store.getResidence(residenceName, serverId), () -> null);
+    }
+    
+    /**
+     * 获取指定服务器上的全部领地
+     */
+    public CompletableFuture<List<ResidenceData>> getServerResidences(String serverId) {
+        return read("获取服务器领地信息失败: ", () -> store.getServerResidences(serverId), () -> {
+            throw new IllegalStateException("获取服务器领地信息失败");
         });
     }
     
     /**
-     * 同步本地Residence插件的领地数据
+     * 获取全网所有领地，用于构建领地名称索引
      */
-    public CompletableFuture<Boolean> syncResidenceData() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // 这里需要集成Residence插件的API来获取本地领地数据
-                // 暂时返回true，实际实现时需要调用Residence插件的方法
-                LoggerUtil.info("开始同步Residence插件数据...");
-                return true;
-                
-            } catch (Exception e) {
-                LoggerUtil.severe("同步Residence数据失败: " + e.getMessage(), e);
-                return false;
-            }
+    public CompletableFuture<List<ResidenceData>> getAllResidences() {
+        return read("获取全部领地信息失败: ", store::getAllResidences, () -> {
+            throw new IllegalStateException("获取全部领地信息失败");
         });
     }
+    
+    /**
+     * 更新玩家信息
+     */
+    public CompletableFuture<Boolean> updatePlayer(UUID uuid, String playerName) {
+        return updatePlayers(List.of(new PlayerData(uuid, playerName, new Timestamp(System.currentTimeMillis()))));
+    }
+    
+    /**
+     * 批量更新玩家信息
+     * 
+     * 按 database.batchSize 分块写入，全部写入成功时返回true
+     */
+    public CompletableFuture<Boolean> updatePlayers(Collection<PlayerData> players) {
+        List<JournalEntry> entries = players.stream().map(JournalEntry::upsertPlayer).toList();
+        return write("更新玩家信息失败: ", entries, () -> {
+            store.upsertPlayers(players, Math.max(1, plugin.getPluginConfig().getDatabaseBatchSize()));
+            return true;
+        }, true, false);
+    }
+    
+    /**
+     * 获取玩家姓名
+     */
+    public CompletableFuture<String> getPlayerName(UUID uuid) {
+        return read("获取玩家姓名失败: ", () -> store.getPlayerName(uuid), () -> null);
+    }
+
 }
\ No newline at end of file
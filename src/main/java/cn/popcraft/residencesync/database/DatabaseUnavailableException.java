@@ -0,0 +1,20 @@
+package cn.popcraft.residencesync.database;
+
+/**
+ * 数据库不可用异常
+ * 
+ * 熔断器打开或无法获取数据库连接时，读取操作以该异常完成，调用方可改用缓存中的数据
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class DatabaseUnavailableException extends RuntimeException {
+    
+    public DatabaseUnavailableException(String message) {
+        super(message);
+    }
+    
+    public DatabaseUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package cn.popcraft.residencesync.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * V1：初始表结构
+ * 
+ * 与引入迁移之前的建表语句相同，已存在的表不会被修改
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class InitialSchemaMigration implements SchemaMigration {
+    
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "初始表结构";
+    }
+    
+    @Override
+    public void migrate(Connection conn) throws SQLException {
+        // 创建领地表
+        String createResidencesTable = "CREATE TABLE IF NOT EXISTS `" + JdbcResidenceStore.RESIDENCES_TABLE + "` " + """
+                (
+                  `id` int(11) NOT NULL AUTO_INCREMENT,
+                  `residence_name` varchar(255) NOT NULL,
+                  `owner_uuid` varchar(36) NOT NULL,
+                  `server_id` varchar(100) NOT NULL,
+                  `world` varchar(255) NOT NULL,
+                  `x1` double NOT NULL,
+                  `y1` double NOT NULL,
+                  `z1` double NOT NULL,
+                  `x2` double NOT NULL,
+                  `y2` double NOT NULL,
+                  `z2` double NOT NULL,
+                  `creation_time` timestamp DEFAULT CURRENT_TIMESTAMP,
+                  `last_modified` timestamp DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                  PRIMARY KEY (`id`),
+                  UNIQUE KEY `residence_server_unique` (`residence_name`, `server_id`),
+                  KEY `owner_uuid_idx` (`owner_uuid`),
+                  KEY `server_id_idx` (`server_id`)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                """;
+        
+        // 创建玩家表
+        String createPlayersTable = "CREATE TABLE IF NOT EXISTS `" + JdbcResidenceStore.PLAYERS_TABLE + "` " + """
+                (
+                  `id` int(11) NOT NULL AUTO_INCREMENT,
+                  `uuid` varchar(36) NOT NULL,
+                  `player_name` varchar(16) NOT NULL,
+                  `last_seen` timestamp DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                  PRIMARY KEY (`id`),
+                  UNIQUE KEY `uuid_unique` (`uuid`),
+                  KEY `player_name_idx` (`player_name`)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                """;
+        
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(createResidencesTable);
+            stmt.execute(createPlayersTable);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,605 @@
+package cn.popcraft.residencesync.database;
+
+import cn.popcraft.residencesync.util.LoggerUtil;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.nio.ByteBuffer;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于JDBC的领地存储
+ * 
+ * 包含 MySQL 与 SQLite 共用的表结构和查询，子类只提供连接池、建表方式和各自语法的写入语句。
+ * 领地表使用 BINARY(16) 所有者UUID、指向服务器对照表的 SMALLINT 服务器ID 和 INT 坐标。
+ * 配置了只读副本时，读取通过 ReplicaRouter 路由，写入始终走主库。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public abstract class JdbcResidenceStore implements ResidenceStore {
+    
+    // 表名常量
+    static final String RESIDENCES_TABLE = "residencesync_residences";
+    static final String PLAYERS_TABLE = "residencesync_players";
+    static final String SERVERS_TABLE = "residencesync_servers";
+    
+    // 领地查询语句，服务器ID从对照表中取回字符串形式，列顺序由 mapResidence 按序号读取
+    private static final String SELECT_RESIDENCE_SQL = """
+            SELECT r.`residence_name`, r.`owner_uuid`, s.`server_id`, r.`world`,
+                   r.`x1`, r.`y1`, r.`z1`, r.`x2`, r.`y2`, r.`z2`, r.`creation_time`, r.`last_modified`
+            """ + "FROM `" + RESIDENCES_TABLE + "` r JOIN `" + SERVERS_TABLE + "` s ON s.`id` = r.`server_id` ";
+    
+    // 服务器ID对应的对照表主键
+    private final Map<String, Integer> serverKeys = new ConcurrentHashMap<>();
+    
+    protected HikariDataSource dataSource;
+    protected HikariDataSource readDataSource;
+    private ReplicaRouter replicaRouter;
+    
+    /**
+     * 创建连接池
+     */
+    protected abstract HikariDataSource createDataSource();
+    
+    /**
+     * 创建只读副本连接池，不使用副本时返回null
+     */
+    protected HikariDataSource createReadDataSource() {
+        return null;
+    }
+    
+    /**
+     * 写入后继续从主库读取相关数据的时间（毫秒），应大于副本的复制延迟
+     */
+    protected long getReadYourWritesMillis() {
+        return 0L;
+    }
+    
+    /**
+     * 创建或迁移表结构
+     */
+    protected abstract void initializeSchema(Connection conn) throws SQLException;
+    
+    /**
+     * 领地写入语句，参数顺序与 bindResidence 一致
+     */
+    protected abstract String getUpsertResidenceSql();
+    
+    /**
+     * 玩家写入语句，参数依次为UUID、名称、最后在线时间
+     */
+    protected abstract String getUpsertPlayerSql();
+    
+    /**
+     * 注册服务器ID的语句，已存在时忽略
+     */
+    protected abstract String getInsertServerSql();
+    
+    @Override
+    public void initialize() throws SQLException {
+        dataSource = createDataSource();
+        
+        try (Connection conn = getConnection()) {
+            initializeSchema(conn);
+        }
+        
+        readDataSource = createReadDataSource();
+        if (readDataSource != null) {
+            replicaRouter = new ReplicaRouter(getReadYourWritesMillis());
+        }
+    }
+    
+    @Override
+    public int getMaximumPoolSize() {
+        int size = dataSource.getMaximumPoolSize();
+        if (readDataSource != null) {
+            size += readDataSource.getMaximumPoolSize();
+        }
+        return size;
+    }
+    
+    @Override
+    public void close() {
+        if (readDataSource != null && !readDataSource.isClosed()) {
+            readDataSource.close();
+        }
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
+        }
+    }
+    
+    /**
+     * 获取主库连接
+     */
+    protected Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+    
+    /**
+     * 获取读取连接，相关键最近写入过时使用主库，否则使用只读副本
+     */
+    protected Connection getReadConnection(String... routingKeys) throws SQLException {
+        if (readDataSource == null) {
+            return getConnection();
+        }
+        
+        for (String key : routingKeys) {
+            if (replicaRouter.shouldReadPrimary(key)) {
+                return getConnection();
+            }
+        }
+        return readDataSource.getConnection();
+    }
+    
+    /**
+     * 记录写入过的路由键
+     */
+    private void markWritten(String... routingKeys) {
+        if (replicaRouter == null) {
+            return;
+        }
+        
+        for (String key : routingKeys) {
+            replicaRouter.markWritten(key);
+        }
+    }
+    
+    /**
+     * 记录领地写入
+     */
+    private void markResidenceWritten(ResidenceData residence) {
+        markWritten(ReplicaRouter.ownerKey(residence.getOwnerUuidAsUUID()),
+                ReplicaRouter.residenceKey(residence.getName(), residence.getServerId()));
+    }
+    
+    @Override
+    public void registerServer(String serverId) throws SQLException {
+        try (Connection conn = getConnection()) {
+            resolveServerKey(conn, serverId);
+        }
+    }
+    
+    @Override
+    public boolean upsertResidence(ResidenceData residence) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(getUpsertResidenceSql())) {
+            bindResidence(conn, stmt, residence);
+            boolean written = stmt.executeUpdate() > 0;
+            markResidenceWritten(residence);
+            return written;
+        }
+    }
+    
+    @Override
+    public int upsertResidences(Collection<ResidenceData> residences, int batchSize) throws SQLException {
+        if (residences.isEmpty()) {
+            return 0;
+        }
+        
+        int written = 0;
+        
+        try (Connection conn = getConnection()) {
+            registerServers(conn, residences);
+            conn.setAutoCommit(false);
+            
+            try (PreparedStatement stmt = conn.prepareStatement(getUpsertResidenceSql())) {
+                List<ResidenceData> chunk = new ArrayList<>(Math.min(batchSize, residences.size()));
+                
+                for (ResidenceData residence : residences) {
+                    chunk.add(residence);
+                    if (chunk.size() >= batchSize) {
+                        written += executeResidenceChunk(conn, stmt, chunk);
+                        chunk.clear();
+                    }
+                }
+                
+                if (!chunk.isEmpty()) {
+                    written += executeResidenceChunk(conn, stmt, chunk);
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        
+        return written;
+    }
+    
+    /**
+     * 执行并提交一块批量写入，失败时回滚该块并抛出异常，由调用方决定重试或跳过
+     * 
+     * @return 该块成功写入的领地数量
+     */
+    private int executeResidenceChunk(Connection conn, PreparedStatement stmt, List<ResidenceData> chunk) throws SQLException {
+        try {
+            for (ResidenceData residence : chunk) {
+                bindResidence(conn, stmt, residence);
+                stmt.addBatch();
+            }
+            
+            stmt.executeBatch();
+            conn.commit();
+            chunk.forEach(this::markResidenceWritten);
+            return chunk.size();
+        
+        } catch (SQLException e) {
+            conn.rollback();
+            stmt.clearBatch();
+            LoggerUtil.warning("批量写入 " + chunk.size() + " 个领地失败，已回滚: " + e.getMessage());
+            throw e;
+        }
+    }
+    
+    @Override
+    public boolean deleteResidence(String residenceName, String serverId) throws SQLException {
+        String sql = "DELETE FROM `" + RESIDENCES_TABLE + "` WHERE `residence_name` = ? "
+                + "AND `server_id` = (SELECT `id` FROM `" + SERVERS_TABLE + "` WHERE `server_id` = ?)";
+        
+        try (Connection conn = getConnection()) {
+            // 使用副本时先取出所有者，删除后该所有者的读取暂时走主库
+            UUID ownerUuid = replicaRouter != null ? findOwner(conn, residenceName, serverId) : null;
+            
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, residenceName);
+                stmt.setString(2, serverId);
+                boolean deleted = stmt.executeUpdate() > 0;
+                
+                markWritten(ReplicaRouter.residenceKey(residenceName, serverId));
+                if (ownerUuid != null) {
+                    markWritten(ReplicaRouter.ownerKey(ownerUuid));
+                }
+                return deleted;
+            }
+        }
+    }
+    
+    @Override
+    public int deleteResidences(Collection<ResidenceData> residences, int batchSize) throws SQLException {
+        if (residences.isEmpty()) {
+            return 0;
+        }
+        
+        String sql = "DELETE FROM `" + RESIDENCES_TABLE + "` WHERE `residence_name` = ? AND `server_id` = ?";
+        int deleted = 0;
+        
+        try (Connection conn = getConnection()) {
+            registerServers(conn, residences);
+            conn.setAutoCommit(false);
+            
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                List<ResidenceData> chunk = new ArrayList<>(Math.min(batchSize, residences.size()));
+                
+                for (ResidenceData residence : residences) {
+                    chunk.add(residence);
+                    if (chunk.size() >= batchSize) {
+                        deleted += executeDeleteChunk(conn, stmt, chunk);
+                        chunk.clear();
+                    }
+                }
+                
+                if (!chunk.isEmpty()) {
+                    deleted += executeDeleteChunk(conn, stmt, chunk);
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        
+        return deleted;
+    }
+    
+    /**
+     * 执行并提交一块批量删除，失败时回滚该块并抛出异常，由调用方决定重试或跳过
+     * 
+     * @return 该块成功处理的领地数量
+     */
+    private int executeDeleteChunk(Connection conn, PreparedStatement stmt, List<ResidenceData> chunk) throws SQLException {
+        try {
+            for (ResidenceData residence : chunk) {
+                stmt.setString(1, residence.getName());
+                stmt.setInt(2, resolveServerKey(conn, residence.getServerId()));
+                stmt.addBatch();
+            }
+            
+            stmt.executeBatch();
+            conn.commit();
+            chunk.forEach(this::markResidenceWritten);
+            return chunk.size();
+        
+        } catch (SQLException e) {
+            conn.rollback();
+            stmt.clearBatch();
+            LoggerUtil.warning("批量删除 " + chunk.size() + " 个领地失败，已回滚: " + e.getMessage());
+            throw e;
+        }
+    }
+    
+    /**
+     * 在主库上查询领地的所有者
+     */
+    private UUID findOwner(Connection conn, String residenceName, String serverId) throws SQLException {
+        String sql = "SELECT r.`owner_uuid` FROM `" + RESIDENCES_TABLE + "` r JOIN `" + SERVERS_TABLE + "` s ON s.`id` = r.`server_id` "
+                + "WHERE r.`residence_name` = ? AND s.`server_id` = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, residenceName);
+            stmt.setString(2, serverId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? fromBytes(rs.getBytes(1)) : null;
+            }
+        }
+    }
+    
+    @Override
+    public List<ResidenceData> getPlayerResidences(UUID playerUuid) throws SQLException {
+        String sql = SELECT_RESIDENCE_SQL + "WHERE r.`owner_uuid` = ? ORDER BY r.`creation_time` DESC";
+        List<ResidenceData> residences = new ArrayList<>();
+        
+        try (Connection conn = getReadConnection(ReplicaRouter.ownerKey(playerUuid));
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBytes(1, toBytes(playerUuid));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    residences.add(mapResidence(rs));
+                }
+            }
+        }
+        
+        return residences;
+    }
+    
+    @Override
+    public int countResidences(UUID playerUuid) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM `" + RESIDENCES_TABLE + "` WHERE `owner_uuid` = ?";
+        
+        try (Connection conn = getReadConnection(ReplicaRouter.ownerKey(playerUuid));
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBytes(1, toBytes(playerUuid));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+    
+    @Override
+    public boolean ownsResidence(UUID playerUuid, String residenceName) throws SQLException {
+        String sql = "SELECT 1 FROM `" + RESIDENCES_TABLE + "` WHERE `owner_uuid` = ? AND `residence_name` = ? LIMIT 1";
+        
+        try (Connection conn = getReadConnection(ReplicaRouter.ownerKey(playerUuid));
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBytes(1, toBytes(playerUuid));
+            stmt.setString(2, residenceName);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+    
+    @Override
+    public List<String> listResidenceNames(UUID playerUuid) throws SQLException {
+        String sql = "SELECT `residence_name` FROM `" + RESIDENCES_TABLE + "` WHERE `owner_uuid` = ? ORDER BY `residence_name`";
+        List<String> names = new ArrayList<>();
+        
+        try (Connection conn = getReadConnection(ReplicaRouter.ownerKey(playerUuid));
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBytes(1, toBytes(playerUuid));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+        }
+        
+        return names;
+    }
+    
+    @Override
+    public ResidenceData getResidence(String residenceName, String serverId) throws SQLException {
+        String sql = SELECT_RESIDENCE_SQL + "WHERE r.`residence_name` = ? AND s.`server_id` = ?";
+        
+        try (Connection conn = getReadConnection(ReplicaRouter.residenceKey(residenceName, serverId));
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, residenceName);
+            stmt.setString(2, serverId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapResidence(rs) : null;
+            }
+        }
+    }
+    
+    @Override
+    public List<ResidenceData> getServerResidences(String serverId) throws SQLException {
+        String sql = SELECT_RESIDENCE_SQL + "WHERE s.`server_id` = ?";
+        List<ResidenceData> residences = new ArrayList<>();
+        
+        // 比对结果决定要写入和删除的数据，不能使用可能落后的副本
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, serverId);
+            stmt.setFetchSize(1000);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    residences.add(mapResidence(rs));
+                }
+            }
+        }
+        
+        return residences;
+    }
+    
+    @Override
+    public List<ResidenceData> getAllResidences() throws SQLException {
+        List<ResidenceData> residences = new ArrayList<>();
+        
+        try (Connection conn = getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_RESIDENCE_SQL)) {
+            stmt.setFetchSize(1000);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    residences.add(mapResidence(rs));
+                }
+            }
+        }
+        
+        return residences;
+    }
+    
+    @Override
+    public void upsertPlayers(Collection<PlayerData> players, int batchSize) throws SQLException {
+        if (players.isEmpty()) {
+            return;
+        }
+        
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(getUpsertPlayerSql())) {
+            int pending = 0;
+            
+            for (PlayerData player : players) {
+                stmt.setString(1, player.getUuid().toString());
+                stmt.setString(2, player.getPlayerName());
+                stmt.setTimestamp(3, player.getLastSeen());
+                stmt.addBatch();
+                
+                if (++pending >= batchSize) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+        
+        for (PlayerData player : players) {
+            markWritten(ReplicaRouter.playerKey(player.getUuid()));
+        }
+    }
+    
+    @Override
+    public String getPlayerName(UUID uuid) throws SQLException {
+        String sql = "SELECT `player_name` FROM `" + PLAYERS_TABLE + "` WHERE `uuid` = ?";
+        
+        try (Connection conn = getReadConnection(ReplicaRouter.playerKey(uuid));
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, uuid.toString());
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+    
+    /**
+     * 绑定领地写入语句的参数
+     */
+    private void bindResidence(Connection conn, PreparedStatement stmt, ResidenceData residence) throws SQLException {
+        stmt.setString(1, residence.getName());
+        stmt.setBytes(2, toBytes(residence.getOwnerUuidAsUUID()));
+        stmt.setInt(3, resolveServerKey(conn, residence.getServerId()));
+        stmt.setString(4, residence.getWorld());
+        stmt.setInt(5, (int) Math.floor(residence.getX1()));
+        stmt.setInt(6, (int) Math.floor(residence.getY1()));
+        stmt.setInt(7, (int) Math.floor(residence.getZ1()));
+        stmt.setInt(8, (int) Math.floor(residence.getX2()));
+        stmt.setInt(9, (int) Math.floor(residence.getY2()));
+        stmt.setInt(10, (int) Math.floor(residence.getZ2()));
+    }
+    
+    /**
+     * 在开启批量事务之前以自动提交注册领地涉及的服务器ID，块回滚时不会撤销已缓存的主键
+     */
+    private void registerServers(Connection conn, Collection<ResidenceData> residences) throws SQLException {
+        Set<String> serverIds = new HashSet<>();
+        for (ResidenceData residence : residences) {
+            if (serverIds.add(residence.getServerId())) {
+                resolveServerKey(conn, residence.getServerId());
+            }
+        }
+    }
+    
+    /**
+     * 获取服务器ID在对照表中的主键，不存在时自动注册
+     * 
+     * 只缓存自动提交下注册的主键；在未提交的事务中注册的行可能随事务回滚，不能缓存
+     */
+    private int resolveServerKey(Connection conn, String serverId) throws SQLException {
+        Integer cached = serverKeys.get(serverId);
+        if (cached != null) {
+            return cached;
+        }
+        
+        try (PreparedStatement insert = conn.prepareStatement(getInsertServerSql())) {
+            insert.setString(1, serverId);
+            insert.executeUpdate();
+        }
+        
+        try (PreparedStatement select = conn.prepareStatement(
+                "SELECT `id` FROM `" + SERVERS_TABLE + "` WHERE `server_id` = ?")) {
+            select.setString(1, serverId);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("无法注册服务器ID: " + serverId);
+                }
+                int key = rs.getInt(1);
+                if (conn.getAutoCommit()) {
+                    serverKeys.put(serverId, key);
+                }
+                return key;
+            }
+        }
+    }
+    
+    /**
+     * 从查询结果的当前行读取领地，列顺序与 SELECT_RESIDENCE_SQL 一致
+     */
+    private ResidenceData mapResidence(ResultSet rs) throws SQLException {
+        return new ResidenceData(
+                rs.getString(1),
+                fromBytes(rs.getBytes(2)).toString(),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getInt(5),
+                rs.getInt(6),
+                rs.getInt(7),
+                rs.getInt(8),
+                rs.getInt(9),
+                rs.getInt(10),
+                rs.getTimestamp(11),
+                rs.getTimestamp(12)
+        );
+    }
+    
+    /**
+     * 将UUID转换为 BINARY(16)
+     */
+    protected static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+    
+    /**
+     * 将 BINARY(16) 转换为UUID
+     */
+    protected static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
\ No newline at end of file
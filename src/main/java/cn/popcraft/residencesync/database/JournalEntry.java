@@ -0,0 +1,154 @@
+package cn.popcraft.residencesync.database;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * 本地写入日志条目
+ * 
+ * 数据库不可用时暂存的一次写入操作：领地写入、领地删除或玩家信息写入
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class JournalEntry {
+    
+    /**
+     * 条目类型，id 写入日志文件，不能修改已有的值
+     */
+    public enum Type {
+        UPSERT_RESIDENCE(1),
+        DELETE_RESIDENCE(2),
+        UPSERT_PLAYER(3);
+        
+        private final int id;
+        
+        Type(int id) {
+            this.id = id;
+        }
+        
+        public int getId() {
+            return id;
+        }
+        
+        public static Type fromId(int id) throws IOException {
+            for (Type type : values()) {
+                if (type.id == id) {
+                    return type;
+                }
+            }
+            throw new IOException("未知的日志条目类型: " + id);
+        }
+    }
+    
+    private final Type type;
+    private final ResidenceData residence;
+    private final String residenceName;
+    private final String serverId;
+    private final PlayerData player;
+    
+    private JournalEntry(Type type, ResidenceData residence, String residenceName, String serverId, PlayerData player) {
+        this.type = type;
+        this.residence = residence;
+        this.residenceName = residenceName;
+        this.serverId = serverId;
+        this.player = player;
+    }
+    
+    public static JournalEntry upsertResidence(ResidenceData residence) {
+        return new JournalEntry(Type.UPSERT_RESIDENCE, residence, residence.getName(), residence.getServerId(), null);
+    }
+    
+    public static JournalEntry deleteResidence(String residenceName, String serverId) {
+        return new JournalEntry(Type.DELETE_RESIDENCE, null, residenceName, serverId, null);
+    }
+    
+    public static JournalEntry upsertPlayer(PlayerData player) {
+        return new JournalEntry(Type.UPSERT_PLAYER, null, null, null, player);
+    }
+    
+    /**
+     * 写入条目内容，不包含类型
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        switch (type) {
+            case UPSERT_RESIDENCE:
+                out.writeUTF(residence.getName());
+                out.writeUTF(residence.getOwnerUuid());
+                out.writeUTF(residence.getServerId());
+                out.writeUTF(residence.getWorld());
+                out.writeDouble(residence.getX1());
+                out.writeDouble(residence.getY1());
+                out.writeDouble(residence.getZ1());
+                out.writeDouble(residence.getX2());
+                out.writeDouble(residence.getY2());
+                out.writeDouble(residence.getZ2());
+                break;
+            case DELETE_RESIDENCE:
+                out.writeUTF(residenceName);
+                out.writeUTF(serverId);
+                break;
+            case UPSERT_PLAYER:
+                out.writeLong(player.getUuid().getMostSignificantBits());
+                out.writeLong(player.getUuid().getLeastSignificantBits());
+                out.writeUTF(player.getPlayerName());
+                out.writeLong(player.getLastSeen() != null ? player.getLastSeen().getTime() : 0L);
+                break;
+        }
+    }
+    
+    /**
+     * 读取指定类型的条目内容
+     */
+    static JournalEntry readFrom(Type type, DataInputStream in) throws IOException {
+        switch (type) {
+            case UPSERT_RESIDENCE:
+                return upsertResidence(new ResidenceData(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                        in.readDouble(), in.readDouble(), in.readDouble(),
+                        in.readDouble(), in.readDouble(), in.readDouble(),
+                        null, null));
+            case DELETE_RESIDENCE:
+                return deleteResidence(in.readUTF(), in.readUTF());
+            default:
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                String playerName = in.readUTF();
+                long lastSeen = in.readLong();
+                return upsertPlayer(new PlayerData(uuid, playerName, lastSeen > 0 ? new Timestamp(lastSeen) : null));
+        }
+    }
+    
+    /**
+     * 写入目标的键，同一领地或同一玩家的条目键相同；领地名称不区分大小写，与数据库排序规则一致
+     */
+    public String getKey() {
+        if (type == Type.UPSERT_PLAYER) {
+            return "player:" + player.getUuid();
+        }
+        return "residence:" + serverId + ':' + residenceName.toLowerCase(Locale.ROOT);
+    }
+    
+    // Getters
+    public Type getType() {
+        return type;
+    }
+    
+    public ResidenceData getResidence() {
+        return residence;
+    }
+    
+    public String getResidenceName() {
+        return residenceName;
+    }
+    
+    public String getServerId() {
+        return serverId;
+    }
+    
+    public PlayerData getPlayer() {
+        return player;
+    }
+}
\ No newline at end of file
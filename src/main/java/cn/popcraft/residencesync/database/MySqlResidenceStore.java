@@ -0,0 +1,147 @@
+package cn.popcraft.residencesync.database;
+
+import cn.popcraft.residencesync.config.PluginConfig;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * MySQL 领地存储
+ * 
+ * 多个子服共享同一个数据库，表结构通过 SchemaMigrator 按版本迁移。
+ * 启用 database.replica 后，读取查询使用只读副本上的独立连接池。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class MySqlResidenceStore extends JdbcResidenceStore {
+    
+    // 领地写入语句
+    private static final String UPSERT_RESIDENCE_SQL = "INSERT INTO `" + RESIDENCES_TABLE + "` " + """
+            (`residence_name`, `owner_uuid`, `server_id`, `world`, `x1`, `y1`, `z1`, `x2`, `y2`, `z2`)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+            `owner_uuid` = VALUES(`owner_uuid`),
+            `world` = VALUES(`world`),
+            `x1` = VALUES(`x1`),
+            `y1` = VALUES(`y1`),
+            `z1` = VALUES(`z1`),
+            `x2` = VALUES(`x2`),
+            `y2` = VALUES(`y2`),
+            `z2` = VALUES(`z2`),
+            `last_modified` = CURRENT_TIMESTAMP
+            """;
+    
+    // 玩家写入语句，last_seen 使用事件发生时的时间
+    private static final String UPSERT_PLAYER_SQL = "INSERT INTO `" + PLAYERS_TABLE + "` " + """
+            (`uuid`, `player_name`, `last_seen`)
+            VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+            `player_name` = VALUES(`player_name`),
+            `last_seen` = VALUES(`last_seen`)
+            """;
+    
+    private static final String INSERT_SERVER_SQL = "INSERT IGNORE INTO `" + SERVERS_TABLE + "` (`server_id`) VALUES (?)";
+    
+    private final PluginConfig config;
+    
+    public MySqlResidenceStore(PluginConfig config) {
+        this.config = config;
+    }
+    
+    @Override
+    public String getName() {
+        return config.isReplicaEnabled() ? "MySQL (只读副本)" : "MySQL";
+    }
+    
+    @Override
+    protected HikariDataSource createDataSource() {
+        HikariConfig hikariConfig = new HikariConfig();
+        
+        // 数据库连接配置
+        hikariConfig.setJdbcUrl(String.format("jdbc:mysql://%s:%d/%s?useSSL=false&serverTimezone=UTC&characterEncoding=utf8&rewriteBatchedStatements=true",
+                config.getDatabaseHost(),
+                config.getDatabasePort(),
+                config.getDatabaseName()));
+        
+        hikariConfig.setUsername(config.getDatabaseUsername());
+        hikariConfig.setPassword(config.getDatabasePassword());
+        
+        // 连接池配置
+        int maximumPoolSize = Math.max(1, config.getDatabaseMaximumPoolSize());
+        hikariConfig.setPoolName("ResidenceSync-Pool");
+        hikariConfig.setMaximumPoolSize(maximumPoolSize);
+        hikariConfig.setMinimumIdle(Math.min(maximumPoolSize, config.getDatabaseMinimumIdle()));
+        hikariConfig.setConnectionTimeout(30000);
+        hikariConfig.setIdleTimeout(600000);
+        hikariConfig.setMaxLifetime(1800000);
+        hikariConfig.setLeakDetectionThreshold(60000);
+        
+        // 数据库驱动
+        hikariConfig.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        
+        return new HikariDataSource(hikariConfig);
+    }
+    
+    @Override
+    protected HikariDataSource createReadDataSource() {
+        if (!config.isReplicaEnabled()) {
+            return null;
+        }
+        
+        HikariConfig hikariConfig = new HikariConfig();
+        
+        hikariConfig.setJdbcUrl(String.format("jdbc:mysql://%s:%d/%s?useSSL=false&serverTimezone=UTC&characterEncoding=utf8",
+                config.getReplicaHost(),
+                config.getReplicaPort(),
+                config.getDatabaseName()));
+        
+        hikariConfig.setUsername(config.getReplicaUsername());
+        hikariConfig.setPassword(config.getReplicaPassword());
+        
+        int maximumPoolSize = Math.max(1, config.getReplicaMaximumPoolSize());
+        hikariConfig.setPoolName("ResidenceSync-Replica");
+        hikariConfig.setMaximumPoolSize(maximumPoolSize);
+        hikariConfig.setMinimumIdle(Math.min(maximumPoolSize, config.getDatabaseMinimumIdle()));
+        hikariConfig.setReadOnly(true);
+        hikariConfig.setConnectionTimeout(30000);
+        hikariConfig.setIdleTimeout(600000);
+        hikariConfig.setMaxLifetime(1800000);
+        
+        hikariConfig.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        
+        return new HikariDataSource(hikariConfig);
+    }
+    
+    @Override
+    protected long getReadYourWritesMillis() {
+        return Math.max(0, config.getReplicaReadYourWritesMillis());
+    }
+    
+    @Override
+    protected void initializeSchema(Connection conn) throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(List.of(
+                new InitialSchemaMigration(),
+                new CompactResidencesMigration(config.getDatabaseBatchSize())
+        ));
+        migrator.migrate(conn);
+    }
+    
+    @Override
+    protected String getUpsertResidenceSql() {
+        return UPSERT_RESIDENCE_SQL;
+    }
+    
+    @Override
+    protected String getUpsertPlayerSql() {
+        return UPSERT_PLAYER_SQL;
+    }
+    
+    @Override
+    protected String getInsertServerSql() {
+        return INSERT_SERVER_SQL;
+    }
+}
\ No newline at end of file
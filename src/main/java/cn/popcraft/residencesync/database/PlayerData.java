@@ -0,0 +1,38 @@
+package cn.popcraft.residencesync.database;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * 玩家数据类
+ * 
+ * 表示待写入玩家表的玩家名称和最后在线时间
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class PlayerData {
+    
+    private final UUID uuid;
+    private final String playerName;
+    private final Timestamp lastSeen;
+    
+    public PlayerData(UUID uuid, String playerName, Timestamp lastSeen) {
+        this.uuid = uuid;
+        this.playerName = playerName;
+        this.lastSeen = lastSeen;
+    }
+    
+    // Getters
+    public UUID getUuid() {
+        return uuid;
+    }
+    
+    public String getPlayerName() {
+        return playerName;
+    }
+    
+    public Timestamp getLastSeen() {
+        return lastSeen;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package cn.popcraft.residencesync.database;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 只读副本路由
+ * 
+ * 记录最近写入过的所有者、领地和玩家，在复制延迟窗口内对这些键的读取仍走主库，
+ * 保证玩家能立即读到自己刚刚的修改；其余读取走只读副本。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class ReplicaRouter {
+    
+    // 记录数超过该值时清理过期条目
+    private static final int PRUNE_THRESHOLD = 1024;
+    
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+    private final long readYourWritesMillis;
+    
+    public ReplicaRouter(long readYourWritesMillis) {
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+    
+    /**
+     * 所有者路由键
+     */
+    public static String ownerKey(UUID ownerUuid) {
+        return "owner:" + ownerUuid;
+    }
+    
+    /**
+     * 领地路由键
+     */
+    public static String residenceKey(String residenceName, String serverId) {
+        return "residence:" + serverId + ':' + residenceName.toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * 玩家路由键
+     */
+    public static String playerKey(UUID playerUuid) {
+        return "player:" + playerUuid;
+    }
+    
+    /**
+     * 记录一次写入
+     */
+    public void markWritten(String key) {
+        long now = System.currentTimeMillis();
+        recentWrites.put(key, now);
+        
+        if (recentWrites.size() > PRUNE_THRESHOLD) {
+            recentWrites.values().removeIf(writtenAt -> now - writtenAt > readYourWritesMillis);
+        }
+    }
+    
+    /**
+     * 检查读取是否需要走主库
+     */
+    public boolean shouldReadPrimary(String key) {
+        Long writtenAt = recentWrites.get(key);
+        if (writtenAt == null) {
+            return false;
+        }
+        
+        if (System.currentTimeMillis() - writtenAt > readYourWritesMillis) {
+            recentWrites.remove(key, writtenAt);
+            return false;
+        }
+        return true;
+    }
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package cn.popcraft.residencesync.database;
 
 import java.sql.Timestamp;
+import java.util.Locale;
 import java.util.UUID;
 
 /**
@@ -128,6 +129,24 @@ public class ResidenceData {
         return width * height * length;
     }
     
+    /**
+     * 计算存储内容的哈希，用于全量同步时比对
+     * 
+     * 只包含数据库中保存的所有者、世界和取整后的坐标，名称和服务器ID由比对的键决定
+     */
+    public long getContentHash() {
+        long hash = 1125899906842597L;
+        hash = 31 * hash + ownerUuid.toLowerCase(Locale.ROOT).hashCode();
+        hash = 31 * hash + world.hashCode();
+        hash = 31 * hash + (long) Math.floor(x1);
+        hash = 31 * hash + (long) Math.floor(y1);
+        hash = 31 * hash + (long) Math.floor(z1);
+        hash = 31 * hash + (long) Math.floor(x2);
+        hash = 31 * hash + (long) Math.floor(y2);
+        hash = 31 * hash + (long) Math.floor(z2);
+        return hash;
+    }
+    
     /**
      * 转换为字符串表示
      */
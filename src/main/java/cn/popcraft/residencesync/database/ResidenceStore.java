@@ -0,0 +1,115 @@
+package cn.popcraft.residencesync.database;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 领地存储后端
+ * 
+ * 同步的存储接口，所有方法都可能阻塞，由 DatabaseManager 在数据库执行器上调用并包装为异步操作。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public interface ResidenceStore {
+    
+    /**
+     * 存储后端名称，用于日志和状态显示
+     */
+    String getName();
+    
+    /**
+     * 建立连接并初始化表结构
+     */
+    void initialize() throws SQLException;
+    
+    /**
+     * 最大并发连接数，数据库执行器的线程数与其一致
+     */
+    int getMaximumPoolSize();
+    
+    /**
+     * 关闭连接
+     */
+    void close();
+    
+    /**
+     * 注册服务器ID
+     */
+    void registerServer(String serverId) throws SQLException;
+    
+    /**
+     * 添加或更新领地
+     */
+    boolean upsertResidence(ResidenceData residence) throws SQLException;
+    
+    /**
+     * 分块批量添加或更新领地，每块单独提交
+     * 
+     * 某一块失败时回滚该块并抛出异常，之前的块已经提交，后续的块不再执行
+     * 
+     * @return 成功写入的领地数量
+     */
+    int upsertResidences(Collection<ResidenceData> residences, int batchSize) throws SQLException;
+    
+    /**
+     * 删除领地
+     */
+    boolean deleteResidence(String residenceName, String serverId) throws SQLException;
+    
+    /**
+     * 分块批量删除领地，每块单独提交
+     * 
+     * 某一块失败时回滚该块并抛出异常，之前的块已经提交，后续的块不再执行
+     * 
+     * @return 成功处理的领地数量
+     */
+    int deleteResidences(Collection<ResidenceData> residences, int batchSize) throws SQLException;
+    
+    /**
+     * 获取玩家的所有领地，按创建时间倒序
+     */
+    List<ResidenceData> getPlayerResidences(UUID playerUuid) throws SQLException;
+    
+    /**
+     * 获取玩家拥有的领地数量
+     */
+    int countResidences(UUID playerUuid) throws SQLException;
+    
+    /**
+     * 检查玩家是否拥有指定名称的领地，名称不区分大小写
+     */
+    boolean ownsResidence(UUID playerUuid, String residenceName) throws SQLException;
+    
+    /**
+     * 获取玩家拥有的领地名称，按名称排序
+     */
+    List<String> listResidenceNames(UUID playerUuid) throws SQLException;
+    
+    /**
+     * 根据名称和服务器ID获取领地
+     */
+    ResidenceData getResidence(String residenceName, String serverId) throws SQLException;
+    
+    /**
+     * 获取指定服务器上的全部领地，用于全量同步时比对，始终从主库读取
+     */
+    List<ResidenceData> getServerResidences(String serverId) throws SQLException;
+    
+    /**
+     * 获取所有领地
+     */
+    List<ResidenceData> getAllResidences() throws SQLException;
+    
+    /**
+     * 分块批量更新玩家信息
+     */
+    void upsertPlayers(Collection<PlayerData> players, int batchSize) throws SQLException;
+    
+    /**
+     * 获取玩家名称
+     */
+    String getPlayerName(UUID uuid) throws SQLException;
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package cn.popcraft.residencesync.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 数据库结构迁移
+ * 
+ * 每个迁移对应一个递增的版本号，由 SchemaMigrator 按版本顺序执行且只执行一次
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public interface SchemaMigration {
+    
+    /**
+     * 迁移版本号
+     */
+    int getVersion();
+    
+    /**
+     * 迁移说明
+     */
+    String getDescription();
+    
+    /**
+     * 执行迁移
+     */
+    void migrate(Connection conn) throws SQLException;
+}
\ No newline at end of file
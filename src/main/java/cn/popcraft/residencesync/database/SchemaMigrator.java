@@ -0,0 +1,118 @@
+package cn.popcraft.residencesync.database;
+
+import cn.popcraft.residencesync.util.LoggerUtil;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 数据库结构迁移执行器
+ * 
+ * 在 residencesync_schema_version 表中记录已执行的迁移版本，启动时执行所有未执行的迁移。
+ * 多个子服同时启动时通过 MySQL 命名锁保证同一时间只有一个子服执行迁移。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class SchemaMigrator {
+    
+    private static final String SCHEMA_VERSION_TABLE = "residencesync_schema_version";
+    private static final String LOCK_NAME = "residencesync_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 300;
+    
+    private final List<SchemaMigration> migrations;
+    
+    public SchemaMigrator(List<SchemaMigration> migrations) {
+        this.migrations = new ArrayList<>(migrations);
+        this.migrations.sort(Comparator.comparingInt(SchemaMigration::getVersion));
+    }
+    
+    /**
+     * 执行所有未执行的迁移
+     */
+    public void migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS `" + SCHEMA_VERSION_TABLE + "` " + """
+                    (
+                      `version` int NOT NULL,
+                      `description` varchar(255) NOT NULL,
+                      `applied_at` timestamp DEFAULT CURRENT_TIMESTAMP,
+                      PRIMARY KEY (`version`)
+                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+                    """);
+        }
+        
+        acquireLock(conn);
+        try {
+            int currentVersion = getCurrentVersion(conn);
+            
+            for (SchemaMigration migration : migrations) {
+                if (migration.getVersion() <= currentVersion) {
+                    continue;
+                }
+                
+                LoggerUtil.info("执行数据库迁移 V" + migration.getVersion() + ": " + migration.getDescription());
+                migration.migrate(conn);
+                recordVersion(conn, migration);
+                currentVersion = migration.getVersion();
+            }
+            
+            LoggerUtil.info("数据库结构版本: V" + currentVersion);
+        
+        } finally {
+            releaseLock(conn);
+        }
+    }
+    
+    /**
+     * 获取已执行的最高迁移版本
+     */
+    private int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(`version`) FROM `" + SCHEMA_VERSION_TABLE + "`")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
+    /**
+     * 记录已执行的迁移
+     */
+    private void recordVersion(Connection conn, SchemaMigration migration) throws SQLException {
+        String sql = "INSERT INTO `" + SCHEMA_VERSION_TABLE + "` (`version`, `description`) VALUES (?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, migration.getVersion());
+            stmt.setString(2, migration.getDescription());
+            stmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * 获取迁移锁
+     */
+    private void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("等待其他服务器完成数据库迁移超时");
+                }
+            }
+        }
+    }
+    
+    /**
+     * 释放迁移锁
+     */
+    private void releaseLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            LoggerUtil.warning("释放数据库迁移锁失败: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
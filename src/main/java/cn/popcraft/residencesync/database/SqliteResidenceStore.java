@@ -0,0 +1,135 @@
+package cn.popcraft.residencesync.database;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * SQLite 领地存储
+ * 
+ * 单服部署使用的嵌入式文件数据库，不需要单独的数据库服务器，查询没有网络往返。
+ * 使用服务端自带的 sqlite-jdbc 驱动；SQLite 同一时间只允许一个写入者，因此连接池只有一个连接。
+ * 领地名称使用 NOCASE 排序规则，与 MySQL 的 utf8mb4_unicode_ci 一样不区分大小写。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class SqliteResidenceStore extends JdbcResidenceStore {
+    
+    // 当前时间的毫秒时间戳，与 sqlite-jdbc 写入 Timestamp 的格式一致
+    private static final String NOW_MILLIS = "(CAST(strftime('%s', 'now') AS INTEGER) * 1000)";
+    
+    // 领地写入语句
+    private static final String UPSERT_RESIDENCE_SQL = "INSERT INTO `" + RESIDENCES_TABLE + "` " + """
+            (`residence_name`, `owner_uuid`, `server_id`, `world`, `x1`, `y1`, `z1`, `x2`, `y2`, `z2`)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (`residence_name`, `server_id`) DO UPDATE SET
+            `owner_uuid` = excluded.`owner_uuid`,
+            `world` = excluded.`world`,
+            `x1` = excluded.`x1`,
+            `y1` = excluded.`y1`,
+            `z1` = excluded.`z1`,
+            `x2` = excluded.`x2`,
+            `y2` = excluded.`y2`,
+            `z2` = excluded.`z2`,
+            """ + "`last_modified` = " + NOW_MILLIS;
+    
+    // 玩家写入语句，last_seen 使用事件发生时的时间
+    private static final String UPSERT_PLAYER_SQL = "INSERT INTO `" + PLAYERS_TABLE + "` " + """
+            (`uuid`, `player_name`, `last_seen`)
+            VALUES (?, ?, ?)
+            ON CONFLICT (`uuid`) DO UPDATE SET
+            `player_name` = excluded.`player_name`,
+            `last_seen` = excluded.`last_seen`
+            """;
+    
+    private static final String INSERT_SERVER_SQL = "INSERT OR IGNORE INTO `" + SERVERS_TABLE + "` (`server_id`) VALUES (?)";
+    
+    private final File databaseFile;
+    
+    public SqliteResidenceStore(File databaseFile) {
+        this.databaseFile = databaseFile;
+    }
+    
+    @Override
+    public String getName() {
+        return "SQLite";
+    }
+    
+    @Override
+    protected HikariDataSource createDataSource() {
+        HikariConfig hikariConfig = new HikariConfig();
+        
+        hikariConfig.setJdbcUrl("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        hikariConfig.setDriverClassName("org.sqlite.JDBC");
+        hikariConfig.setPoolName("ResidenceSync-SQLite");
+        hikariConfig.setMaximumPoolSize(1);
+        hikariConfig.setMinimumIdle(1);
+        hikariConfig.setConnectionTimeout(30000);
+        hikariConfig.setConnectionInitSql("PRAGMA journal_mode=WAL");
+        
+        return new HikariDataSource(hikariConfig);
+    }
+    
+    @Override
+    protected void initializeSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS `" + SERVERS_TABLE + "` " + """
+                    (
+                      `id` INTEGER PRIMARY KEY AUTOINCREMENT,
+                      `server_id` TEXT NOT NULL UNIQUE
+                    )
+                    """);
+            
+            stmt.execute("CREATE TABLE IF NOT EXISTS `" + RESIDENCES_TABLE + "` " + """
+                    (
+                      `id` INTEGER PRIMARY KEY AUTOINCREMENT,
+                      `residence_name` TEXT NOT NULL COLLATE NOCASE,
+                      `owner_uuid` BLOB NOT NULL,
+                      `server_id` INTEGER NOT NULL,
+                      `world` TEXT NOT NULL,
+                      `x1` INTEGER NOT NULL,
+                      `y1` INTEGER NOT NULL,
+                      `z1` INTEGER NOT NULL,
+                      `x2` INTEGER NOT NULL,
+                      `y2` INTEGER NOT NULL,
+                      `z2` INTEGER NOT NULL,
+                    """ + "`creation_time` INTEGER DEFAULT " + NOW_MILLIS + ", "
+                    + "`last_modified` INTEGER DEFAULT " + NOW_MILLIS + ", "
+                    + "UNIQUE (`residence_name`, `server_id`))");
+            
+            stmt.execute("CREATE INDEX IF NOT EXISTS `owner_uuid_idx` ON `" + RESIDENCES_TABLE + "` (`owner_uuid`)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS `server_id_idx` ON `" + RESIDENCES_TABLE + "` (`server_id`)");
+            
+            stmt.execute("CREATE TABLE IF NOT EXISTS `" + PLAYERS_TABLE + "` " + """
+                    (
+                      `id` INTEGER PRIMARY KEY AUTOINCREMENT,
+                      `uuid` TEXT NOT NULL UNIQUE,
+                      `player_name` TEXT NOT NULL COLLATE NOCASE,
+                      `last_seen` INTEGER
+                    )
+                    """);
+            
+            stmt.execute("CREATE INDEX IF NOT EXISTS `player_name_idx` ON `" + PLAYERS_TABLE + "` (`player_name`)");
+        }
+    }
+    
+    @Override
+    protected String getUpsertResidenceSql() {
+        return UPSERT_RESIDENCE_SQL;
+    }
+    
+    @Override
+    protected String getUpsertPlayerSql() {
+        return UPSERT_PLAYER_SQL;
+    }
+    
+    @Override
+    protected String getInsertServerSql() {
+        return INSERT_SERVER_SQL;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,307 @@
+package cn.popcraft.residencesync.database;
+
+import cn.popcraft.residencesync.util.LoggerUtil;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 本地写入日志
+ * 
+ * 数据库不可用时的只追加日志文件，每条记录为 [长度][CRC32][类型][内容]。
+ * 写入通过 FileChannel 追加，每累计 fsyncBatchSize 条或由定时任务调用 sync() 时才执行一次 fsync，
+ * 多次写入共享同一次磁盘同步。打开或回放时遇到写了一半或损坏的记录，会把它及其之后的内容移到隔离文件，
+ * 日志在该记录处截断，之后的记录无法再按长度定位。
+ * 日志全部回放到数据库后截断为空文件。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class WriteJournal {
+    
+    // 记录头：长度和CRC32
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    
+    private final File file;
+    private final int fsyncBatchSize;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private final ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream(256);
+    
+    private FileChannel channel;
+    private long size;
+    private int pendingEntries;
+    private int unsyncedEntries;
+    
+    public WriteJournal(File file, int fsyncBatchSize) {
+        this.file = file;
+        this.fsyncBatchSize = Math.max(1, fsyncBatchSize);
+    }
+    
+    /**
+     * 打开日志文件，统计未回放的条目
+     */
+    public synchronized void open() throws IOException {
+        channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        size = channel.size();
+        
+        // 扫描已有记录，截掉不完整或损坏的尾部
+        long position = 0;
+        int entries = 0;
+        while (true) {
+            Batch batch = read(position, 1024);
+            if (batch.getEntries().isEmpty()) {
+                break;
+            }
+            entries += batch.getEntries().size();
+            position = batch.getEndPosition();
+        }
+        
+        quarantine(position);
+        pendingEntries = entries;
+        
+        if (pendingEntries > 0) {
+            LoggerUtil.info("本地写入日志中有 " + pendingEntries + " 条待回放的记录");
+        }
+    }
+    
+    /**
+     * 追加条目，累计到 fsyncBatchSize 条时同步到磁盘
+     */
+    public synchronized void append(Collection<JournalEntry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        
+        ByteBuffer buffer = encode(entries);
+        long position = size;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        size = position;
+        pendingEntries += entries.size();
+        unsyncedEntries += entries.size();
+        
+        if (unsyncedEntries >= fsyncBatchSize) {
+            sync();
+        }
+    }
+    
+    /**
+     * 日志中还有未回放的条目时追加，保证写入顺序不早于已记录的条目
+     * 
+     * @return 是否已追加
+     */
+    public synchronized boolean appendIfPending(Collection<JournalEntry> entries) throws IOException {
+        if (size == 0) {
+            return false;
+        }
+        append(entries);
+        return true;
+    }
+    
+    /**
+     * 将已追加的条目同步到磁盘
+     */
+    public synchronized void sync() throws IOException {
+        if (unsyncedEntries > 0 && channel != null) {
+            channel.force(false);
+            unsyncedEntries = 0;
+        }
+    }
+    
+    /**
+     * 从指定位置读取最多 maxEntries 条记录，遇到不完整或损坏的记录时停止
+     * 
+     * 停止位置之后还有内容时 Batch.hasUnreadableRecord() 返回true，需要调用 quarantine() 移除
+     */
+    public synchronized Batch read(long position, int maxEntries) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        
+        while (entries.size() < maxEntries && position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            
+            if (length <= 0 || length > MAX_RECORD_SIZE || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + HEADER_SIZE);
+            
+            CRC32 crc = new CRC32();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()))) {
+                entries.add(JournalEntry.readFrom(JournalEntry.Type.fromId(in.readUnsignedByte()), in));
+            } catch (IOException e) {
+                break;
+            }
+            position += HEADER_SIZE + length;
+        }
+        
+        return new Batch(entries, position, entries.size() < maxEntries && position < size);
+    }
+    
+    /**
+     * 将指定位置之后无法读取的内容复制到隔离文件，并在该位置截断日志
+     */
+    public synchronized void quarantine(long position) throws IOException {
+        if (position >= size) {
+            return;
+        }
+        
+        File target = new File(file.getParentFile(), file.getName() + ".corrupt-" + System.currentTimeMillis());
+        try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long copied = 0;
+            while (copied < size - position) {
+                copied += channel.transferTo(position + copied, size - position - copied, out);
+            }
+            out.force(true);
+        }
+        
+        LoggerUtil.warning("本地写入日志在位置 " + position + " 处有 " + (size - position)
+                + " 字节无法读取的记录，已移到 " + target.getName() + " 并截断");
+        channel.truncate(position);
+        channel.force(true);
+        size = position;
+    }
+    
+    /**
+     * 回放完成后清空日志；回放期间有新条目追加时不清空
+     * 
+     * @param position 已回放到的位置
+     * @return 是否已清空
+     */
+    public synchronized boolean completeReplay(long position) throws IOException {
+        if (position != size) {
+            return false;
+        }
+        
+        channel.truncate(0);
+        channel.force(true);
+        size = 0;
+        pendingEntries = 0;
+        unsyncedEntries = 0;
+        return true;
+    }
+    
+    /**
+     * 检查是否有未回放的条目
+     */
+    public synchronized boolean hasPending() {
+        return size > 0;
+    }
+    
+    /**
+     * 获取未回放的条目数量
+     */
+    public synchronized int getPendingEntries() {
+        return pendingEntries;
+    }
+    
+    /**
+     * 同步并关闭日志文件
+     */
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        
+        try {
+            sync();
+            channel.close();
+        } catch (IOException e) {
+            LoggerUtil.severe("关闭本地写入日志失败: " + e.getMessage(), e);
+        }
+        channel = null;
+    }
+    
+    /**
+     * 将条目编码为连续的记录
+     */
+    private ByteBuffer encode(Collection<JournalEntry> entries) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(entries.size());
+        int total = 0;
+        
+        for (JournalEntry entry : entries) {
+            encodeBuffer.reset();
+            DataOutputStream out = new DataOutputStream(encodeBuffer);
+            out.writeByte(entry.getType().getId());
+            entry.writeTo(out);
+            out.flush();
+            
+            byte[] payload = encodeBuffer.toByteArray();
+            payloads.add(payload);
+            total += HEADER_SIZE + payload.length;
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        CRC32 crc = new CRC32();
+        for (byte[] payload : payloads) {
+            crc.reset();
+            crc.update(payload);
+            buffer.putInt(payload.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(payload);
+        }
+        buffer.flip();
+        return buffer;
+    }
+    
+    /**
+     * 从指定位置读满缓冲区
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("本地写入日志意外结束");
+            }
+            position += read;
+        }
+    }
+    
+    /**
+     * 一次读取的日志条目及其结束位置
+     */
+    public static class Batch {
+        private final List<JournalEntry> entries;
+        private final long endPosition;
+        private final boolean unreadableRecord;
+        
+        private Batch(List<JournalEntry> entries, long endPosition, boolean unreadableRecord) {
+            this.entries = entries;
+            this.endPosition = endPosition;
+            this.unreadableRecord = unreadableRecord;
+        }
+        
+        public List<JournalEntry> getEntries() {
+            return entries;
+        }
+        
+        public long getEndPosition() {
+            return endPosition;
+        }
+        
+        /**
+         * 是否因为不完整或损坏的记录而提前停止
+         */
+        public boolean hasUnreadableRecord() {
+            return unreadableRecord;
+        }
+    }
+}
\ No newline at end of file
@@ -1,5 +1,7 @@
 package cn.popcraft.residencesync.listener;
 
+import cn.popcraft.residencesync.placeholder.PlaceholderSnapshotStore;
+import cn.popcraft.residencesync.service.CrossServerService;
 import cn.popcraft.residencesync.service.ResidenceService;
 import cn.popcraft.residencesync.util.LoggerUtil;
 import org.bukkit.entity.Player;
@@ -37,8 +39,13 @@ public class PlayerListener implements Listener {
         Player player = event.getPlayer();
         
         // 更新玩家信息到数据库
-        residenceService.updatePlayerInfo(player)
-                .thenRun(() -> plugin.getLogger().info("已更新玩家信息: " + player.getName()));
+        residenceService.updatePlayerInfo(player);
+        
+        // 广播玩家所在的子服
+        CrossServerService crossServerService = plugin.getCrossServerService();
+        if (crossServerService != null) {
+            crossServerService.publishPresence(player, true);
+        }
         
         // 检查玩家是否有等待中的跨服传送
         checkPendingCrossServerTeleports(player);
@@ -56,6 +63,17 @@ public class PlayerListener implements Listener {
         
         // 更新玩家最后在线时间
         residenceService.updatePlayerInfo(player);
+        
+        CrossServerService crossServerService = plugin.getCrossServerService();
+        if (crossServerService != null) {
+            crossServerService.publishPresence(player, false);
+        }
+        
+        // 移除玩家的占位符快照
+        PlaceholderSnapshotStore placeholderSnapshots = plugin.getPlaceholderSnapshots();
+        if (placeholderSnapshots != null) {
+            placeholderSnapshots.remove(player.getUniqueId());
+        }
     }
     
     /**
@@ -164,12 +182,11 @@ public class PlayerListener implements Listener {
     }
     
     /**
-     * 检查等待中的跨服传送
+     * 检查等待中的跨服传送，落点已由本服提前准备好
      */
     private void checkPendingCrossServerTeleports(Player player) {
-        // 这里应该检查是否有等待中的跨服传送请求
-        // 实际实现需要与跨服服务配合
-        
-        LoggerUtil.debug("检查玩家 " + player.getName() + " 的等待传送");
+        if (plugin.getTeleportService().completeArrival(player)) {
+            LoggerUtil.debug("玩家 " + player.getName() + " 已传送到跨服落点");
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,220 @@
+package cn.popcraft.residencesync.messaging;
+
+import cn.popcraft.residencesync.util.LoggerUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.*;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * BungeeCord 插件消息传输
+ * 
+ * 通过 BungeeCord 频道的 Forward / ForwardToPlayer 子频道转发消息。
+ * 插件消息必须借助一个在线玩家的连接发送，没有在线玩家时消息留在队列中，等有玩家加入后再发送。
+ * 每个目标子服各有一个发送队列（发往玩家的消息共用一个队列），调用方线程只负责编码入队，
+ * 主线程每tick按轮询方式从各队列取出最多 maxMessagesPerTick 条发送，突发消息不会集中占用一个tick。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class BungeeMessageTransport implements MessageTransport, PluginMessageListener {
+    
+    private static final String BUNGEE_CHANNEL = "BungeeCord";
+    // 转发时使用的自定义子频道
+    private static final String SUBCHANNEL = "ResidenceSync";
+    // 插件消息的最大长度
+    private static final int MAX_MESSAGE_SIZE = 32766;
+    // ForwardToPlayer 消息共用的发送队列
+    private static final String PLAYER_QUEUE = "@player";
+    
+    private final cn.popcraft.residencesync.ResidenceSyncPlugin plugin;
+    private final int maxMessagesPerTick;
+    private final int maxQueuedPerServer;
+    private final Map<String, SendQueue> sendQueues = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    
+    private Consumer<byte[]> receiver;
+    private BukkitTask drainTask;
+    
+    public BungeeMessageTransport(cn.popcraft.residencesync.ResidenceSyncPlugin plugin) {
+        this.plugin = plugin;
+        this.maxMessagesPerTick = Math.max(1, plugin.getPluginConfig().getMessagingMaxMessagesPerTick());
+        this.maxQueuedPerServer = Math.max(1, plugin.getPluginConfig().getMessagingMaxQueuedPerServer());
+    }
+    
+    @Override
+    public String getName() {
+        return "BungeeCord";
+    }
+    
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        
+        Bukkit.getMessenger().registerOutgoingPluginChannel(plugin, BUNGEE_CHANNEL);
+        Bukkit.getMessenger().registerIncomingPluginChannel(plugin, BUNGEE_CHANNEL, this);
+        
+        drainTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                drain(maxMessagesPerTick);
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+    
+    @Override
+    public void stop() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+        
+        // 关闭前尽量发出剩余消息
+        if (Bukkit.isPrimaryThread()) {
+            drain(Integer.MAX_VALUE);
+        }
+        
+        Bukkit.getMessenger().unregisterOutgoingPluginChannel(plugin, BUNGEE_CHANNEL);
+        Bukkit.getMessenger().unregisterIncomingPluginChannel(plugin, BUNGEE_CHANNEL, this);
+    }
+    
+    @Override
+    public void send(String targetServer, byte[] payload) {
+        enqueue(targetServer, encode("Forward", targetServer, payload));
+    }
+    
+    @Override
+    public void sendToPlayer(String playerName, byte[] payload) {
+        enqueue(PLAYER_QUEUE, encode("ForwardToPlayer", playerName, payload));
+    }
+    
+    /**
+     * 编码 BungeeCord 转发消息：子频道、目标、自定义子频道、内容长度和内容
+     */
+    private byte[] encode(String forwardType, String target, byte[] payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(forwardType);
+            out.writeUTF(target);
+            out.writeUTF(SUBCHANNEL);
+            out.writeShort(payload.length);
+            out.write(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * 将编码好的插件消息放入目标的发送队列，队列已满时丢弃最旧的消息
+     */
+    private void enqueue(String queueKey, byte[] message) {
+        if (message.length > MAX_MESSAGE_SIZE) {
+            droppedCount.incrementAndGet();
+            LoggerUtil.warning("跨服消息过大（" + message.length + " 字节），已丢弃");
+            return;
+        }
+        
+        SendQueue queue = sendQueues.computeIfAbsent(queueKey, key -> new SendQueue());
+        queue.messages.offer(message);
+        queuedCount.incrementAndGet();
+        
+        if (queue.size.incrementAndGet() > maxQueuedPerServer && queue.messages.poll() != null) {
+            queue.size.decrementAndGet();
+            queuedCount.decrementAndGet();
+            droppedCount.incrementAndGet();
+        }
+    }
+    
+    /**
+     * 在主线程上轮询各发送队列，最多发送 budget 条消息
+     */
+    private void drain(int budget) {
+        if (queuedCount.get() == 0) {
+            return;
+        }
+        
+        Iterator<? extends Player> players = Bukkit.getOnlinePlayers().iterator();
+        if (!players.hasNext()) {
+            return;
+        }
+        Player carrier = players.next();
+        
+        int sent = 0;
+        boolean progressed = true;
+        while (sent < budget && progressed) {
+            progressed = false;
+            Iterator<SendQueue> iterator = sendQueues.values().iterator();
+            while (iterator.hasNext() && sent < budget) {
+                SendQueue queue = iterator.next();
+                byte[] message = queue.messages.poll();
+                if (message == null) {
+                    continue;
+                }
+                
+                queue.size.decrementAndGet();
+                queuedCount.decrementAndGet();
+                carrier.sendPluginMessage(plugin, BUNGEE_CHANNEL, message);
+                sentCount.incrementAndGet();
+                sent++;
+                progressed = true;
+            }
+        }
+    }
+    
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] message) {
+        if (!BUNGEE_CHANNEL.equals(channel)) {
+            return;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            if (!SUBCHANNEL.equals(in.readUTF())) {
+                return;
+            }
+            
+            byte[] payload = new byte[in.readUnsignedShort()];
+            in.readFully(payload);
+            receiver.accept(payload);
+        
+        } catch (Exception e) {
+            LoggerUtil.warning("解析跨服消息失败: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public int getQueuedCount() {
+        return queuedCount.get();
+    }
+    
+    @Override
+    public long getSentCount() {
+        return sentCount.get();
+    }
+    
+    @Override
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    /**
+     * 单个目标的发送队列
+     */
+    private static class SendQueue {
+        private final Queue<byte[]> messages = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,220 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 跨服成员表
+ * 
+ * 每个子服定期递增自己的心跳计数，并把整张成员表发送给随机挑选的几个子服（gossip）；
+ * 收到成员表时只接受心跳计数更大的条目，因此计数会在 O(log N) 轮内传遍整个网络。
+ * 每个成员的心跳计数增长时间由 PhiAccrualFailureDetector 检测，phi 超过阈值的成员视为疑似故障，
+ * 路由时跳过；长时间没有心跳的成员从表中移除，并记录墓碑防止过期的成员表让它复活。
+ * 有墓碑的子服在收到比墓碑更新的心跳之前一直视为不可达。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class ClusterMembership {
+    
+    // 故障检测器参数
+    private static final int DETECTOR_WINDOW = 100;
+    private static final double MIN_STD_DEVIATION_MILLIS = 100.0;
+    
+    private final ServerInfo self;
+    private final long heartbeatIntervalMillis;
+    private final double phiThreshold;
+    private final long removeAfterMillis;
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+    // 已移除成员最后的心跳计数
+    private final Map<String, Long> tombstones = new ConcurrentHashMap<>();
+    
+    public ClusterMembership(String localServerId, long heartbeatIntervalMillis, double phiThreshold, long removeAfterMillis) {
+        this.self = new ServerInfo(localServerId, localServerId);
+        this.self.heartbeat = System.currentTimeMillis();
+        this.heartbeatIntervalMillis = Math.max(50L, heartbeatIntervalMillis);
+        this.phiThreshold = phiThreshold;
+        this.removeAfterMillis = Math.max(this.heartbeatIntervalMillis, removeAfterMillis);
+    }
+    
+    /**
+     * 递增本服心跳并返回要发送的成员表，本服排在第一位
+     */
+    public synchronized List<ServerInfo> heartbeat(int playerCount, double mspt) {
+        self.heartbeat++;
+        self.playerCount = playerCount;
+        self.mspt = mspt;
+        self.lastSeen = System.currentTimeMillis();
+        
+        List<ServerInfo> digest = new ArrayList<>(members.size() + 1);
+        digest.add(self.copy());
+        for (Member member : members.values()) {
+            digest.add(member.snapshot());
+        }
+        return digest;
+    }
+    
+    /**
+     * 合并收到的成员表
+     * 
+     * @return 新加入的成员数量
+     */
+    public int merge(List<ServerInfo> digest, long nowMillis) {
+        int joined = 0;
+        for (ServerInfo info : digest) {
+            if (info.serverId == null || info.serverId.equals(self.serverId)) {
+                continue;
+            }
+            
+            Member member = members.get(info.serverId);
+            if (member == null) {
+                Long removedHeartbeat = tombstones.get(info.serverId);
+                if (removedHeartbeat != null && info.heartbeat <= removedHeartbeat) {
+                    continue;
+                }
+                
+                Member created = new Member(info.serverId, heartbeatIntervalMillis);
+                member = members.putIfAbsent(info.serverId, created);
+                if (member == null) {
+                    member = created;
+                    tombstones.remove(info.serverId);
+                    joined++;
+                }
+            }
+            member.update(info, nowMillis);
+        }
+        return joined;
+    }
+    
+    /**
+     * 成员主动下线
+     */
+    public void leave(String serverId) {
+        Member member = members.remove(serverId);
+        if (member != null) {
+            tombstones.put(serverId, member.snapshot().heartbeat);
+        }
+    }
+    
+    /**
+     * 移除长时间没有心跳的成员
+     * 
+     * @return 被移除的成员ID
+     */
+    public List<String> prune(long nowMillis) {
+        List<String> removed = new ArrayList<>();
+        for (Member member : members.values()) {
+            if (nowMillis - member.detector.getLastArrival() > removeAfterMillis) {
+                leave(member.serverId);
+                removed.add(member.serverId);
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * 检查子服是否可达，从未见过的子服视为可达，已移除的子服视为不可达
+     */
+    public boolean isAvailable(String serverId) {
+        Member member = members.get(serverId);
+        if (member == null) {
+            return !tombstones.containsKey(serverId);
+        }
+        return member.detector.isAvailable(System.currentTimeMillis(), phiThreshold);
+    }
+    
+    /**
+     * 随机挑选最多 fanout 个可达的成员发送成员表
+     */
+    public List<String> selectGossipTargets(int fanout) {
+        long now = System.currentTimeMillis();
+        List<String> candidates = new ArrayList<>();
+        for (Member member : members.values()) {
+            if (member.detector.isAvailable(now, phiThreshold)) {
+                candidates.add(member.serverId);
+            }
+        }
+        
+        if (candidates.size() > fanout) {
+            Collections.shuffle(candidates, ThreadLocalRandom.current());
+            return new ArrayList<>(candidates.subList(0, fanout));
+        }
+        return candidates;
+    }
+    
+    /**
+     * 可达的成员，按子服ID排序
+     */
+    public Map<String, ServerInfo> getAvailableMembers() {
+        long now = System.currentTimeMillis();
+        Map<String, ServerInfo> available = new TreeMap<>();
+        for (Member member : members.values()) {
+            if (member.detector.isAvailable(now, phiThreshold)) {
+                available.put(member.serverId, member.snapshot());
+            }
+        }
+        return available;
+    }
+    
+    /**
+     * 成员的当前 phi 值，按子服ID排序
+     */
+    public Map<String, Double> getPhiValues() {
+        long now = System.currentTimeMillis();
+        Map<String, Double> values = new TreeMap<>();
+        for (Member member : members.values()) {
+            values.put(member.serverId, member.detector.phi(now));
+        }
+        return values;
+    }
+    
+    /**
+     * 已知成员数量，包括疑似故障的成员
+     */
+    public int size() {
+        return members.size();
+    }
+    
+    /**
+     * 成员表中的一个子服
+     */
+    private static class Member {
+        
+        private final String serverId;
+        private final PhiAccrualFailureDetector detector;
+        private final ServerInfo info;
+        
+        private Member(String serverId, long heartbeatIntervalMillis) {
+            this.serverId = serverId;
+            this.detector = new PhiAccrualFailureDetector(heartbeatIntervalMillis, DETECTOR_WINDOW,
+                    MIN_STD_DEVIATION_MILLIS, heartbeatIntervalMillis / 2);
+            this.info = new ServerInfo(serverId, serverId);
+            this.info.heartbeat = Long.MIN_VALUE;
+        }
+        
+        /**
+         * 心跳计数增长时更新信息并记录到达时间
+         */
+        private synchronized void update(ServerInfo received, long nowMillis) {
+            if (received.heartbeat <= info.heartbeat) {
+                return;
+            }
+            
+            info.serverName = received.serverName;
+            info.heartbeat = received.heartbeat;
+            info.playerCount = received.playerCount;
+            info.mspt = received.mspt;
+            info.lastSeen = nowMillis;
+            detector.heartbeat(nowMillis);
+        }
+        
+        private synchronized ServerInfo snapshot() {
+            return info.copy();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按来源子服和消息流去重的滑动窗口
+ * 
+ * 每个子服启动时取一个新的 epoch，之后发往每个消息流（发往某个子服的单播、广播或发往玩家所在子服）的消息
+ * 带有该流内递增的序号，消息流由消息的目标服务器区分。接收方为每个来源的每个消息流记录最大序号，
+ * 并用位图记录其下方 windowSize 个序号是否已收到：窗口内已收到的序号和比窗口更旧的序号视为重复。
+ * 不同消息流的序号互不影响，发往其他子服的消息和其他队列的乱序不会把重发的消息挤出窗口。
+ * 来源的 epoch 变大说明对方重启过，窗口重新开始；更小的 epoch 来自重启前的旧消息，直接丢弃。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class DuplicateFilter {
+    
+    private final int windowSize;
+    private final Map<String, Map<String, Window>> windows = new ConcurrentHashMap<>();
+    private final AtomicLong duplicateCount = new AtomicLong();
+    
+    public DuplicateFilter(int windowSize) {
+        // 位图按 long 分配
+        this.windowSize = Math.max(64, (windowSize + 63) / 64 * 64);
+    }
+    
+    /**
+     * 消息流的键，目标为空（发往玩家所在子服）的消息单独成流
+     */
+    public static String stream(String toServer) {
+        return toServer != null ? toServer : "";
+    }
+    
+    /**
+     * 检查消息是否第一次收到，第一次收到时记录序号
+     * 
+     * @param stream 消息流，见 stream(String)
+     * @return 重复的消息返回false
+     */
+    public boolean accept(String sender, String stream, long epoch, long sequence) {
+        Window window = windows.computeIfAbsent(String.valueOf(sender), key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(stream, key -> new Window(windowSize, epoch));
+        if (window.accept(epoch, sequence)) {
+            return true;
+        }
+        duplicateCount.incrementAndGet();
+        return false;
+    }
+    
+    /**
+     * 移除来源子服所有消息流的窗口
+     */
+    public void remove(String sender) {
+        windows.remove(sender);
+    }
+    
+    /**
+     * 丢弃的重复消息数量
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.get();
+    }
+    
+    /**
+     * 一个来源子服的接收窗口
+     */
+    private static class Window {
+        
+        private final long[] bits;
+        private final int size;
+        private long epoch;
+        // 收到的最大序号，序号从1开始
+        private long highest;
+        
+        private Window(int size, long epoch) {
+            this.bits = new long[size / 64];
+            this.size = size;
+            this.epoch = epoch;
+        }
+        
+        private synchronized boolean accept(long epoch, long sequence) {
+            if (epoch < this.epoch) {
+                return false;
+            }
+            if (epoch > this.epoch) {
+                this.epoch = epoch;
+                highest = 0L;
+                clearAll();
+            }
+            
+            if (sequence > highest) {
+                if (sequence - highest >= size) {
+                    clearAll();
+                } else {
+                    // 滑过的序号对应的位清零
+                    for (long s = highest + 1; s < sequence; s++) {
+                        clear(s);
+                    }
+                }
+                highest = sequence;
+                set(sequence);
+                return true;
+            }
+            
+            if (highest - sequence >= size || isSet(sequence)) {
+                return false;
+            }
+            set(sequence);
+            return true;
+        }
+        
+        private void clearAll() {
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = 0L;
+            }
+        }
+        
+        private boolean isSet(long sequence) {
+            int index = (int) (sequence % size);
+            return (bits[index >>> 6] & (1L << (index & 63))) != 0;
+        }
+        
+        private void set(long sequence) {
+            int index = (int) (sequence % size);
+            bits[index >>> 6] |= 1L << (index & 63);
+        }
+        
+        private void clear(long sequence) {
+            int index = (int) (sequence % size);
+            bits[index >>> 6] &= ~(1L << (index & 63));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,214 @@
+package cn.popcraft.residencesync.messaging;
+
+import cn.popcraft.residencesync.util.LoggerUtil;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 跨服消息接收队列
+ * 
+ * 传输层收到的消息放入有界队列后立即返回，由一个工作线程解码和处理；需要调用 Bukkit API 的部分
+ * 通过 dispatchToMain 放入主线程队列，主线程每tick最多处理 maxPerTick 条。
+ * 接收队列已满时按 OverflowPolicy 丢弃消息，主线程队列已满时丢弃新任务，两者都计入统计。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class InboundQueue {
+    
+    /**
+     * 接收队列已满时的处理方式
+     */
+    public enum OverflowPolicy {
+        // 丢弃新收到的消息
+        DROP_NEWEST,
+        // 丢弃最早的消息，保留新消息
+        DROP_OLDEST;
+        
+        /**
+         * 解析配置值，无法识别时使用 DROP_NEWEST
+         */
+        public static OverflowPolicy fromConfig(String value) {
+            if (value != null && value.replace('-', '_').equalsIgnoreCase(DROP_OLDEST.name())) {
+                return DROP_OLDEST;
+            }
+            return DROP_NEWEST;
+        }
+    }
+    
+    private final BlockingQueue<byte[]> received;
+    private final BlockingQueue<Runnable> mainThreadTasks;
+    private final OverflowPolicy policy;
+    
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong shedCount = new AtomicLong();
+    private final AtomicLong workerCount = new AtomicLong();
+    private final AtomicLong mainThreadCount = new AtomicLong();
+    
+    private Thread worker;
+    private volatile boolean running;
+    
+    public InboundQueue(int capacity, int mainThreadCapacity, OverflowPolicy policy) {
+        this.received = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.mainThreadTasks = new ArrayBlockingQueue<>(Math.max(1, mainThreadCapacity));
+        this.policy = policy;
+    }
+    
+    /**
+     * 启动工作线程，收到的消息交给 handler 处理
+     */
+    public void start(Consumer<byte[]> handler) {
+        running = true;
+        worker = new Thread(() -> runWorker(handler), "ResidenceSync-Inbound");
+        worker.setDaemon(true);
+        worker.start();
+    }
+    
+    /**
+     * 停止工作线程，丢弃尚未处理的消息
+     */
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(2000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker = null;
+        }
+        received.clear();
+        mainThreadTasks.clear();
+    }
+    
+    /**
+     * 放入收到的消息，可以在任意线程调用，不会阻塞
+     * 
+     * @return 消息被丢弃时返回false
+     */
+    public boolean offer(byte[] payload) {
+        receivedCount.incrementAndGet();
+        if (received.offer(payload)) {
+            return true;
+        }
+        
+        droppedCount.incrementAndGet();
+        if (policy == OverflowPolicy.DROP_OLDEST) {
+            received.poll();
+            return received.offer(payload);
+        }
+        return false;
+    }
+    
+    /**
+     * 交给主线程执行，由工作线程调用
+     * 
+     * @return 主线程队列已满而丢弃时返回false
+     */
+    public boolean dispatchToMain(Runnable task) {
+        if (mainThreadTasks.offer(task)) {
+            return true;
+        }
+        shedCount.incrementAndGet();
+        return false;
+    }
+    
+    /**
+     * 记录一条因限流被丢弃的消息
+     */
+    public void shed() {
+        shedCount.incrementAndGet();
+    }
+    
+    /**
+     * 在主线程执行最多 max 个任务
+     * 
+     * @return 执行的任务数量
+     */
+    public int drainMainThread(int max) {
+        int processed = 0;
+        Runnable task;
+        while (processed < max && (task = mainThreadTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                LoggerUtil.severe("处理跨服消息失败: " + e.getMessage(), e);
+            }
+            processed++;
+        }
+        mainThreadCount.addAndGet(processed);
+        return processed;
+    }
+    
+    private void runWorker(Consumer<byte[]> handler) {
+        while (running) {
+            byte[] payload;
+            try {
+                payload = received.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            
+            try {
+                handler.accept(payload);
+            } catch (Exception e) {
+                LoggerUtil.severe("处理跨服消息失败: " + e.getMessage(), e);
+            }
+            workerCount.incrementAndGet();
+        }
+    }
+    
+    /**
+     * 等待工作线程处理的消息数量
+     */
+    public int getQueuedCount() {
+        return received.size();
+    }
+    
+    /**
+     * 等待主线程处理的任务数量
+     */
+    public int getMainThreadQueuedCount() {
+        return mainThreadTasks.size();
+    }
+    
+    /**
+     * 收到的消息数量
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+    
+    /**
+     * 因接收队列已满而丢弃的消息数量
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    /**
+     * 因限流或主线程队列已满而丢弃的消息数量
+     */
+    public long getShedCount() {
+        return shedCount.get();
+    }
+    
+    /**
+     * 工作线程处理的消息数量
+     */
+    public long getWorkerCount() {
+        return workerCount.get();
+    }
+    
+    /**
+     * 主线程处理的任务数量
+     */
+    public long getMainThreadCount() {
+        return mainThreadCount.get();
+    }
+}
\ No newline at end of file
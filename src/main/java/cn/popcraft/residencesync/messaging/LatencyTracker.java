@@ -0,0 +1,98 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 跨服请求延迟统计
+ * 
+ * 按子服记录最近若干次请求的往返时间，用于估计 p95 延迟；
+ * 还没有样本的子服使用调用方提供的默认值。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class LatencyTracker {
+    
+    private final int windowSize;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    
+    public LatencyTracker(int windowSize) {
+        this.windowSize = Math.max(1, windowSize);
+    }
+    
+    /**
+     * 记录一次往返时间
+     */
+    public void record(String serverId, long millis) {
+        windows.computeIfAbsent(serverId, key -> new Window(windowSize)).record(Math.max(0L, millis));
+    }
+    
+    /**
+     * 子服最近往返时间的百分位数，没有样本时返回 defaultMillis
+     * 
+     * @param percentile 0 到 1 之间
+     */
+    public long getPercentile(String serverId, double percentile, long defaultMillis) {
+        Window window = windows.get(serverId);
+        return window != null ? window.percentile(percentile, defaultMillis) : defaultMillis;
+    }
+    
+    /**
+     * 子服最近往返时间的 p95，没有样本时返回 defaultMillis
+     */
+    public long getP95(String serverId, long defaultMillis) {
+        return getPercentile(serverId, 0.95, defaultMillis);
+    }
+    
+    /**
+     * 各子服的 p95 延迟，按子服ID排序
+     */
+    public Map<String, Long> getP95Values() {
+        Map<String, Long> values = new TreeMap<>();
+        windows.forEach((serverId, window) -> values.put(serverId, window.percentile(0.95, 0L)));
+        return values;
+    }
+    
+    /**
+     * 移除子服的样本
+     */
+    public void remove(String serverId) {
+        windows.remove(serverId);
+    }
+    
+    /**
+     * 一个子服最近的往返时间
+     */
+    private static class Window {
+        
+        private final long[] samples;
+        private int count;
+        private int next;
+        
+        private Window(int size) {
+            this.samples = new long[size];
+        }
+        
+        private synchronized void record(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) {
+                count++;
+            }
+        }
+        
+        private synchronized long percentile(double percentile, long defaultMillis) {
+            if (count == 0) {
+                return defaultMillis;
+            }
+            
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(Math.min(1.0, Math.max(0.0, percentile)) * count) - 1;
+            return sorted[Math.max(0, index)];
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 跨服消息路由
+ * 
+ * 已知目标子服时单播给该子服，目标未知时才广播给所有子服，并按路由统计发送的消息数量。
+ * 发往疑似故障子服的单播消息直接丢弃，不再占用发送队列。
+ * 子服ID与 BungeeCord 中的服务器名称一致，可以直接作为转发目标。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class MessageRouter {
+    
+    // 发往玩家所在子服的消息的统计键
+    public static final String PLAYER_ROUTE = "@player";
+    
+    private final MessageTransport transport;
+    private final String localServerId;
+    private final Predicate<String> reachable;
+    private final Map<String, LongAdder> routeCounts = new ConcurrentHashMap<>();
+    private final LongAdder unicastCount = new LongAdder();
+    private final LongAdder scatterCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+    
+    public MessageRouter(MessageTransport transport, String localServerId, Predicate<String> reachable) {
+        this.transport = transport;
+        this.localServerId = localServerId;
+        this.reachable = reachable;
+    }
+    
+    /**
+     * 解析转发目标，目标为空、为本服或为广播时返回 ALL_SERVERS
+     */
+    public String resolve(String serverId) {
+        if (serverId == null || serverId.isEmpty() || serverId.equals(localServerId)) {
+            return MessageTransport.ALL_SERVERS;
+        }
+        return serverId;
+    }
+    
+    /**
+     * 检查目标是否可达，广播目标始终可达
+     */
+    public boolean isReachable(String target) {
+        return MessageTransport.ALL_SERVERS.equals(target) || reachable.test(target);
+    }
+    
+    /**
+     * 发送到 resolve 得到的目标
+     * 
+     * @return 目标疑似故障而未发送时返回false
+     */
+    public boolean send(String target, byte[] payload) {
+        if (MessageTransport.ALL_SERVERS.equals(target)) {
+            scatterCount.increment();
+        } else if (reachable.test(target)) {
+            unicastCount.increment();
+        } else {
+            skippedCount.increment();
+            return false;
+        }
+        count(target);
+        transport.send(target, payload);
+        return true;
+    }
+    
+    /**
+     * 发送到指定玩家当前所在的子服
+     */
+    public void sendToPlayer(String playerName, byte[] payload) {
+        unicastCount.increment();
+        count(PLAYER_ROUTE);
+        transport.sendToPlayer(playerName, payload);
+    }
+    
+    private void count(String route) {
+        routeCounts.computeIfAbsent(route, key -> new LongAdder()).increment();
+    }
+    
+    /**
+     * 各路由已发送的消息数量，按路由名称排序
+     */
+    public Map<String, Long> getRouteCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        routeCounts.forEach((route, count) -> counts.put(route, count.sum()));
+        return counts;
+    }
+    
+    /**
+     * 单播消息数量，包括发往玩家所在子服的消息
+     */
+    public long getUnicastCount() {
+        return unicastCount.sum();
+    }
+    
+    /**
+     * 广播消息数量
+     */
+    public long getScatterCount() {
+        return scatterCount.sum();
+    }
+    
+    /**
+     * 因目标疑似故障而跳过的消息数量
+     */
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+}
\ No newline at end of file
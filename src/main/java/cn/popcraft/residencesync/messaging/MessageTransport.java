@@ -0,0 +1,60 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.function.Consumer;
+
+/**
+ * 跨服消息传输
+ * 
+ * 负责在子服之间传递已编码的跨服消息，消息内容由 CrossServerService 编码和解析。
+ * send 方法可以在任意线程调用，实现需要自行排队，不能阻塞调用方。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public interface MessageTransport {
+    
+    /**
+     * 广播目标，发送到除本服外的所有子服
+     */
+    String ALL_SERVERS = "ALL";
+    
+    /**
+     * 传输方式名称，用于日志和状态显示
+     */
+    String getName();
+    
+    /**
+     * 启动传输，收到的消息交给 receiver 处理
+     */
+    void start(Consumer<byte[]> receiver);
+    
+    /**
+     * 停止传输，尽量发送已排队的消息
+     */
+    void stop();
+    
+    /**
+     * 发送消息到指定子服，targetServer 为 ALL_SERVERS 时广播
+     */
+    void send(String targetServer, byte[] payload);
+    
+    /**
+     * 发送消息到指定玩家当前所在的子服
+     */
+    void sendToPlayer(String playerName, byte[] payload);
+    
+    /**
+     * 等待发送的消息数量
+     */
+    int getQueuedCount();
+    
+    /**
+     * 已发送的消息数量
+     */
+    long getSentCount();
+    
+    /**
+     * 因队列已满而丢弃的消息数量
+     */
+    long getDroppedCount();
+}
\ No newline at end of file
@@ -0,0 +1,140 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 跨服消息批量发送
+ * 
+ * 同一批次窗口内发往同一目标的消息合并为一条 BATCH 消息发送，减少代理转发的消息数量；
+ * 批次只有一条消息时原样发送。批次超过 maxBatchBytes 时立即发出，同一目标的消息顺序不变。
+ * flush 由主线程在每个批次窗口结束时调用，add 可以在任意线程调用。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class OutboundBatcher {
+    
+    // 每条消息在批次中的额外开销上限（varint 长度）
+    private static final int ENTRY_OVERHEAD = 5;
+    
+    private final PacketCodec codec;
+    private final MessageRouter router;
+    private final String localServerId;
+    private final int maxBatchBytes;
+    private final Map<String, Batch> batches = new LinkedHashMap<>();
+    
+    private final AtomicLong messageCount = new AtomicLong();
+    private final AtomicLong frameCount = new AtomicLong();
+    
+    public OutboundBatcher(PacketCodec codec, MessageRouter router, String localServerId, int maxBatchBytes) {
+        this.codec = codec;
+        this.router = router;
+        this.localServerId = localServerId;
+        this.maxBatchBytes = Math.max(256, maxBatchBytes);
+    }
+    
+    /**
+     * 加入发往子服的消息，target 为 MessageRouter.resolve 的结果
+     */
+    public void add(String target, byte[] payload) {
+        add("server:" + target, target, false, payload);
+    }
+    
+    /**
+     * 加入发往玩家所在子服的消息
+     */
+    public void addToPlayer(String playerName, byte[] payload) {
+        add("player:" + playerName, playerName, true, payload);
+    }
+    
+    private synchronized void add(String key, String target, boolean toPlayer, byte[] payload) {
+        messageCount.incrementAndGet();
+        
+        Batch batch = batches.get(key);
+        if (batch == null) {
+            batch = new Batch(target, toPlayer);
+            batches.put(key, batch);
+        } else if (batch.bytes + payload.length + ENTRY_OVERHEAD > maxBatchBytes) {
+            send(batch);
+            batch.clear();
+        }
+        
+        batch.payloads.add(payload);
+        batch.bytes += payload.length + ENTRY_OVERHEAD;
+    }
+    
+    /**
+     * 发出所有批次
+     */
+    public synchronized void flush() {
+        if (batches.isEmpty()) {
+            return;
+        }
+        
+        for (Batch batch : batches.values()) {
+            send(batch);
+        }
+        batches.clear();
+    }
+    
+    private void send(Batch batch) {
+        if (batch.payloads.isEmpty()) {
+            return;
+        }
+        
+        byte[] frame;
+        if (batch.payloads.size() == 1) {
+            frame = batch.payloads.get(0);
+        } else {
+            String toServer = batch.toPlayer ? null : batch.target;
+            frame = codec.encode(new Packet(PacketType.BATCH, localServerId, toServer,
+                    System.currentTimeMillis(), new ArrayList<>(batch.payloads)));
+        }
+        
+        if (batch.toPlayer) {
+            router.sendToPlayer(batch.target, frame);
+        } else {
+            router.send(batch.target, frame);
+        }
+        frameCount.incrementAndGet();
+    }
+    
+    /**
+     * 加入批次的消息数量
+     */
+    public long getMessageCount() {
+        return messageCount.get();
+    }
+    
+    /**
+     * 实际发出的消息数量，包括合并后的批量消息
+     */
+    public long getFrameCount() {
+        return frameCount.get();
+    }
+    
+    /**
+     * 发往同一目标的待发送消息
+     */
+    private static class Batch {
+        
+        private final String target;
+        private final boolean toPlayer;
+        private final List<byte[]> payloads = new ArrayList<>();
+        private int bytes;
+        
+        private Batch(String target, boolean toPlayer) {
+            this.target = target;
+            this.toPlayer = toPlayer;
+        }
+        
+        private void clear() {
+            payloads.clear();
+            bytes = 0;
+        }
+    }
+}
\ No newline at end of file
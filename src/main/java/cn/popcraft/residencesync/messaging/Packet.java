@@ -0,0 +1,71 @@
+package cn.popcraft.residencesync.messaging;
+
+/**
+ * 跨服消息
+ * 
+ * 消息头包含类型、来源服务器、目标服务器、发送时间，以及来源服务器的 epoch 和消息序号，
+ * 序号在来源服务器发往同一目标的消息流内递增，接收方按来源和目标用 epoch 和序号丢弃重复的消息；
+ * 序号为0的消息（如 BATCH）不去重。消息体的类型由 PacketType 决定：
+ * SERVER_CONNECT 为 ServerInfo，TELEPORT_REQUEST 为 TeleportRequest，TELEPORT_RESPONSE 和 TELEPORT_ARRIVED 为 TeleportResponse，
+ * RESIDENCE_QUERY 为 ResidenceQuery，RESIDENCE_RESPONSE 为 ResidenceQueryResponse，
+ * HEARTBEAT 为发送方的成员表 List&lt;ServerInfo&gt;，BATCH 为多条已编码消息 List&lt;byte[]&gt;，PRESENCE 为 PresenceUpdate，
+ * SERVER_DISCONNECT 没有消息体。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class Packet {
+    
+    private final PacketType type;
+    private final String fromServer;
+    private final String toServer;
+    private final long timestamp;
+    private final long epoch;
+    private final long sequence;
+    private final Object body;
+    
+    public Packet(PacketType type, String fromServer, String toServer, long timestamp, Object body) {
+        this(type, fromServer, toServer, timestamp, 0L, 0L, body);
+    }
+    
+    public Packet(PacketType type, String fromServer, String toServer, long timestamp,
+                  long epoch, long sequence, Object body) {
+        this.type = type;
+        this.fromServer = fromServer;
+        this.toServer = toServer;
+        this.timestamp = timestamp;
+        this.epoch = epoch;
+        this.sequence = sequence;
+        this.body = body;
+    }
+    
+    // Getters
+    public PacketType getType() {
+        return type;
+    }
+    
+    public String getFromServer() {
+        return fromServer;
+    }
+    
+    public String getToServer() {
+        return toServer;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public long getEpoch() {
+        return epoch;
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <T> T getBody() {
+        return (T) body;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,250 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * 可复用的跨服消息缓冲区
+ * 
+ * 写入时自动扩容，clear() 后可重复使用同一块数组；读取时通过 wrap() 包装收到的字节。
+ * 整数使用 varint 编码，有符号整数使用 zigzag 编码，字符串为 varint 长度加 UTF-8 字节，长度0表示null。
+ * 非线程安全，由 PacketCodec 按线程持有。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class PacketBuffer {
+    
+    private byte[] data;
+    private int writerIndex;
+    private int readerIndex;
+    
+    public PacketBuffer(int initialCapacity) {
+        this.data = new byte[Math.max(16, initialCapacity)];
+    }
+    
+    /**
+     * 清空缓冲区，保留已分配的数组
+     */
+    public void clear() {
+        writerIndex = 0;
+        readerIndex = 0;
+    }
+    
+    /**
+     * 包装收到的字节用于读取，不复制数组
+     */
+    public void wrap(byte[] bytes) {
+        data = bytes;
+        writerIndex = bytes.length;
+        readerIndex = 0;
+    }
+    
+    /**
+     * 已写入的字节数
+     */
+    public int size() {
+        return writerIndex;
+    }
+    
+    /**
+     * 剩余可读取的字节数
+     */
+    public int readableBytes() {
+        return writerIndex - readerIndex;
+    }
+    
+    /**
+     * 复制已写入的字节
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(data, writerIndex);
+    }
+    
+    private void ensureWritable(int bytes) {
+        int required = writerIndex + bytes;
+        if (required > data.length) {
+            data = Arrays.copyOf(data, Math.max(required, data.length * 2));
+        }
+    }
+    
+    private void ensureReadable(int bytes) {
+        if (bytes < 0 || readerIndex + bytes > writerIndex) {
+            throw new IllegalArgumentException("跨服消息长度不足");
+        }
+    }
+    
+    // 写入
+    
+    public void writeByte(int value) {
+        ensureWritable(1);
+        data[writerIndex++] = (byte) value;
+    }
+    
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+    
+    public void writeVarInt(int value) {
+        ensureWritable(5);
+        while ((value & ~0x7F) != 0) {
+            data[writerIndex++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[writerIndex++] = (byte) value;
+    }
+    
+    public void writeVarLong(long value) {
+        ensureWritable(10);
+        while ((value & ~0x7FL) != 0) {
+            data[writerIndex++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[writerIndex++] = (byte) value;
+    }
+    
+    /**
+     * 写入有符号整数，绝对值较小的负数也只占少量字节
+     */
+    public void writeZigZagInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+    
+    public void writeLong(long value) {
+        ensureWritable(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            data[writerIndex++] = (byte) (value >>> shift);
+        }
+    }
+    
+    public void writeUuid(UUID uuid) {
+        writeLong(uuid.getMostSignificantBits());
+        writeLong(uuid.getLeastSignificantBits());
+    }
+    
+    public void writeNullableUuid(UUID uuid) {
+        writeBoolean(uuid != null);
+        if (uuid != null) {
+            writeUuid(uuid);
+        }
+    }
+    
+    /**
+     * 写入带长度前缀的字节数组
+     */
+    public void writeBytes(byte[] bytes) {
+        writeVarInt(bytes.length);
+        ensureWritable(bytes.length);
+        System.arraycopy(bytes, 0, data, writerIndex, bytes.length);
+        writerIndex += bytes.length;
+    }
+    
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        
+        // ASCII 字符串直接写入，不创建临时数组
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                ascii = false;
+                break;
+            }
+        }
+        
+        if (ascii) {
+            writeVarInt(length + 1);
+            ensureWritable(length);
+            for (int i = 0; i < length; i++) {
+                data[writerIndex++] = (byte) value.charAt(i);
+            }
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            ensureWritable(bytes.length);
+            System.arraycopy(bytes, 0, data, writerIndex, bytes.length);
+            writerIndex += bytes.length;
+        }
+    }
+    
+    // 读取
+    
+    public int readByte() {
+        ensureReadable(1);
+        return data[readerIndex++];
+    }
+    
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+    
+    public int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint 过长");
+    }
+    
+    public long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varlong 过长");
+    }
+    
+    public int readZigZagInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    public long readLong() {
+        ensureReadable(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (data[readerIndex++] & 0xFF);
+        }
+        return value;
+    }
+    
+    public UUID readUuid() {
+        return new UUID(readLong(), readLong());
+    }
+    
+    public UUID readNullableUuid() {
+        return readBoolean() ? readUuid() : null;
+    }
+    
+    public byte[] readBytes() {
+        int length = readVarInt();
+        ensureReadable(length);
+        byte[] bytes = Arrays.copyOfRange(data, readerIndex, readerIndex + length);
+        readerIndex += length;
+        return bytes;
+    }
+    
+    public String readString() {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        
+        ensureReadable(length);
+        String value = new String(data, readerIndex, length, StandardCharsets.UTF_8);
+        readerIndex += length;
+        return value;
+    }
+}
\ No newline at end of file
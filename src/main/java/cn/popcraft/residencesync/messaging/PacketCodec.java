@@ -0,0 +1,379 @@
+package cn.popcraft.residencesync.messaging;
+
+import cn.popcraft.residencesync.database.ResidenceData;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 跨服消息二进制编解码器
+ * 
+ * 格式：[版本][类型id][来源服务器][目标服务器][时间戳][消息体]。
+ * 类型使用 PacketType 的数字id，UUID 编码为两个 long，整数和长度使用 varint。
+ * 每个线程复用自己的编码和解码缓冲区；解码出的服务器ID会被复用，避免每条消息重复创建相同的字符串。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class PacketCodec {
+    
+    // 协议版本，修改消息格式时递增
+    public static final int VERSION = 7;
+    
+    // 复用的服务器ID数量上限
+    private static final int MAX_INTERNED = 256;
+    private static final byte[] EMPTY = new byte[0];
+    
+    private final ThreadLocal<PacketBuffer> writeBuffers = ThreadLocal.withInitial(() -> new PacketBuffer(256));
+    private final ThreadLocal<PacketBuffer> readBuffers = ThreadLocal.withInitial(() -> new PacketBuffer(16));
+    private final Map<String, String> internedServerIds = new ConcurrentHashMap<>();
+    
+    /**
+     * 编码消息
+     */
+    public byte[] encode(Packet packet) {
+        PacketBuffer buffer = writeBuffers.get();
+        buffer.clear();
+        encode(packet, buffer);
+        return buffer.toByteArray();
+    }
+    
+    /**
+     * 将消息编码到指定缓冲区
+     */
+    public void encode(Packet packet, PacketBuffer buffer) {
+        buffer.writeByte(VERSION);
+        buffer.writeVarInt(packet.getType().getId());
+        buffer.writeString(packet.getFromServer());
+        buffer.writeString(packet.getToServer());
+        buffer.writeVarLong(packet.getTimestamp());
+        buffer.writeVarLong(packet.getEpoch());
+        buffer.writeVarLong(packet.getSequence());
+        
+        switch (packet.getType()) {
+            case SERVER_CONNECT:
+                writeServerInfo(buffer, packet.getBody());
+                break;
+            case TELEPORT_REQUEST:
+                writeTeleportRequest(buffer, packet.getBody());
+                break;
+            case TELEPORT_RESPONSE:
+            case TELEPORT_ARRIVED:
+                writeTeleportResponse(buffer, packet.getBody());
+                break;
+            case RESIDENCE_QUERY:
+                writeResidenceQuery(buffer, packet.getBody());
+                break;
+            case RESIDENCE_RESPONSE:
+                writeResidenceQueryResponse(buffer, packet.getBody());
+                break;
+            case HEARTBEAT:
+                writeServerInfoList(buffer, packet.getBody());
+                break;
+            case BATCH:
+                writeBatch(buffer, packet.getBody());
+                break;
+            case PRESENCE:
+                writePresenceUpdate(buffer, packet.getBody());
+                break;
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * 解码消息
+     * 
+     * @throws IllegalArgumentException 版本不支持、类型未知或内容不完整
+     */
+    public Packet decode(byte[] bytes) {
+        PacketBuffer buffer = readBuffers.get();
+        buffer.wrap(bytes);
+        try {
+            return decode(buffer);
+        } finally {
+            // 不持有收到的数组
+            buffer.wrap(EMPTY);
+        }
+    }
+    
+    /**
+     * 从指定缓冲区解码一条消息
+     */
+    public Packet decode(PacketBuffer buffer) {
+        int version = buffer.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("不支持的跨服协议版本: " + version);
+        }
+        
+        int typeId = buffer.readVarInt();
+        PacketType type = PacketType.fromId(typeId);
+        if (type == null) {
+            throw new IllegalArgumentException("未知的跨服消息类型: " + typeId);
+        }
+        
+        String fromServer = intern(buffer.readString());
+        String toServer = intern(buffer.readString());
+        long timestamp = buffer.readVarLong();
+        long epoch = buffer.readVarLong();
+        long sequence = buffer.readVarLong();
+        
+        Object body;
+        switch (type) {
+            case SERVER_CONNECT:
+                body = readServerInfo(buffer);
+                break;
+            case TELEPORT_REQUEST:
+                body = readTeleportRequest(buffer);
+                break;
+            case TELEPORT_RESPONSE:
+            case TELEPORT_ARRIVED:
+                body = readTeleportResponse(buffer);
+                break;
+            case RESIDENCE_QUERY:
+                body = readResidenceQuery(buffer);
+                break;
+            case RESIDENCE_RESPONSE:
+                body = readResidenceQueryResponse(buffer);
+                break;
+            case HEARTBEAT:
+                body = readServerInfoList(buffer);
+                break;
+            case BATCH:
+                body = readBatch(buffer);
+                break;
+            case PRESENCE:
+                body = readPresenceUpdate(buffer);
+                break;
+            default:
+                body = null;
+                break;
+        }
+        
+        return new Packet(type, fromServer, toServer, timestamp, epoch, sequence, body);
+    }
+    
+    /**
+     * 复用相同的服务器ID字符串
+     */
+    private String intern(String serverId) {
+        if (serverId == null) {
+            return null;
+        }
+        
+        String interned = internedServerIds.get(serverId);
+        if (interned != null) {
+            return interned;
+        }
+        if (internedServerIds.size() < MAX_INTERNED) {
+            interned = internedServerIds.putIfAbsent(serverId, serverId);
+        }
+        return interned != null ? interned : serverId;
+    }
+    
+    private void writeServerInfo(PacketBuffer buffer, ServerInfo info) {
+        buffer.writeString(info.serverName);
+        buffer.writeString(info.serverId);
+        buffer.writeVarLong(info.heartbeat);
+        buffer.writeVarInt(info.playerCount);
+        // MSPT 保留两位小数
+        buffer.writeVarInt((int) Math.round(Math.max(0.0, info.mspt) * 100.0));
+    }
+    
+    private ServerInfo readServerInfo(PacketBuffer buffer) {
+        ServerInfo info = new ServerInfo();
+        info.serverName = intern(buffer.readString());
+        info.serverId = intern(buffer.readString());
+        info.heartbeat = buffer.readVarLong();
+        info.playerCount = buffer.readVarInt();
+        info.mspt = buffer.readVarInt() / 100.0;
+        info.lastSeen = System.currentTimeMillis();
+        return info;
+    }
+    
+    private void writeServerInfoList(PacketBuffer buffer, List<ServerInfo> infos) {
+        buffer.writeVarInt(infos.size());
+        for (ServerInfo info : infos) {
+            writeServerInfo(buffer, info);
+        }
+    }
+    
+    private List<ServerInfo> readServerInfoList(PacketBuffer buffer) {
+        int size = buffer.readVarInt();
+        if (size < 0 || size > buffer.readableBytes()) {
+            throw new IllegalArgumentException("成员表长度无效: " + size);
+        }
+        
+        List<ServerInfo> infos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            infos.add(readServerInfo(buffer));
+        }
+        return infos;
+    }
+    
+    private void writeBatch(PacketBuffer buffer, List<byte[]> payloads) {
+        buffer.writeVarInt(payloads.size());
+        for (byte[] payload : payloads) {
+            buffer.writeBytes(payload);
+        }
+    }
+    
+    private List<byte[]> readBatch(PacketBuffer buffer) {
+        int size = buffer.readVarInt();
+        if (size < 0 || size > buffer.readableBytes()) {
+            throw new IllegalArgumentException("批量消息数量无效: " + size);
+        }
+        
+        List<byte[]> payloads = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            payloads.add(buffer.readBytes());
+        }
+        return payloads;
+    }
+    
+    private void writePresenceUpdate(PacketBuffer buffer, PresenceUpdate update) {
+        buffer.writeBoolean(update.snapshot);
+        buffer.writeVarInt(update.online.size());
+        for (PlayerPresence presence : update.online) {
+            buffer.writeUuid(presence.uuid);
+            buffer.writeString(presence.name);
+            buffer.writeVarLong(presence.since);
+        }
+        buffer.writeVarInt(update.offline.size());
+        for (UUID uuid : update.offline) {
+            buffer.writeUuid(uuid);
+        }
+    }
+    
+    private PresenceUpdate readPresenceUpdate(PacketBuffer buffer) {
+        PresenceUpdate update = new PresenceUpdate();
+        update.snapshot = buffer.readBoolean();
+        
+        int online = buffer.readVarInt();
+        if (online < 0 || online > buffer.readableBytes()) {
+            throw new IllegalArgumentException("在线玩家数量无效: " + online);
+        }
+        for (int i = 0; i < online; i++) {
+            PlayerPresence presence = new PlayerPresence();
+            presence.uuid = buffer.readUuid();
+            presence.name = buffer.readString();
+            presence.since = buffer.readVarLong();
+            update.online.add(presence);
+        }
+        
+        int offline = buffer.readVarInt();
+        if (offline < 0 || offline > buffer.readableBytes()) {
+            throw new IllegalArgumentException("离线玩家数量无效: " + offline);
+        }
+        for (int i = 0; i < offline; i++) {
+            update.offline.add(buffer.readUuid());
+        }
+        return update;
+    }
+    
+    private void writeTeleportRequest(PacketBuffer buffer, TeleportRequest request) {
+        buffer.writeUuid(request.requestId);
+        buffer.writeString(request.sourcePlayerName);
+        buffer.writeNullableUuid(request.sourcePlayerUuid);
+        buffer.writeString(request.residenceName);
+        buffer.writeString(request.targetServerId);
+    }
+    
+    private TeleportRequest readTeleportRequest(PacketBuffer buffer) {
+        TeleportRequest request = new TeleportRequest();
+        request.requestId = buffer.readUuid();
+        request.sourcePlayerName = buffer.readString();
+        request.sourcePlayerUuid = buffer.readNullableUuid();
+        request.residenceName = buffer.readString();
+        request.targetServerId = intern(buffer.readString());
+        return request;
+    }
+    
+    private void writeTeleportResponse(PacketBuffer buffer, TeleportResponse response) {
+        buffer.writeUuid(response.requestId);
+        buffer.writeBoolean(response.success);
+        buffer.writeString(response.reason);
+    }
+    
+    private TeleportResponse readTeleportResponse(PacketBuffer buffer) {
+        TeleportResponse response = new TeleportResponse();
+        response.requestId = buffer.readUuid();
+        response.success = buffer.readBoolean();
+        response.reason = buffer.readString();
+        return response;
+    }
+    
+    private void writeResidenceQuery(PacketBuffer buffer, ResidenceQuery query) {
+        buffer.writeUuid(query.queryId);
+        buffer.writeString(query.residenceName);
+    }
+    
+    private ResidenceQuery readResidenceQuery(PacketBuffer buffer) {
+        ResidenceQuery query = new ResidenceQuery();
+        query.queryId = buffer.readUuid();
+        query.residenceName = buffer.readString();
+        return query;
+    }
+    
+    private void writeResidenceQueryResponse(PacketBuffer buffer, ResidenceQueryResponse response) {
+        buffer.writeUuid(response.queryId);
+        writeResidence(buffer, response.residence);
+    }
+    
+    private ResidenceQueryResponse readResidenceQueryResponse(PacketBuffer buffer) {
+        ResidenceQueryResponse response = new ResidenceQueryResponse();
+        response.queryId = buffer.readUuid();
+        response.residence = readResidence(buffer);
+        return response;
+    }
+    
+    /**
+     * 写入领地，坐标与数据库一致按方块取整
+     */
+    private void writeResidence(PacketBuffer buffer, ResidenceData residence) {
+        buffer.writeBoolean(residence != null);
+        if (residence == null) {
+            return;
+        }
+        
+        buffer.writeString(residence.getName());
+        buffer.writeUuid(residence.getOwnerUuidAsUUID());
+        buffer.writeString(residence.getServerId());
+        buffer.writeString(residence.getWorld());
+        buffer.writeZigZagInt((int) Math.floor(residence.getX1()));
+        buffer.writeZigZagInt((int) Math.floor(residence.getY1()));
+        buffer.writeZigZagInt((int) Math.floor(residence.getZ1()));
+        buffer.writeZigZagInt((int) Math.floor(residence.getX2()));
+        buffer.writeZigZagInt((int) Math.floor(residence.getY2()));
+        buffer.writeZigZagInt((int) Math.floor(residence.getZ2()));
+        buffer.writeVarLong(residence.getCreationTime() != null ? residence.getCreationTime().getTime() : 0L);
+        buffer.writeVarLong(residence.getLastModified() != null ? residence.getLastModified().getTime() : 0L);
+    }
+    
+    private ResidenceData readResidence(PacketBuffer buffer) {
+        if (!buffer.readBoolean()) {
+            return null;
+        }
+        
+        String name = buffer.readString();
+        String ownerUuid = buffer.readUuid().toString();
+        String serverId = intern(buffer.readString());
+        String world = buffer.readString();
+        int x1 = buffer.readZigZagInt();
+        int y1 = buffer.readZigZagInt();
+        int z1 = buffer.readZigZagInt();
+        int x2 = buffer.readZigZagInt();
+        int y2 = buffer.readZigZagInt();
+        int z2 = buffer.readZigZagInt();
+        long creationTime = buffer.readVarLong();
+        long lastModified = buffer.readVarLong();
+        
+        return new ResidenceData(name, ownerUuid, serverId, world, x1, y1, z1, x2, y2, z2,
+                creationTime > 0 ? new Timestamp(creationTime) : null,
+                lastModified > 0 ? new Timestamp(lastModified) : null);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package cn.popcraft.residencesync.messaging;
+
+/**
+ * 跨服消息类型
+ * 
+ * id 写入消息头，已发布的值不能修改，只能追加新的类型
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public enum PacketType {
+    SERVER_CONNECT(1),
+    SERVER_DISCONNECT(2),
+    TELEPORT_REQUEST(3),
+    TELEPORT_RESPONSE(4),
+    RESIDENCE_QUERY(5),
+    RESIDENCE_RESPONSE(6),
+    HEARTBEAT(7),
+    BATCH(8),
+    TELEPORT_ARRIVED(9),
+    PRESENCE(10);
+    
+    private static final PacketType[] BY_ID;
+    
+    static {
+        int maxId = 0;
+        for (PacketType type : values()) {
+            maxId = Math.max(maxId, type.id);
+        }
+        BY_ID = new PacketType[maxId + 1];
+        for (PacketType type : values()) {
+            BY_ID[type.id] = type;
+        }
+    }
+    
+    private final int id;
+    
+    PacketType(int id) {
+        this.id = id;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    /**
+     * 根据id获取消息类型，未知的id返回null
+     */
+    public static PacketType fromId(int id) {
+        return id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package cn.popcraft.residencesync.messaging;
+
+/**
+ * Phi 累积故障检测器
+ * 
+ * 记录最近若干次心跳的到达间隔，按正态分布估计"心跳在当前等待时间之后才到达"的概率 P，
+ * phi = -log10(P)。phi 随等待时间连续增长，超过阈值即认为对方疑似故障；
+ * 间隔抖动大的节点需要等待更久才会被判定故障。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class PhiAccrualFailureDetector {
+    
+    private final long[] intervals;
+    private final double minStdDeviationMillis;
+    private final long acceptablePauseMillis;
+    
+    private int count;
+    private int next;
+    private double sum;
+    private double squaredSum;
+    private long lastArrival = -1L;
+    
+    /**
+     * @param expectedIntervalMillis 预期心跳间隔，用于在收到足够心跳前估计分布
+     * @param windowSize 参与统计的最近间隔数量
+     * @param minStdDeviationMillis 标准差下限，避免间隔非常稳定时过于敏感
+     * @param acceptablePauseMillis 额外容忍的停顿时间，例如GC
+     */
+    public PhiAccrualFailureDetector(long expectedIntervalMillis, int windowSize,
+                                     double minStdDeviationMillis, long acceptablePauseMillis) {
+        this.intervals = new long[Math.max(2, windowSize)];
+        this.minStdDeviationMillis = Math.max(1.0, minStdDeviationMillis);
+        this.acceptablePauseMillis = Math.max(0L, acceptablePauseMillis);
+        
+        // 以预期间隔和 1/4 的标准差作为初始分布
+        long interval = Math.max(1L, expectedIntervalMillis);
+        long deviation = interval / 4;
+        record(interval - deviation);
+        record(interval + deviation);
+    }
+    
+    /**
+     * 记录一次心跳到达
+     */
+    public synchronized void heartbeat(long nowMillis) {
+        if (lastArrival >= 0 && nowMillis > lastArrival) {
+            record(nowMillis - lastArrival);
+        }
+        lastArrival = nowMillis;
+    }
+    
+    private void record(long interval) {
+        if (count == intervals.length) {
+            long removed = intervals[next];
+            sum -= removed;
+            squaredSum -= (double) removed * removed;
+        } else {
+            count++;
+        }
+        
+        intervals[next] = interval;
+        next = (next + 1) % intervals.length;
+        sum += interval;
+        squaredSum += (double) interval * interval;
+    }
+    
+    /**
+     * 当前的 phi 值，尚未收到心跳时为0
+     */
+    public synchronized double phi(long nowMillis) {
+        if (lastArrival < 0) {
+            return 0.0;
+        }
+        
+        double mean = sum / count;
+        double variance = Math.max(0.0, squaredSum / count - mean * mean);
+        double stdDeviation = Math.max(minStdDeviationMillis, Math.sqrt(variance));
+        
+        double elapsed = nowMillis - lastArrival;
+        double y = (elapsed - mean - acceptablePauseMillis) / stdDeviation;
+        
+        // 正态分布累积函数的 logistic 近似
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (elapsed > mean + acceptablePauseMillis) {
+            return -Math.log10(e / (1.0 + e));
+        }
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+    
+    /**
+     * 检查 phi 是否低于阈值
+     */
+    public boolean isAvailable(long nowMillis, double threshold) {
+        return phi(nowMillis) < threshold;
+    }
+    
+    /**
+     * 最后一次收到心跳的时间，尚未收到时为-1
+     */
+    public synchronized long getLastArrival() {
+        return lastArrival;
+    }
+}
\ No newline at end of file
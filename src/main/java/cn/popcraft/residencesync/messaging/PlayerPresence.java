@@ -0,0 +1,27 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.UUID;
+
+/**
+ * 玩家在线位置
+ * 
+ * serverId 不写入消息，由接收方按消息来源填写
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class PlayerPresence {
+    public UUID uuid;
+    public String name;
+    public String serverId;
+    public long since;
+    
+    public PlayerPresence() {}
+    
+    public PlayerPresence(UUID uuid, String name, String serverId, long since) {
+        this.uuid = uuid;
+        this.name = name;
+        this.serverId = serverId;
+        this.since = since;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 全网玩家在线位置表
+ * 
+ * 各子服在玩家进出时广播变化，并定期广播本服玩家的完整列表用于纠正丢失的变化。
+ * 按UUID和玩家名（忽略大小写）都可以 O(1) 查找玩家所在的子服。
+ * 玩家换服时新子服的进入和旧子服的退出可能乱序到达：退出只移除仍登记在该子服的记录，
+ * 进入只覆盖进入时间不晚于它的记录。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class PresenceDirectory {
+    
+    private final Map<UUID, PlayerPresence> byUuid = new ConcurrentHashMap<>();
+    private final Map<String, UUID> byName = new ConcurrentHashMap<>();
+    
+    /**
+     * 登记玩家进入子服
+     */
+    public synchronized void join(PlayerPresence presence) {
+        PlayerPresence previous = byUuid.get(presence.uuid);
+        if (previous != null) {
+            if (previous.since > presence.since && !previous.serverId.equals(presence.serverId)) {
+                return;
+            }
+            byName.remove(key(previous.name), previous.uuid);
+        }
+        
+        byUuid.put(presence.uuid, presence);
+        byName.put(key(presence.name), presence.uuid);
+    }
+    
+    /**
+     * 登记玩家离开子服，玩家已登记在其他子服时忽略
+     */
+    public synchronized void leave(UUID uuid, String serverId) {
+        PlayerPresence previous = byUuid.get(uuid);
+        if (previous != null && previous.serverId.equals(serverId)) {
+            byUuid.remove(uuid);
+            byName.remove(key(previous.name), uuid);
+        }
+    }
+    
+    /**
+     * 移除子服的所有玩家
+     * 
+     * @return 移除的玩家数量
+     */
+    public synchronized int removeServer(String serverId) {
+        int removed = 0;
+        for (PlayerPresence presence : new ArrayList<>(byUuid.values())) {
+            if (presence.serverId.equals(serverId)) {
+                byUuid.remove(presence.uuid);
+                byName.remove(key(presence.name), presence.uuid);
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * 应用来源子服发来的变化
+     */
+    public synchronized void apply(String serverId, PresenceUpdate update) {
+        if (update.snapshot) {
+            removeServer(serverId);
+        }
+        for (PlayerPresence presence : update.online) {
+            presence.serverId = serverId;
+            join(presence);
+        }
+        for (UUID uuid : update.offline) {
+            leave(uuid, serverId);
+        }
+    }
+    
+    /**
+     * 按UUID查找玩家，不在线时返回null
+     */
+    public PlayerPresence get(UUID uuid) {
+        return byUuid.get(uuid);
+    }
+    
+    /**
+     * 按玩家名查找玩家，忽略大小写，不在线时返回null
+     */
+    public PlayerPresence find(String name) {
+        UUID uuid = byName.get(key(name));
+        return uuid != null ? byUuid.get(uuid) : null;
+    }
+    
+    /**
+     * 各子服的在线玩家数量，按子服ID排序
+     */
+    public Map<String, Integer> getServerCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (PlayerPresence presence : byUuid.values()) {
+            counts.merge(presence.serverId, 1, Integer::sum);
+        }
+        return counts;
+    }
+    
+    /**
+     * 登记在子服的玩家
+     */
+    public List<PlayerPresence> getPlayers(String serverId) {
+        List<PlayerPresence> players = new ArrayList<>();
+        for (PlayerPresence presence : byUuid.values()) {
+            if (presence.serverId.equals(serverId)) {
+                players.add(presence);
+            }
+        }
+        return players;
+    }
+    
+    /**
+     * 全网在线玩家数量
+     */
+    public int size() {
+        return byUuid.size();
+    }
+    
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
\ No newline at end of file
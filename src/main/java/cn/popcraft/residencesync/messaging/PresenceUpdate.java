@@ -0,0 +1,27 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 玩家在线位置变化
+ * 
+ * snapshot 为true时接收方先清除来源子服的所有玩家，再加入 online 中的玩家
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class PresenceUpdate {
+    public boolean snapshot;
+    public List<PlayerPresence> online = new ArrayList<>();
+    public List<UUID> offline = new ArrayList<>();
+    
+    public PresenceUpdate() {}
+    
+    public PresenceUpdate(boolean snapshot, List<PlayerPresence> online, List<UUID> offline) {
+        this.snapshot = snapshot;
+        this.online = online;
+        this.offline = offline;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package cn.popcraft.residencesync.messaging;
+
+import cn.popcraft.residencesync.util.LoggerUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 通过代理切换玩家所在的子服
+ * 
+ * 使用 BungeeCord 频道的 Connect 子频道，与 MessageTransport 选用的传输方式无关；Velocity 同样支持该频道。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class ProxyConnector {
+    
+    private static final String BUNGEE_CHANNEL = "BungeeCord";
+    
+    private final cn.popcraft.residencesync.ResidenceSyncPlugin plugin;
+    
+    public ProxyConnector(cn.popcraft.residencesync.ResidenceSyncPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    public void start() {
+        Bukkit.getMessenger().registerOutgoingPluginChannel(plugin, BUNGEE_CHANNEL);
+    }
+    
+    public void stop() {
+        Bukkit.getMessenger().unregisterOutgoingPluginChannel(plugin, BUNGEE_CHANNEL);
+    }
+    
+    /**
+     * 请求代理把玩家转移到指定子服，只在主线程调用
+     * 
+     * @return 请求已发出时返回true，不代表玩家已经到达
+     */
+    public boolean connect(Player player, String serverName) {
+        if (!player.isOnline()) {
+            return false;
+        }
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("Connect");
+            out.writeUTF(serverName);
+        } catch (IOException e) {
+            LoggerUtil.severe("编码子服切换请求失败: " + e.getMessage(), e);
+            return false;
+        }
+        
+        player.sendPluginMessage(plugin, BUNGEE_CHANNEL, bytes.toByteArray());
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.UUID;
+
+/**
+ * 跨服领地查询
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class ResidenceQuery {
+    public UUID queryId;
+    public String residenceName;
+    
+    public ResidenceQuery() {}
+    
+    public ResidenceQuery(UUID queryId, String residenceName) {
+        this.queryId = queryId;
+        this.residenceName = residenceName;
+    }
+}
\ No newline at end of file
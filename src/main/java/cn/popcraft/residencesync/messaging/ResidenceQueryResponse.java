@@ -0,0 +1,23 @@
+package cn.popcraft.residencesync.messaging;
+
+import cn.popcraft.residencesync.database.ResidenceData;
+
+import java.util.UUID;
+
+/**
+ * 跨服领地查询响应，对方没有该领地时 residence 为null
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class ResidenceQueryResponse {
+    public UUID queryId;
+    public ResidenceData residence;
+    
+    public ResidenceQueryResponse() {}
+    
+    public ResidenceQueryResponse(UUID queryId, ResidenceData residence) {
+        this.queryId = queryId;
+        this.residence = residence;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按来源子服限流的令牌桶
+ * 
+ * 每个来源子服每秒补充 ratePerSecond 个令牌，最多积累 burst 个；没有令牌时拒绝。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class SenderRateLimiter {
+    
+    private final double ratePerNano;
+    private final double burst;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    
+    public SenderRateLimiter(double ratePerSecond, double burst) {
+        this.ratePerNano = Math.max(0.0, ratePerSecond) / 1_000_000_000.0;
+        this.burst = Math.max(1.0, burst);
+    }
+    
+    /**
+     * 尝试取得一个令牌
+     */
+    public boolean tryAcquire(String sender, long nowNanos) {
+        return buckets.computeIfAbsent(String.valueOf(sender), key -> new Bucket(burst, nowNanos))
+                .tryAcquire(nowNanos, ratePerNano, burst);
+    }
+    
+    /**
+     * 移除来源子服的令牌桶
+     */
+    public void remove(String sender) {
+        buckets.remove(sender);
+    }
+    
+    /**
+     * 一个来源子服的令牌
+     */
+    private static class Bucket {
+        
+        private double tokens;
+        private long lastRefillNanos;
+        
+        private Bucket(double tokens, long nowNanos) {
+            this.tokens = tokens;
+            this.lastRefillNanos = nowNanos;
+        }
+        
+        private synchronized boolean tryAcquire(long nowNanos, double ratePerNano, double burst) {
+            long elapsed = nowNanos - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(burst, tokens + elapsed * ratePerNano);
+                lastRefillNanos = nowNanos;
+            }
+            
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return true;
+            }
+            return false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package cn.popcraft.residencesync.messaging;
+
+/**
+ * 服务器信息
+ * 
+ * heartbeat 是该子服的心跳计数，启动时以当前时间戳为初值，每次发送心跳递增，重启后仍然大于旧值；
+ * 成员表只接受计数更大的信息，lastSeen 是本服最后一次看到计数增长的时间，不在网络上传输。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class ServerInfo {
+    public String serverName;
+    public String serverId;
+    public long lastSeen;
+    public int playerCount;
+    public long heartbeat;
+    // 平均每tick耗时（毫秒）
+    public double mspt;
+    
+    public ServerInfo() {}
+    
+    public ServerInfo(String serverName, String serverId) {
+        this.serverName = serverName;
+        this.serverId = serverId;
+        this.lastSeen = System.currentTimeMillis();
+    }
+    
+    /**
+     * 复制服务器信息，用于发送当前成员表的快照
+     */
+    public ServerInfo copy() {
+        ServerInfo copy = new ServerInfo();
+        copy.serverName = serverName;
+        copy.serverId = serverId;
+        copy.lastSeen = lastSeen;
+        copy.playerCount = playerCount;
+        copy.heartbeat = heartbeat;
+        copy.mspt = mspt;
+        return copy;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,616 @@
+package cn.popcraft.residencesync.messaging;
+
+import cn.popcraft.residencesync.util.LoggerUtil;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 子服直连的 NIO 套接字传输
+ * 
+ * 不经过 BungeeCord 插件消息，没有在线玩家的子服也能收发跨服消息。
+ * 一个选择器线程负责所有连接：本服监听一个地址接收消息，并为每个已配置的子服维护一条复用的出站连接，
+ * 断开后按指数退避重连。帧格式为 [4字节长度][消息内容]。同一台机器上的子服可以使用 Unix 域套接字（unix:路径）。
+ * 收到的消息交给 receiveExecutor 执行，每批消息只调度一次；插件中直接在选择器线程放入 InboundQueue。
+ * 配置了共享密钥时，入站连接建立后先发送随机挑战，对方必须回复 HMAC-SHA256(密钥, 挑战) 才能发送消息；
+ * 没有密钥时只允许监听回环地址或 Unix 域套接字，避免任何能访问端口的人注入消息。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class SocketMessageTransport implements MessageTransport {
+    
+    // 单帧最大长度，超过时认为数据损坏并断开连接
+    private static final int MAX_FRAME_SIZE = 1 << 20;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final String UNIX_PREFIX = "unix:";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int CHALLENGE_SIZE = 16;
+    private static final int RESPONSE_SIZE = 32;
+    
+    private final String bindAddress;
+    // 为null时不认证
+    private final SecretKeySpec secretKey;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Peer> peers = new LinkedHashMap<>();
+    private final int maxQueuedPerPeer;
+    private final long reconnectMinMillis;
+    private final long reconnectMaxMillis;
+    private final Executor receiveExecutor;
+    
+    private final Queue<byte[]> received = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    
+    private Consumer<byte[]> receiver;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+    
+    /**
+     * @param bindAddress 本服监听地址，host:port 或 unix:路径
+     * @param peerAddresses 其他子服ID到地址的映射
+     * @param secret 所有子服共用的密钥，为空时不认证
+     * @param receiveExecutor 执行收到消息的回调
+     */
+    public SocketMessageTransport(String bindAddress, Map<String, String> peerAddresses, String secret, int maxQueuedPerPeer,
+                                  long reconnectMinMillis, long reconnectMaxMillis, Executor receiveExecutor) {
+        this.bindAddress = bindAddress;
+        this.secretKey = secret == null || secret.isEmpty()
+                ? null : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.maxQueuedPerPeer = Math.max(1, maxQueuedPerPeer);
+        this.reconnectMinMillis = Math.max(10L, reconnectMinMillis);
+        this.reconnectMaxMillis = Math.max(this.reconnectMinMillis, reconnectMaxMillis);
+        this.receiveExecutor = receiveExecutor;
+        
+        peerAddresses.forEach((serverId, address) -> peers.put(serverId, new Peer(serverId, address)));
+    }
+    
+    @Override
+    public String getName() {
+        return "Socket (" + bindAddress + ")";
+    }
+    
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        
+        SocketAddress address = parseAddress(bindAddress);
+        if (secretKey == null && address instanceof InetSocketAddress && !isLoopback((InetSocketAddress) address)) {
+            throw new IllegalStateException("跨服套接字监听非回环地址 " + bindAddress + " 时必须配置 messaging.socket.secret");
+        }
+        
+        try {
+            selector = Selector.open();
+            
+            if (address instanceof UnixDomainSocketAddress) {
+                // 删除上次运行留下的套接字文件
+                Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+                serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            } else {
+                serverChannel = ServerSocketChannel.open();
+            }
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(address);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new IllegalStateException("跨服套接字监听 " + bindAddress + " 失败: " + e.getMessage(), e);
+        }
+        
+        running = true;
+        selectorThread = new Thread(this::runSelector, "ResidenceSync-Socket");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+    
+    @Override
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        
+        if (selectorThread != null) {
+            try {
+                selectorThread.join(2000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            selectorThread = null;
+        }
+    }
+    
+    @Override
+    public void send(String targetServer, byte[] payload) {
+        if (ALL_SERVERS.equals(targetServer)) {
+            for (Peer peer : peers.values()) {
+                enqueue(peer, payload);
+            }
+            return;
+        }
+        
+        Peer peer = peers.get(targetServer);
+        if (peer == null) {
+            droppedCount.incrementAndGet();
+            LoggerUtil.debug("未配置子服 " + targetServer + " 的套接字地址，消息已丢弃");
+            return;
+        }
+        enqueue(peer, payload);
+    }
+    
+    /**
+     * 套接字传输不知道玩家所在的子服，发往所有子服，由玩家所在的子服处理
+     */
+    @Override
+    public void sendToPlayer(String playerName, byte[] payload) {
+        send(ALL_SERVERS, payload);
+    }
+    
+    private void enqueue(Peer peer, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(4 + payload.length);
+        frame.putInt(payload.length).put(payload).flip();
+        
+        peer.queue.offer(frame);
+        queuedCount.incrementAndGet();
+        
+        // 队列已满时丢弃最早的消息
+        if (peer.queueSize.incrementAndGet() > maxQueuedPerPeer && peer.queue.poll() != null) {
+            peer.queueSize.decrementAndGet();
+            queuedCount.decrementAndGet();
+            droppedCount.incrementAndGet();
+        }
+        
+        Selector selector = this.selector;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+    
+    /**
+     * 选择器线程主循环
+     */
+    private void runSelector() {
+        try {
+            while (running) {
+                long now = System.currentTimeMillis();
+                long waitMillis = updatePeers(now);
+                
+                selector.select(Math.max(1L, waitMillis));
+                
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handleKey(key);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            LoggerUtil.severe("跨服套接字选择器异常退出: " + e.getMessage(), e);
+        } finally {
+            closeAll();
+        }
+    }
+    
+    /**
+     * 发起到期的重连，为有待发送消息的连接注册写事件
+     * 
+     * @return 距离下一次重连的毫秒数
+     */
+    private long updatePeers(long now) {
+        long waitMillis = reconnectMaxMillis;
+        for (Peer peer : peers.values()) {
+            if (peer.channel == null) {
+                if (now >= peer.nextConnectAt) {
+                    connect(peer, now);
+                } else {
+                    waitMillis = Math.min(waitMillis, peer.nextConnectAt - now);
+                    continue;
+                }
+            }
+            
+            if (peer.ready && (peer.handshake != null || peer.writing != null || !peer.queue.isEmpty())) {
+                SelectionKey key = peer.channel.keyFor(selector);
+                if (key != null && key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            }
+        }
+        return waitMillis;
+    }
+    
+    private void connect(Peer peer, long now) {
+        try {
+            SocketAddress address = parseAddress(peer.address);
+            SocketChannel channel = address instanceof UnixDomainSocketAddress
+                    ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+            channel.configureBlocking(false);
+            if (address instanceof InetSocketAddress) {
+                channel.socket().setTcpNoDelay(true);
+            }
+            
+            peer.channel = channel;
+            if (channel.connect(address)) {
+                onConnected(peer);
+                channel.register(selector, SelectionKey.OP_READ, peer);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, peer);
+            }
+        } catch (IOException e) {
+            disconnect(peer, now, e);
+        }
+    }
+    
+    private void handleKey(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        
+        Object attachment = key.attachment();
+        try {
+            if (key.isAcceptable()) {
+                accept();
+            } else if (attachment instanceof Peer) {
+                Peer peer = (Peer) attachment;
+                if (key.isConnectable()) {
+                    finishConnect(key, peer);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    write(key, peer);
+                }
+                if (key.isValid() && key.isReadable()) {
+                    readPeer(peer);
+                }
+            } else if (attachment instanceof Inbound && key.isReadable()) {
+                read(key, (Inbound) attachment);
+            }
+        } catch (IOException e) {
+            if (attachment instanceof Peer) {
+                disconnect((Peer) attachment, System.currentTimeMillis(), e);
+            } else {
+                closeQuietly(key.channel());
+            }
+        }
+    }
+    
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        
+        channel.configureBlocking(false);
+        Inbound inbound = new Inbound();
+        if (secretKey != null) {
+            // 挑战只有几个字节，新连接的发送缓冲区一定能一次写完
+            byte[] challenge = new byte[CHALLENGE_SIZE];
+            random.nextBytes(challenge);
+            ByteBuffer buffer = ByteBuffer.wrap(challenge);
+            channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                closeQuietly(channel);
+                return;
+            }
+            inbound.expectedResponse = hmac(challenge);
+        }
+        channel.register(selector, SelectionKey.OP_READ, inbound);
+    }
+    
+    private void finishConnect(SelectionKey key, Peer peer) throws IOException {
+        if (peer.channel.finishConnect()) {
+            onConnected(peer);
+            key.interestOps(SelectionKey.OP_READ);
+            LoggerUtil.debug("已连接跨服套接字 " + peer.serverId + " (" + peer.address + ")");
+        }
+    }
+    
+    /**
+     * 出站连接建立，需要认证时等待对方的挑战，否则可以直接发送
+     */
+    private void onConnected(Peer peer) {
+        peer.connected = true;
+        peer.backoffMillis = 0L;
+        peer.ready = secretKey == null;
+        peer.challenge.clear();
+    }
+    
+    /**
+     * 读取出站连接上的挑战，收齐后准备回复；之后对方不再发送数据，读到末尾说明对方关闭了连接
+     */
+    private void readPeer(Peer peer) throws IOException {
+        ByteBuffer buffer = peer.ready ? ByteBuffer.allocate(256) : peer.challenge;
+        if (peer.channel.read(buffer) < 0) {
+            throw new IOException("连接已被对方关闭");
+        }
+        
+        if (!peer.ready && !peer.challenge.hasRemaining()) {
+            peer.handshake = ByteBuffer.wrap(hmac(peer.challenge.array()));
+            peer.ready = true;
+        }
+    }
+    
+    /**
+     * 写出认证回复和待发送的帧，写不完时保留写事件，写完后取消
+     */
+    private void write(SelectionKey key, Peer peer) throws IOException {
+        if (peer.handshake != null) {
+            peer.channel.write(peer.handshake);
+            if (peer.handshake.hasRemaining()) {
+                return;
+            }
+            peer.handshake = null;
+        }
+        
+        while (true) {
+            if (peer.writing == null) {
+                peer.writing = peer.queue.poll();
+                if (peer.writing == null) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+                peer.queueSize.decrementAndGet();
+                queuedCount.decrementAndGet();
+            }
+            
+            peer.channel.write(peer.writing);
+            if (peer.writing.hasRemaining()) {
+                return;
+            }
+            peer.writing = null;
+            sentCount.incrementAndGet();
+        }
+    }
+    
+    /**
+     * 读取入站连接的数据并拆分为帧
+     */
+    private void read(SelectionKey key, Inbound inbound) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        int read = channel.read(inbound.buffer);
+        if (read < 0) {
+            closeQuietly(channel);
+            return;
+        }
+        
+        ByteBuffer buffer = inbound.buffer;
+        buffer.flip();
+        
+        // 认证前的数据只能是挑战的回复
+        if (inbound.expectedResponse != null) {
+            if (buffer.remaining() < RESPONSE_SIZE) {
+                buffer.compact();
+                return;
+            }
+            byte[] response = new byte[RESPONSE_SIZE];
+            buffer.get(response);
+            if (!MessageDigest.isEqual(response, inbound.expectedResponse)) {
+                LoggerUtil.warning("跨服套接字认证失败，已断开来自 " + channel.getRemoteAddress() + " 的连接");
+                throw new IOException("跨服套接字认证失败");
+            }
+            inbound.expectedResponse = null;
+        }
+        
+        boolean delivered = false;
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt(buffer.position());
+            if (length < 0 || length > MAX_FRAME_SIZE) {
+                throw new IOException("跨服消息帧长度无效: " + length);
+            }
+            if (buffer.remaining() < 4 + length) {
+                break;
+            }
+            
+            buffer.position(buffer.position() + 4);
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            received.add(payload);
+            delivered = true;
+        }
+        buffer.compact();
+        
+        // 帧大于缓冲区时扩容
+        if (!buffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(MAX_FRAME_SIZE + 4, buffer.capacity() * 2));
+            buffer.flip();
+            larger.put(buffer);
+            inbound.buffer = larger;
+        }
+        
+        if (delivered) {
+            scheduleDelivery();
+        }
+    }
+    
+    /**
+     * 把收到的消息交给接收方，同一时间最多调度一次
+     */
+    private void scheduleDelivery() {
+        if (!deliveryScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        
+        receiveExecutor.execute(() -> {
+            deliveryScheduled.set(false);
+            byte[] payload;
+            while ((payload = received.poll()) != null) {
+                try {
+                    receiver.accept(payload);
+                } catch (Exception e) {
+                    LoggerUtil.severe("处理跨服消息失败: " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+    
+    /**
+     * 断开出站连接并按指数退避安排重连，未发完的帧从头重发
+     */
+    private void disconnect(Peer peer, long now, IOException cause) {
+        if (peer.connected) {
+            LoggerUtil.warning("与子服 " + peer.serverId + " 的跨服连接已断开: " + cause.getMessage());
+        }
+        
+        closeQuietly(peer.channel);
+        peer.channel = null;
+        peer.connected = false;
+        peer.ready = false;
+        peer.handshake = null;
+        if (peer.writing != null) {
+            peer.writing.rewind();
+        }
+        
+        peer.backoffMillis = peer.backoffMillis == 0L
+                ? reconnectMinMillis : Math.min(reconnectMaxMillis, peer.backoffMillis * 2);
+        peer.nextConnectAt = now + peer.backoffMillis;
+    }
+    
+    private void closeAll() {
+        for (Peer peer : peers.values()) {
+            closeQuietly(peer.channel);
+            peer.channel = null;
+            peer.connected = false;
+        }
+        if (selector != null) {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+        }
+        closeQuietly(serverChannel);
+        
+        try {
+            SocketAddress address = parseAddress(bindAddress);
+            if (address instanceof UnixDomainSocketAddress) {
+                Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            }
+        } catch (IOException e) {
+            LoggerUtil.debug("删除跨服套接字文件失败: " + e.getMessage());
+        }
+    }
+    
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+    
+    private byte[] hmac(byte[] challenge) throws IOException {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secretKey);
+            return mac.doFinal(challenge);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("计算跨服套接字认证码失败: " + e.getMessage(), e);
+        }
+    }
+    
+    private static boolean isLoopback(InetSocketAddress address) {
+        return address.getAddress() != null && address.getAddress().isLoopbackAddress();
+    }
+    
+    /**
+     * 解析地址，unix:路径 为 Unix 域套接字，其他为 host:port
+     */
+    static SocketAddress parseAddress(String address) {
+        if (address.startsWith(UNIX_PREFIX)) {
+            return UnixDomainSocketAddress.of(Path.of(address.substring(UNIX_PREFIX.length())));
+        }
+        
+        int separator = address.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("无效的跨服套接字地址: " + address);
+        }
+        return new InetSocketAddress(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+    }
+    
+    @Override
+    public int getQueuedCount() {
+        return queuedCount.get();
+    }
+    
+    @Override
+    public long getSentCount() {
+        return sentCount.get();
+    }
+    
+    @Override
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    /**
+     * 已建立出站连接的子服数量
+     */
+    public int getConnectedPeerCount() {
+        int connected = 0;
+        for (Peer peer : peers.values()) {
+            if (peer.connected) {
+                connected++;
+            }
+        }
+        return connected;
+    }
+    
+    /**
+     * 到一个子服的出站连接
+     */
+    private static class Peer {
+        
+        private final String serverId;
+        private final String address;
+        private final Queue<ByteBuffer> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queueSize = new AtomicInteger();
+        
+        // 以下字段只在选择器线程中访问
+        private SocketChannel channel;
+        private volatile boolean connected;
+        // 已完成认证，可以发送消息
+        private boolean ready;
+        private final ByteBuffer challenge = ByteBuffer.allocate(CHALLENGE_SIZE);
+        private ByteBuffer handshake;
+        private ByteBuffer writing;
+        private long backoffMillis;
+        private long nextConnectAt;
+        
+        private Peer(String serverId, String address) {
+            this.serverId = serverId;
+            this.address = address;
+        }
+    }
+    
+    /**
+     * 入站连接的读取状态
+     */
+    private static class Inbound {
+        
+        private ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        // 等待的认证回复，为null时已认证或不需要认证
+        private byte[] expectedResponse;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.UUID;
+
+/**
+ * 跨服传送请求
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class TeleportRequest {
+    public UUID requestId;
+    public String sourcePlayerName;
+    public UUID sourcePlayerUuid;
+    public String residenceName;
+    public String targetServerId;
+    
+    public TeleportRequest() {}
+    
+    public TeleportRequest(UUID requestId, String sourcePlayerName, UUID sourcePlayerUuid,
+                           String residenceName, String targetServerId) {
+        this.requestId = requestId;
+        this.sourcePlayerName = sourcePlayerName;
+        this.sourcePlayerUuid = sourcePlayerUuid;
+        this.residenceName = residenceName;
+        this.targetServerId = targetServerId;
+    }
+}
\ No newline at end of file
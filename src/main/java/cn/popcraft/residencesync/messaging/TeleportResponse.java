@@ -0,0 +1,23 @@
+package cn.popcraft.residencesync.messaging;
+
+import java.util.UUID;
+
+/**
+ * 跨服传送响应
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class TeleportResponse {
+    public UUID requestId;
+    public boolean success;
+    public String reason;
+    
+    public TeleportResponse() {}
+    
+    public TeleportResponse(UUID requestId, boolean success, String reason) {
+        this.requestId = requestId;
+        this.success = success;
+        this.reason = reason;
+    }
+}
\ No newline at end of file
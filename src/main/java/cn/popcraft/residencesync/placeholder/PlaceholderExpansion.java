@@ -1,15 +1,9 @@
 package cn.popcraft.residencesync.placeholder;
 
-import cn.popcraft.residencesync.service.ResidenceService;
-import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-
 /**
  * PlaceholderAPI扩展类
  * 
@@ -19,17 +13,27 @@ import java.util.concurrent.ExecutionException;
  * - %residencesync_ressize% - 玩家拥有的领地数量
  * - %residencesync_reslist_<索引>% - 玩家拥有的领地名称列表
  * 
+ * 占位符只读取 PlaceholderSnapshotStore 中的快照，不会阻塞主线程
+ * 
  * @author MiniMax Agent
  * @version 1.0.0
  */
-public class PlaceholderExpansion extends PlaceholderExpansion {
+public class PlaceholderExpansion extends me.clip.placeholderapi.expansion.PlaceholderExpansion {
     
     private final cn.popcraft.residencesync.ResidenceSyncPlugin plugin;
-    private final ResidenceService residenceService;
+    private final PlaceholderSnapshotStore snapshotStore;
     
     public PlaceholderExpansion(cn.popcraft.residencesync.ResidenceSyncPlugin plugin) {
         this.plugin = plugin;
-        this.residenceService = plugin.getResidenceService();
+        this.snapshotStore = new PlaceholderSnapshotStore(plugin.getResidenceService(),
+                plugin.getPluginConfig().getPlaceholderRefreshSeconds() * 1000L);
+    }
+    
+    /**
+     * 获取占位符快照存储
+     */
+    public PlaceholderSnapshotStore getSnapshotStore() {
+        return snapshotStore;
     }
     
     @Override
@@ -92,15 +96,7 @@ public class PlaceholderExpansion extends PlaceholderExpansion {
             return "0";
         }
         
-        try {
-            // 异步获取领地数量
-            CompletableFuture<Integer> future = residenceService.getPlayerResidenceCount(player.getPlayer());
-            // 等待结果（注意：这可能会阻塞线程）
-            return future.get().toString();
-        } catch (InterruptedException | ExecutionException e) {
-            plugin.getLogger().warning("获取玩家领地数量失败: " + e.getMessage());
-            return "0";
-        }
+        return String.valueOf(snapshotStore.get(player.getUniqueId()).getCount());
     }
     
     /**
@@ -125,20 +121,8 @@ public class PlaceholderExpansion extends PlaceholderExpansion {
             return "";
         }
         
-        try {
-            CompletableFuture<List<String>> future = residenceService.getPlayerAccessibleResidenceNames(player.getPlayer());
-            List<String> residenceNames = future.get();
-            
-            if (index <= 0 || index > residenceNames.size()) {
-                return "";
-            }
-            
-            return residenceNames.get(index - 1); // 转换为0基索引
-            
-        } catch (InterruptedException | ExecutionException e) {
-            plugin.getLogger().warning("获取玩家领地列表失败: " + e.getMessage());
-            return "";
-        }
+        String residenceName = snapshotStore.get(player.getUniqueId()).getResidenceName(index - 1); // 转换为0基索引
+        return residenceName != null ? residenceName : "";
     }
     
     /**
@@ -210,7 +194,7 @@ public class PlaceholderExpansion extends PlaceholderExpansion {
      * 处理领地详情占位符
      */
     private String handleResidenceDetail(OfflinePlayer player, String[] args) {
-        if (args.length < 2) {
+        if (player == null || args.length < 2) {
             return "";
         }
         
@@ -221,31 +205,17 @@ public class PlaceholderExpansion extends PlaceholderExpansion {
             return "";
         }
         
-        try {
-            CompletableFuture<List<String>> future = residenceService.getPlayerAccessibleResidenceNames(player.getPlayer());
-            List<String> residenceNames = future.get();
-            
-            if (index < 0 || index >= residenceNames.size()) {
-                return "";
-            }
-            
-            String residenceName = residenceNames.get(index);
-            
-            // 可以在这里返回更详细的信息，如服务器ID、位置等
-            // 暂时只返回名称
-            return residenceName;
-            
-        } catch (InterruptedException | ExecutionException e) {
-            plugin.getLogger().warning("获取领地详情失败: " + e.getMessage());
-            return "";
-        }
+        // 可以在这里返回更详细的信息，如服务器ID、位置等
+        // 暂时只返回名称
+        String residenceName = snapshotStore.get(player.getUniqueId()).getResidenceName(index);
+        return residenceName != null ? residenceName : "";
     }
     
     /**
      * 处理领地服务器信息占位符
      */
     private String handleResidenceServer(OfflinePlayer player, String[] args) {
-        if (args.length < 2) {
+        if (player == null || args.length < 2) {
             return "";
         }
         
@@ -256,23 +226,8 @@ public class PlaceholderExpansion extends PlaceholderExpansion {
             return "";
         }
         
-        try {
-            CompletableFuture<List<String>> future = residenceService.getPlayerAccessibleResidenceNames(player.getPlayer());
-            List<String> residenceNames = future.get();
-            
-            if (index < 0 || index >= residenceNames.size()) {
-                return "";
-            }
-            
-            String residenceName = residenceNames.get(index);
-            
-            // 获取领地所在服务器
-            // 这里需要从数据库查询，简化实现返回当前服务器
-            return plugin.getPluginConfig().getServerId();
-            
-        } catch (InterruptedException | ExecutionException e) {
-            plugin.getLogger().warning("获取领地服务器信息失败: " + e.getMessage());
-            return "";
-        }
+        // 获取领地所在服务器
+        String serverId = snapshotStore.get(player.getUniqueId()).getServerId(index);
+        return serverId != null ? serverId : "";
     }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package cn.popcraft.residencesync.placeholder;
+
+import cn.popcraft.residencesync.database.ResidenceData;
+import cn.popcraft.residencesync.service.ResidenceService;
+import cn.popcraft.residencesync.util.LoggerUtil;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 占位符快照存储
+ * 
+ * 为每个玩家预先计算领地数量、排序后的领地名称及其所在服务器，
+ * 占位符请求只读取快照，不会阻塞调用线程。快照过期或领地变更时在后台异步刷新，
+ * 刷新完成前继续返回上一次的结果。玩家退出时移除快照。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class PlaceholderSnapshotStore {
+    
+    private final ResidenceService residenceService;
+    private final long refreshIntervalMillis;
+    private final Map<UUID, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Set<UUID> refreshing = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> pendingRefresh = ConcurrentHashMap.newKeySet();
+    // 刷新期间被移除的玩家，刷新完成后不保存结果
+    private final Set<UUID> evicted = ConcurrentHashMap.newKeySet();
+    
+    public PlaceholderSnapshotStore(ResidenceService residenceService, long refreshIntervalMillis) {
+        this.residenceService = residenceService;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        
+        // 领地变更时刷新相关玩家的快照
+        residenceService.addOwnerChangeListener(this::onOwnerChanged);
+    }
+    
+    /**
+     * 获取玩家的快照，不存在或已过期时触发后台刷新
+     * 
+     * @return 最近一次的快照，尚未加载时返回空快照
+     */
+    public Snapshot get(UUID playerUuid) {
+        Snapshot snapshot = snapshots.get(playerUuid);
+        if (snapshot == null || System.currentTimeMillis() - snapshot.createdAt > refreshIntervalMillis) {
+            refresh(playerUuid);
+        }
+        return snapshot != null ? snapshot : Snapshot.EMPTY;
+    }
+    
+    /**
+     * 移除玩家的快照，正在进行的刷新完成后也不会保存
+     */
+    public void remove(UUID playerUuid) {
+        if (refreshing.contains(playerUuid)) {
+            evicted.add(playerUuid);
+        }
+        pendingRefresh.remove(playerUuid);
+        snapshots.remove(playerUuid);
+    }
+    
+    /**
+     * 领地变更时刷新已有的快照，正在刷新时在当前刷新完成后再刷新一次
+     */
+    private void onOwnerChanged(UUID playerUuid) {
+        if (!snapshots.containsKey(playerUuid)) {
+            return;
+        }
+        
+        if (refreshing.contains(playerUuid)) {
+            pendingRefresh.add(playerUuid);
+        } else {
+            refresh(playerUuid);
+        }
+    }
+    
+    /**
+     * 异步刷新玩家的快照，同一玩家同时只会有一个刷新任务
+     */
+    private void refresh(UUID playerUuid) {
+        if (!refreshing.add(playerUuid)) {
+            return;
+        }
+        // 清除上一次刷新结束后才登记的移除标记
+        evicted.remove(playerUuid);
+        
+        residenceService.getPlayerResidences(playerUuid).whenComplete((residences, throwable) -> {
+            boolean removed = evicted.remove(playerUuid);
+            if (throwable != null) {
+                LoggerUtil.warning("刷新玩家占位符快照失败: " + throwable.getMessage());
+            } else if (!removed) {
+                snapshots.put(playerUuid, Snapshot.of(residences));
+            }
+            
+            refreshing.remove(playerUuid);
+            if (pendingRefresh.remove(playerUuid)) {
+                refresh(playerUuid);
+            }
+        });
+    }
+    
+    /**
+     * 玩家领地快照
+     */
+    public static class Snapshot {
+        
+        private static final Snapshot EMPTY = new Snapshot(List.of(), List.of(), 0L);
+        
+        private final List<String> residenceNames;
+        private final List<String> serverIds;
+        private final long createdAt;
+        
+        private Snapshot(List<String> residenceNames, List<String> serverIds, long createdAt) {
+            this.residenceNames = residenceNames;
+            this.serverIds = serverIds;
+            this.createdAt = createdAt;
+        }
+        
+        /**
+         * 根据领地列表生成快照，领地按名称排序，不区分大小写，与领地名称补全的顺序一致
+         */
+        private static Snapshot of(List<ResidenceData> residences) {
+            List<ResidenceData> sorted = new ArrayList<>(residences);
+            sorted.sort(Comparator.comparing(ResidenceData::getName, String.CASE_INSENSITIVE_ORDER));
+            
+            List<String> names = new ArrayList<>(sorted.size());
+            List<String> servers = new ArrayList<>(sorted.size());
+            for (ResidenceData residence : sorted) {
+                names.add(residence.getName());
+                servers.add(residence.getServerId());
+            }
+            
+            return new Snapshot(Collections.unmodifiableList(names), Collections.unmodifiableList(servers),
+                    System.currentTimeMillis());
+        }
+        
+        public int getCount() {
+            return residenceNames.size();
+        }
+        
+        /**
+         * 获取指定位置（0基）的领地名称，越界时返回null
+         */
+        public String getResidenceName(int index) {
+            return index >= 0 && index < residenceNames.size() ? residenceNames.get(index) : null;
+        }
+        
+        /**
+         * 获取指定位置（0基）的领地所在服务器，越界时返回null
+         */
+        public String getServerId(int index) {
+            return index >= 0 && index < serverIds.size() ? serverIds.get(index) : null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,174 @@
+package cn.popcraft.residencesync.service;
+
+import cn.popcraft.residencesync.util.LoggerUtil;
+import cn.popcraft.residencesync.util.TimingWheel;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 等待玩家进入的跨服传送落点表
+ * 
+ * 目标子服收到传送请求时提前加载区块并计算落点，按玩家UUID登记在这里；玩家进入本服时直接取出落点传送。
+ * 落点所在区块持有插件区块票据，玩家到达或落点过期前不会被卸载；同一区块的多个落点共用一张票据。
+ * 只在主线程访问。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class ArrivalTable {
+    
+    // 时间轮刻度与服务端tick一致
+    private static final long TICK_MILLIS = 50L;
+    private static final int WHEEL_SIZE = 256;
+    
+    private final cn.popcraft.residencesync.ResidenceSyncPlugin plugin;
+    private final long timeoutMillis;
+    private final Map<UUID, Arrival> arrivals = new HashMap<>();
+    private final Map<String, Integer> chunkTickets = new HashMap<>();
+    private final TimingWheel<Arrival> wheel;
+    
+    public ArrivalTable(cn.popcraft.residencesync.ResidenceSyncPlugin plugin, long timeoutMillis) {
+        this.plugin = plugin;
+        this.timeoutMillis = Math.max(TICK_MILLIS, timeoutMillis);
+        this.wheel = new TimingWheel<>(TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+    }
+    
+    /**
+     * 登记玩家的落点，替换该玩家之前的落点；落点所在区块必须已经加载
+     * 
+     * @param requestId 传送请求ID，玩家到达后回复给来源子服
+     */
+    public void put(UUID playerUuid, Location location, String residenceName, UUID requestId, String sourceServerId) {
+        Arrival previous = arrivals.remove(playerUuid);
+        if (previous != null) {
+            previous.timeout.cancel();
+            release(previous);
+        }
+        
+        Arrival arrival = new Arrival(playerUuid, location, residenceName, requestId, sourceServerId);
+        arrival.timeout = wheel.schedule(arrival, System.currentTimeMillis() + timeoutMillis);
+        arrivals.put(playerUuid, arrival);
+        acquire(arrival);
+    }
+    
+    /**
+     * 查找指定传送请求登记的落点，不取出
+     * 
+     * @return 玩家没有落点或落点属于其他请求时返回null
+     */
+    public Arrival find(UUID playerUuid, UUID requestId) {
+        Arrival arrival = arrivals.get(playerUuid);
+        return arrival != null && arrival.requestId.equals(requestId) ? arrival : null;
+    }
+    
+    /**
+     * 取出玩家的落点
+     * 
+     * @return 没有落点时返回null
+     */
+    public Arrival take(UUID playerUuid) {
+        Arrival arrival = arrivals.remove(playerUuid);
+        if (arrival == null) {
+            return null;
+        }
+        
+        arrival.timeout.cancel();
+        release(arrival);
+        return arrival;
+    }
+    
+    /**
+     * 推进时间轮，移除过期的落点
+     */
+    public void expire(long nowMillis) {
+        wheel.advance(nowMillis, arrival -> {
+            arrivals.remove(arrival.playerUuid);
+            release(arrival);
+            LoggerUtil.debug("玩家 " + arrival.playerUuid + " 未在时限内到达，移除传送落点");
+        });
+    }
+    
+    /**
+     * 移除所有落点
+     */
+    public void clear() {
+        wheel.clear(this::release);
+        arrivals.clear();
+    }
+    
+    /**
+     * 等待到达的玩家数量
+     */
+    public int size() {
+        return arrivals.size();
+    }
+    
+    private void acquire(Arrival arrival) {
+        Chunk chunk = arrival.location.getChunk();
+        String key = chunkKey(chunk);
+        if (chunkTickets.merge(key, 1, Integer::sum) == 1) {
+            chunk.addPluginChunkTicket(plugin);
+        }
+    }
+    
+    private void release(Arrival arrival) {
+        Chunk chunk = arrival.location.getChunk();
+        String key = chunkKey(chunk);
+        Integer count = chunkTickets.get(key);
+        if (count == null) {
+            return;
+        }
+        
+        if (count <= 1) {
+            chunkTickets.remove(key);
+            chunk.removePluginChunkTicket(plugin);
+        } else {
+            chunkTickets.put(key, count - 1);
+        }
+    }
+    
+    private static String chunkKey(Chunk chunk) {
+        return chunk.getWorld().getName() + ":" + chunk.getX() + ":" + chunk.getZ();
+    }
+    
+    /**
+     * 等待玩家到达的落点
+     */
+    public static class Arrival {
+        
+        private final UUID playerUuid;
+        private final Location location;
+        private final String residenceName;
+        private final UUID requestId;
+        private final String sourceServerId;
+        private TimingWheel.Timeout<Arrival> timeout;
+        
+        private Arrival(UUID playerUuid, Location location, String residenceName, UUID requestId, String sourceServerId) {
+            this.playerUuid = playerUuid;
+            this.location = location;
+            this.residenceName = residenceName;
+            this.requestId = requestId;
+            this.sourceServerId = sourceServerId;
+        }
+        
+        public Location getLocation() {
+            return location;
+        }
+        
+        public String getResidenceName() {
+            return residenceName;
+        }
+        
+        public UUID getRequestId() {
+            return requestId;
+        }
+        
+        public String getSourceServerId() {
+            return sourceServerId;
+        }
+    }
+}
\ No newline at end of file
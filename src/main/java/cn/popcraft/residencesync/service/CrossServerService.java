@@ -1,105 +1,390 @@
 package cn.popcraft.residencesync.service;
 
 import cn.popcraft.residencesync.database.ResidenceData;
+import cn.popcraft.residencesync.messaging.*;
 import cn.popcraft.residencesync.util.LoggerUtil;
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 跨服服务类
  * 
- * 处理跨服务器通信，包括数据同步、传送请求等
+ * 处理跨服务器通信，包括数据同步、传送请求等。消息由 PacketCodec 编码为二进制后交给 MessageTransport 发送。
+ * 各子服通过定期的心跳和成员表 gossip 维护 ClusterMembership，疑似故障的子服不再接收单播消息。
+ * 启用批量发送时，同一批次窗口内发往同一子服的消息由 OutboundBatcher 合并为一条 BATCH 消息。
+ * 领地查询由 ResidenceQueryTable 向可达子服分批发送，第一个找到领地的响应即完成查询。
+ * 收到的消息先放入有界的 InboundQueue，由工作线程解码和处理，只有需要调用 Bukkit API 的消息分批交给主线程。
+ * 玩家进出时广播在线位置变化，各子服据此维护全网的 PresenceDirectory。
+ * 每条消息带有本服的 epoch 和按目标分流递增的序号，重发的传送请求与原消息相同，接收方由 DuplicateFilter 丢弃重复的消息。
  * 
  * @author MiniMax Agent
  * @version 1.0.0
  */
 public class CrossServerService {
     
-    private final cn.popcraft.residencesync.ResidenceSyncPlugin plugin;
-    private final Gson gson = new Gson();
-    private final Map<String, ServerInfo> connectedServers = new ConcurrentHashMap<>();
-    private final Map<UUID, TeleportRequest> pendingTeleports = new ConcurrentHashMap<>();
+    // 在线玩家列表每条消息最多包含的玩家数量，保持在插件消息的长度限制以内
+    private static final int PRESENCE_SNAPSHOT_CHUNK = 500;
     
-    // 跨服通信频道
-    private static final String CHANNEL = "residencesync:message";
+    private final cn.popcraft.residencesync.ResidenceSyncPlugin plugin;
+    private final PacketCodec codec = new PacketCodec();
+    private final PendingTeleportTable pendingTeleports;
+    // 已发出子服切换请求、等待目标子服确认到达的传送
+    private final PendingTeleportTable handoffs;
+    private final LatencyTracker queryLatencies = new LatencyTracker(64);
+    private final ResidenceQueryTable residenceQueries;
+    private final SenderRateLimiter queryLimiter;
+    private final PresenceDirectory presence = new PresenceDirectory();
+    private final DuplicateFilter duplicates;
+    // 本次启动的 epoch，重启后变大，接收方据此重置去重窗口
+    private final long epoch = System.currentTimeMillis();
+    // 每个消息流（目标子服、广播、发往玩家）的序号
+    private final Map<String, AtomicLong> sequences = new ConcurrentHashMap<>();
+    private MessageTransport transport;
+    private InboundQueue inbound;
+    private ProxyConnector connector;
+    private MessageRouter router;
+    private OutboundBatcher batcher;
+    private ClusterMembership membership;
+    private BukkitTask expireTask;
+    private BukkitTask heartbeatTask;
+    private BukkitTask batchTask;
+    private BukkitTask inboundTask;
+    private long lastHeartbeatNanos;
+    private long lastPresenceSnapshotMillis;
     
     public CrossServerService(cn.popcraft.residencesync.ResidenceSyncPlugin plugin) {
         this.plugin = plugin;
+        this.pendingTeleports = new PendingTeleportTable(
+                plugin.getPluginConfig().getMessagingMaxPendingTeleports(),
+                plugin.getPluginConfig().getMessagingTeleportTimeoutMillis(),
+                plugin.getPluginConfig().getMessagingTeleportRetryMillis());
+        this.handoffs = new PendingTeleportTable(
+                plugin.getPluginConfig().getMessagingMaxPendingTeleports(),
+                plugin.getPluginConfig().getMessagingHandoffTimeoutMillis(), 0L);
+        this.residenceQueries = new ResidenceQueryTable(queryLatencies,
+                plugin.getPluginConfig().getMessagingQueryFanout(),
+                plugin.getPluginConfig().getMessagingQueryHedgeMinMillis(),
+                plugin.getPluginConfig().getMessagingQueryTimeoutMillis());
+        int queryRate = plugin.getPluginConfig().getMessagingInboundQueryRatePerSecond();
+        this.queryLimiter = new SenderRateLimiter(queryRate, queryRate);
+        this.duplicates = new DuplicateFilter(plugin.getPluginConfig().getMessagingDedupWindow());
     }
     
     /**
      * 初始化跨服服务
      */
     public void initialize() {
+        transport = createTransport();
+        if (transport != null) {
+            String serverId = plugin.getPluginConfig().getServerId();
+            membership = new ClusterMembership(serverId,
+                    plugin.getPluginConfig().getMessagingHeartbeatIntervalMillis(),
+                    plugin.getPluginConfig().getMessagingPhiThreshold(),
+                    plugin.getPluginConfig().getMessagingMemberRemoveMillis());
+            router = new MessageRouter(transport, serverId, membership::isAvailable);
+            int batchWindowTicks = plugin.getPluginConfig().getMessagingBatchWindowTicks();
+            if (batchWindowTicks > 0) {
+                batcher = new OutboundBatcher(codec, router, serverId, plugin.getPluginConfig().getMessagingMaxBatchBytes());
+            }
+            inbound = new InboundQueue(plugin.getPluginConfig().getMessagingInboundCapacity(),
+                    plugin.getPluginConfig().getMessagingInboundMainThreadCapacity(),
+                    InboundQueue.OverflowPolicy.fromConfig(plugin.getPluginConfig().getMessagingInboundOverflowPolicy()));
+            inbound.start(this::handleIncomingPayload);
+            try {
+                transport.start(inbound::offer);
+            } catch (IllegalStateException e) {
+                LoggerUtil.severe("启动跨服传输失败: " + e.getMessage(), e);
+                inbound.stop();
+                inbound = null;
+                transport = null;
+                router = null;
+                batcher = null;
+                membership = null;
+                return;
+            }
+            connector = new ProxyConnector(plugin);
+            connector.start();
+            
+            // 每tick处理一批需要在主线程执行的消息
+            int maxPerTick = Math.max(1, plugin.getPluginConfig().getMessagingInboundMaxPerTick());
+            InboundQueue tickInbound = inbound;
+            inboundTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    tickInbound.drainMainThread(maxPerTick);
+                }
+            }.runTaskTimer(plugin, 1L, 1L);
+            
+            // 每tick推进一次传送请求和领地查询的时间轮
+            expireTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    long now = System.currentTimeMillis();
+                    pendingTeleports.expire(now, CrossServerService.this::handleTeleportTimeout);
+                    handoffs.expire(now, CrossServerService.this::handleHandoffTimeout);
+                    plugin.getTeleportService().expireArrivals(now);
+                    residenceQueries.tick(now, CrossServerService.this::sendResidenceQuery);
+                }
+            }.runTaskTimer(plugin, 1L, 1L);
+            
+            // 定期发送心跳和成员表
+            long heartbeatTicks = Math.max(1L, plugin.getPluginConfig().getMessagingHeartbeatIntervalMillis() / 50L);
+            lastHeartbeatNanos = System.nanoTime();
+            heartbeatTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    sendHeartbeat(heartbeatTicks);
+                }
+            }.runTaskTimer(plugin, heartbeatTicks, heartbeatTicks);
+            
+            // 每个批次窗口结束时发出合并的消息
+            if (batcher != null) {
+                OutboundBatcher windowBatcher = batcher;
+                batchTask = new BukkitRunnable() {
+                    @Override
+                    public void run() {
+                        windowBatcher.flush();
+                    }
+                }.runTaskTimer(plugin, batchWindowTicks, batchWindowTicks);
+            }
+            
+            // 通知其他子服本服已上线
+            List<ServerInfo> digest = membership.heartbeat(Bukkit.getOnlinePlayers().size(), 50.0);
+            broadcastMessage(PacketType.SERVER_CONNECT, digest.get(0));
+            
+            // 重载插件时已经在线的玩家
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                presence.join(new PlayerPresence(player.getUniqueId(), player.getName(), serverId, System.currentTimeMillis()));
+            }
+            sendPresenceSnapshot(MessageTransport.ALL_SERVERS);
+            
+            LoggerUtil.info("跨服服务已初始化（" + transport.getName() + "）");
+        }
+    }
+    
+    /**
+     * 根据 messaging.transport 创建跨服传输，无法使用时返回null
+     */
+    private MessageTransport createTransport() {
+        if ("socket".equalsIgnoreCase(plugin.getPluginConfig().getMessagingTransport())) {
+            // 收到的消息直接放入接收队列，由工作线程处理
+            return new SocketMessageTransport(
+                    plugin.getPluginConfig().getMessagingSocketBind(),
+                    plugin.getPluginConfig().getMessagingSocketPeers(),
+                    plugin.getPluginConfig().getMessagingSocketSecret(),
+                    plugin.getPluginConfig().getMessagingMaxQueuedPerServer(),
+                    plugin.getPluginConfig().getMessagingSocketReconnectMinMillis(),
+                    plugin.getPluginConfig().getMessagingSocketReconnectMaxMillis(),
+                    Runnable::run);
+        }
+        
         // 检查是否为BungeeCord环境
         if (isBungeeEnvironment()) {
-            registerChannel();
-            LoggerUtil.info("跨服服务已初始化（BungeeCord环境）");
-        } else {
-            LoggerUtil.warning("非BungeeCord环境，跨服功能将受限");
+            return new BungeeMessageTransport(plugin);
         }
+        
+        LoggerUtil.warning("非BungeeCord环境，跨服功能将受限");
+        return null;
     }
     
     /**
      * 清理资源
      */
     public void cleanup() {
+        if (expireTask != null) {
+            expireTask.cancel();
+            expireTask = null;
+        }
+        if (heartbeatTask != null) {
+            heartbeatTask.cancel();
+            heartbeatTask = null;
+        }
+        if (batchTask != null) {
+            batchTask.cancel();
+            batchTask = null;
+        }
+        if (inboundTask != null) {
+            inboundTask.cancel();
+            inboundTask = null;
+        }
+        
+        if (transport != null) {
+            broadcastMessage(PacketType.SERVER_DISCONNECT, null);
+            // 停止传输前发出尚未发送的批次
+            if (batcher != null) {
+                batcher.flush();
+                batcher = null;
+            }
+            transport.stop();
+            transport = null;
+            router = null;
+        }
+        if (inbound != null) {
+            inbound.stop();
+            inbound = null;
+        }
+        if (connector != null) {
+            connector.stop();
+            connector = null;
+        }
+        
         pendingTeleports.clear();
-        connectedServers.clear();
+        handoffs.clear();
+        residenceQueries.clear();
+        membership = null;
+    }
+    
+    /**
+     * 发送心跳：递增本服心跳计数，把成员表发送给随机挑选的几个可达子服，还没有已知成员时广播
+     */
+    private void sendHeartbeat(long heartbeatTicks) {
+        ClusterMembership membership = this.membership;
+        if (membership == null) {
+            return;
+        }
+        
+        // 两次心跳之间的平均tick耗时，服务器满速运行时约为50毫秒
+        long now = System.nanoTime();
+        double mspt = (now - lastHeartbeatNanos) / 1_000_000.0 / heartbeatTicks;
+        lastHeartbeatNanos = now;
+        
+        List<ServerInfo> digest = membership.heartbeat(Bukkit.getOnlinePlayers().size(), mspt);
+        List<String> targets = membership.selectGossipTargets(Math.max(1, plugin.getPluginConfig().getMessagingGossipFanout()));
+        if (targets.isEmpty()) {
+            broadcastMessage(PacketType.HEARTBEAT, digest);
+        } else {
+            for (String target : targets) {
+                sendCrossServerMessage(target, PacketType.HEARTBEAT, digest);
+            }
+        }
+        
+        for (String removed : membership.prune(System.currentTimeMillis())) {
+            presence.removeServer(removed);
+            duplicates.remove(removed);
+            LoggerUtil.info("服务器 " + removed + " 长时间没有心跳，已移出成员表");
+        }
+        
+        long nowMillis = System.currentTimeMillis();
+        if (nowMillis - lastPresenceSnapshotMillis >= plugin.getPluginConfig().getMessagingPresenceSnapshotMillis()) {
+            sendPresenceSnapshot(MessageTransport.ALL_SERVERS);
+        }
+    }
+    
+    /**
+     * 发送本服玩家的完整列表，玩家较多时分成多条消息，只有第一条清除接收方的旧记录
+     */
+    private void sendPresenceSnapshot(String serverId) {
+        lastPresenceSnapshotMillis = System.currentTimeMillis();
+        
+        List<PlayerPresence> players = presence.getPlayers(plugin.getPluginConfig().getServerId());
+        int offset = 0;
+        do {
+            int end = Math.min(players.size(), offset + PRESENCE_SNAPSHOT_CHUNK);
+            sendCrossServerMessage(serverId, PacketType.PRESENCE,
+                    new PresenceUpdate(offset == 0, new ArrayList<>(players.subList(offset, end)), new ArrayList<>()));
+            offset = end;
+        } while (offset < players.size());
+    }
+    
+    /**
+     * 本服玩家进入或退出，更新在线位置表并广播变化
+     */
+    public void publishPresence(Player player, boolean online) {
+        String serverId = plugin.getPluginConfig().getServerId();
+        PresenceUpdate update = new PresenceUpdate();
+        if (online) {
+            PlayerPresence joined = new PlayerPresence(player.getUniqueId(), player.getName(), serverId, System.currentTimeMillis());
+            presence.join(joined);
+            update.online.add(joined);
+        } else {
+            presence.leave(player.getUniqueId(), serverId);
+            update.offline.add(player.getUniqueId());
+        }
+        
+        if (transport != null) {
+            broadcastMessage(PacketType.PRESENCE, update);
+        }
     }
     
     /**
-     * 检查是否为BungeeCord环境
+     * 检查是否为BungeeCord环境，子服需要在 spigot.yml 中开启 settings.bungeecord
      */
     private boolean isBungeeEnvironment() {
+        return Bukkit.getServer().spigot().getConfig().getBoolean("settings.bungeecord", false);
+    }
+    
+    /**
+     * 构建并编码跨服消息，每条消息取一个新的序号
+     */
+    private byte[] buildPacket(String toServer, PacketType messageType, Object body) {
+        return codec.encode(new Packet(messageType, plugin.getPluginConfig().getServerId(), toServer,
+                System.currentTimeMillis(), epoch, nextSequence(toServer), body));
+    }
+    
+    /**
+     * 取发往指定目标的消息流的下一个序号
+     */
+    private long nextSequence(String toServer) {
+        return sequences.computeIfAbsent(DuplicateFilter.stream(toServer), key -> new AtomicLong()).incrementAndGet();
+    }
+    
+    /**
+     * 发送跨服消息，目标子服未知时广播
+     */
+    private void sendCrossServerMessage(String serverName, PacketType messageType, Object body) {
+        MessageRouter router = this.router;
+        if (router == null) {
+            LoggerUtil.debug("跨服传输未启用，忽略发往 " + serverName + " 的消息: " + messageType);
+            return;
+        }
+        
         try {
-            Class.forName("net.md_5.bungee.api.ProxyServer");
-            return true;
-        } catch (ClassNotFoundException e) {
-            return false;
+            String target = router.resolve(serverName);
+            sendFrame(router, target, buildPacket(target, messageType, body));
+            LoggerUtil.debug("发送跨服消息到 " + target + ": " + messageType);
+            
+        } catch (Exception e) {
+            LoggerUtil.severe("发送跨服消息失败: " + e.getMessage(), e);
         }
     }
     
     /**
-     * 注册插件消息频道
+     * 发送已编码的消息，target 为 MessageRouter.resolve 的结果
      */
-    private void registerChannel() {
-        if (Bukkit.getServer().spigot().getConfig().getBoolean("settings.bungeecord", false)) {
-            try {
-                // 这里需要使用反射或依赖来注册频道
-                LoggerUtil.info("正在注册跨服消息频道...");
-                // 实际实现需要调用BungeeCord API
-            } catch (Exception e) {
-                LoggerUtil.warning("注册跨服消息频道失败: " + e.getMessage());
-            }
+    private void sendFrame(MessageRouter router, String target, byte[] payload) {
+        OutboundBatcher batcher = this.batcher;
+        if (batcher != null && router.isReachable(target)) {
+            batcher.add(target, payload);
+        } else {
+            router.send(target, payload);
         }
     }
     
     /**
-     * 发送跨服消息
+     * 发送跨服消息到玩家当前所在的子服
      */
-    private void sendCrossServerMessage(String serverName, String messageType, JsonObject data) {
+    private void sendCrossServerMessageToPlayer(String playerName, PacketType messageType, Object body) {
+        MessageRouter router = this.router;
+        if (router == null) {
+            LoggerUtil.debug("跨服传输未启用，忽略发往玩家 " + playerName + " 的消息: " + messageType);
+            return;
+        }
+        
         try {
-            JsonObject packet = new JsonObject();
-            packet.addProperty("type", messageType);
-            packet.addProperty("fromServer", plugin.getPluginConfig().getServerId());
-            packet.addProperty("toServer", serverName);
-            packet.addProperty("timestamp", System.currentTimeMillis());
-            packet.add("data", data);
-            
-            String jsonMessage = gson.toJson(packet);
-            
-            // 发送消息到BungeeCord
-            // TODO: 实现真正的跨服消息发送
-            
-            LoggerUtil.debug("发送跨服消息到 " + serverName + ": " + messageType);
+            OutboundBatcher batcher = this.batcher;
+            if (batcher != null) {
+                batcher.addToPlayer(playerName, buildPacket(null, messageType, body));
+            } else {
+                router.sendToPlayer(playerName, buildPacket(null, messageType, body));
+            }
+            LoggerUtil.debug("发送跨服消息到玩家 " + playerName + ": " + messageType);
             
         } catch (Exception e) {
             LoggerUtil.severe("发送跨服消息失败: " + e.getMessage(), e);
@@ -107,36 +392,81 @@ public class CrossServerService {
     }
     
     /**
-     * 处理接收到的跨服消息
+     * 处理传输层收到的消息内容，在接收队列的工作线程执行
+     */
+    private void handleIncomingPayload(byte[] payload) {
+        try {
+            handleIncomingPacket(codec.decode(payload));
+        } catch (Exception e) {
+            LoggerUtil.warning("解析跨服消息失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 处理接收到的跨服消息：成员表、领地查询和传送请求在工作线程处理，
+     * 需要访问玩家或完成调用方Future的消息交给主线程
      */
-    public void handleIncomingMessage(String message) {
+    public void handleIncomingPacket(Packet packet) {
         try {
-            JsonObject packet = JsonParser.parseString(message).getAsJsonObject();
-            String messageType = packet.get("type").getAsString();
-            String fromServer = packet.get("fromServer").getAsString();
-            JsonObject data = packet.get("data").getAsJsonObject();
+            String fromServer = packet.getFromServer();
+            
+            // 忽略本服发出的消息
+            if (plugin.getPluginConfig().getServerId().equals(fromServer)) {
+                return;
+            }
+            
+            // 丢弃重发或重复投递的消息
+            if (packet.getSequence() > 0 && !duplicates.accept(fromServer, DuplicateFilter.stream(packet.getToServer()),
+                    packet.getEpoch(), packet.getSequence())) {
+                LoggerUtil.debug("丢弃来自 " + fromServer + " 的重复消息: " + packet.getType() + " #" + packet.getSequence());
+                if (packet.getType() == PacketType.TELEPORT_REQUEST) {
+                    // 来源子服重发说明回复可能已丢失，重新回复但不再准备落点
+                    runOnMainThread(packet, () -> resendTeleportResponse(fromServer, packet.getBody()));
+                }
+                return;
+            }
             
-            switch (messageType) {
-                case "SERVER_CONNECT":
-                    handleServerConnect(fromServer, data);
+            switch (packet.getType()) {
+                case BATCH:
+                    // 合并发送的消息逐条处理
+                    for (byte[] payload : packet.<List<byte[]>>getBody()) {
+                        handleIncomingPayload(payload);
+                    }
+                    break;
+                case SERVER_CONNECT:
+                    runOnMainThread(packet, () -> handleServerConnect(fromServer, packet.getBody()));
                     break;
-                case "SERVER_DISCONNECT":
+                case SERVER_DISCONNECT:
                     handleServerDisconnect(fromServer);
                     break;
-                case "TELEPORT_REQUEST":
-                    handleTeleportRequest(fromServer, data);
+                case HEARTBEAT:
+                    handleHeartbeat(fromServer, packet.getBody());
                     break;
-                case "TELEPORT_RESPONSE":
-                    handleTeleportResponse(fromServer, data);
+                case PRESENCE:
+                    presence.apply(fromServer, packet.getBody());
                     break;
-                case "RESIDENCE_QUERY":
-                    handleResidenceQuery(fromServer, data);
+                case TELEPORT_REQUEST:
+                    handleTeleportRequest(fromServer, packet.getBody());
                     break;
-                case "RESIDENCE_RESPONSE":
-                    handleResidenceResponse(fromServer, data);
+                case TELEPORT_RESPONSE:
+                    runOnMainThread(packet, () -> handleTeleportResponse(fromServer, packet.getBody()));
+                    break;
+                case TELEPORT_ARRIVED:
+                    runOnMainThread(packet, () -> handleTeleportArrived(fromServer, packet.getBody()));
+                    break;
+                case RESIDENCE_QUERY:
+                    // 限制每个子服的查询速率，大量查询不会占满数据库线程
+                    if (queryLimiter.tryAcquire(fromServer, System.nanoTime())) {
+                        handleResidenceQuery(fromServer, packet.getBody());
+                    } else {
+                        shed(packet);
+                    }
+                    break;
+                case RESIDENCE_RESPONSE:
+                    runOnMainThread(packet, () -> handleResidenceResponse(fromServer, packet.getBody()));
                     break;
                 default:
-                    LoggerUtil.warning("未知的跨服消息类型: " + messageType);
+                    LoggerUtil.warning("未知的跨服消息类型: " + packet.getType());
             }
             
         } catch (Exception e) {
@@ -144,83 +474,124 @@ public class CrossServerService {
         }
     }
     
+    /**
+     * 交给主线程处理，主线程队列已满时丢弃
+     */
+    private void runOnMainThread(Packet packet, Runnable task) {
+        InboundQueue inbound = this.inbound;
+        if (inbound == null || Bukkit.isPrimaryThread()) {
+            task.run();
+        } else if (!inbound.dispatchToMain(task)) {
+            LoggerUtil.debug("主线程队列已满，丢弃来自 " + packet.getFromServer() + " 的消息: " + packet.getType());
+        }
+    }
+    
+    /**
+     * 记录因限流丢弃的消息
+     */
+    private void shed(Packet packet) {
+        InboundQueue inbound = this.inbound;
+        if (inbound != null) {
+            inbound.shed();
+        }
+        LoggerUtil.debug("限流丢弃来自 " + packet.getFromServer() + " 的消息: " + packet.getType());
+    }
+    
     /**
      * 处理服务器连接消息
      */
-    private void handleServerConnect(String serverName, JsonObject data) {
-        ServerInfo serverInfo = gson.fromJson(data, ServerInfo.class);
-        connectedServers.put(serverName, serverInfo);
+    private void handleServerConnect(String serverName, ServerInfo serverInfo) {
+        ClusterMembership membership = this.membership;
+        if (membership == null) {
+            return;
+        }
+        
+        membership.merge(List.of(serverInfo), System.currentTimeMillis());
         LoggerUtil.info("服务器 " + serverName + " 已连接");
+        
+        // 把当前成员表和本服玩家直接发给新上线的子服，不必等待下一轮 gossip
+        sendCrossServerMessage(serverName, PacketType.HEARTBEAT,
+                membership.heartbeat(Bukkit.getOnlinePlayers().size(), 50.0));
+        sendPresenceSnapshot(serverName);
+    }
+    
+    /**
+     * 处理心跳消息，合并对方的成员表
+     */
+    private void handleHeartbeat(String fromServer, List<ServerInfo> digest) {
+        ClusterMembership membership = this.membership;
+        if (membership != null && membership.merge(digest, System.currentTimeMillis()) > 0) {
+            LoggerUtil.debug("从 " + fromServer + " 的成员表中发现新的子服");
+        }
     }
     
     /**
      * 处理服务器断开消息
      */
     private void handleServerDisconnect(String serverName) {
-        connectedServers.remove(serverName);
+        ClusterMembership membership = this.membership;
+        if (membership != null) {
+            membership.leave(serverName);
+        }
+        queryLimiter.remove(serverName);
+        presence.removeServer(serverName);
+        duplicates.remove(serverName);
         LoggerUtil.info("服务器 " + serverName + " 已断开连接");
     }
     
     /**
-     * 处理传送请求
+     * 处理传送请求：玩家还在来源子服，本服提前准备落点，准备完成后回复
      */
-    private void handleTeleportRequest(String fromServer, JsonObject data) {
+    private void handleTeleportRequest(String fromServer, TeleportRequest request) {
         try {
-            TeleportRequest request = gson.fromJson(data, TeleportRequest.class);
-            
-            // 验证传送请求
-            Player targetPlayer = Bukkit.getPlayer(request.targetPlayerName);
-            if (targetPlayer == null) {
-                sendTeleportResponse(fromServer, request.requestId, false, "玩家不在线");
-                return;
-            }
-            
-            // 检查权限
-            if (!hasCrossServerPermission(targetPlayer)) {
-                sendTeleportResponse(fromServer, request.requestId, false, "权限不足");
-                return;
-            }
-            
-            // 保存请求
-            pendingTeleports.put(request.requestId, request);
-            
-            // 发送确认消息给玩家
-            plugin.getMessageConfig().sendMessage(targetPlayer, "tryTpRes", 
-                    Map.of("resName", request.residenceName));
-            
-            // TODO: 这里应该处理真正的跨服传送逻辑
+            plugin.getTeleportService().prepareArrival(request, fromServer)
+                    .exceptionally(e -> {
+                        LoggerUtil.severe("准备传送落点失败: " + e.getMessage(), e);
+                        return false;
+                    })
+                    .thenAccept(prepared -> sendTeleportResponse(fromServer, request, prepared,
+                            prepared ? null : "目标位置不可用"));
             
         } catch (Exception e) {
             LoggerUtil.severe("处理传送请求失败: " + e.getMessage(), e);
         }
     }
     
+    /**
+     * 重新回复重复收到的传送请求
+     * 
+     * 落点准备成功后在 ArrivalTable 中保留到玩家到达或过期，期间按请求ID重新回复成功；
+     * 落点还在准备时由准备完成后的回复处理，准备失败或落点已过期时不回复，由来源子服超时。
+     */
+    private void resendTeleportResponse(String fromServer, TeleportRequest request) {
+        if (request.sourcePlayerUuid == null) {
+            return;
+        }
+        
+        ArrivalTable.Arrival arrival = plugin.getTeleportService().getArrivals()
+                .find(request.sourcePlayerUuid, request.requestId);
+        if (arrival != null) {
+            sendTeleportResponse(fromServer, request, true, null);
+        }
+    }
+    
     /**
      * 处理传送响应
      */
-    private void handleTeleportResponse(String fromServer, JsonObject data) {
+    private void handleTeleportResponse(String fromServer, TeleportResponse response) {
         try {
-            TeleportResponse response = gson.fromJson(data, TeleportResponse.class);
-            
-            // 查找对应的请求
-            TeleportRequest request = pendingTeleports.remove(response.requestId);
+            // 查找对应的请求，已超时的请求不再处理
+            TeleportRequest request = pendingTeleports.complete(response);
             if (request == null) {
-                LoggerUtil.warning("找不到对应的传送请求: " + response.requestId);
+                LoggerUtil.debug("找不到对应的传送请求: " + response.requestId);
                 return;
             }
             
-            // 通知玩家传送结果
+            // 目标子服准备好落点后由 requestCrossServerTeleport 切换子服，这里只提示失败
             Player sourcePlayer = Bukkit.getPlayer(request.sourcePlayerName);
-            if (sourcePlayer != null && sourcePlayer.isOnline()) {
-                if (response.success) {
-                    // 传送成功，通知玩家
-                    plugin.getMessageConfig().sendMessage(sourcePlayer, "playerTpSuccess", 
-                            Map.of("resName", request.residenceName));
-                } else {
-                    // 传送失败，显示错误信息
-                    plugin.getMessageConfig().sendMessage(sourcePlayer, "notPermissionTp", 
-                            Map.of("resName", request.residenceName));
-                }
+            if (!response.success && sourcePlayer != null && sourcePlayer.isOnline()) {
+                plugin.getMessageConfig().sendMessage(sourcePlayer, "targetLocationIsNull",
+                        Map.of("resName", request.residenceName));
             }
             
         } catch (Exception e) {
@@ -228,25 +599,62 @@ public class CrossServerService {
         }
     }
     
+    /**
+     * 处理等待响应超时的传送请求
+     */
+    private void handleTeleportTimeout(TeleportRequest request) {
+        LoggerUtil.debug("传送请求等待响应超时: " + request.requestId);
+        
+        Player sourcePlayer = request.sourcePlayerUuid != null
+                ? Bukkit.getPlayer(request.sourcePlayerUuid) : Bukkit.getPlayer(request.sourcePlayerName);
+        if (sourcePlayer != null && sourcePlayer.isOnline()) {
+            plugin.getMessageConfig().sendMessage(sourcePlayer, "tpRequestTimeout",
+                    Map.of("resName", request.residenceName));
+        }
+    }
+    
+    /**
+     * 处理目标子服的到达确认
+     */
+    private void handleTeleportArrived(String fromServer, TeleportResponse response) {
+        TeleportRequest request = handoffs.complete(response);
+        if (request == null) {
+            LoggerUtil.debug("找不到对应的子服切换: " + response.requestId);
+            return;
+        }
+        LoggerUtil.debug("玩家 " + request.sourcePlayerName + " 已到达 " + fromServer);
+    }
+    
+    /**
+     * 处理等待到达确认超时的传送，玩家仍在本服时说明切换没有成功
+     */
+    private void handleHandoffTimeout(TeleportRequest request) {
+        LoggerUtil.debug("等待到达确认超时: " + request.requestId);
+        
+        Player sourcePlayer = Bukkit.getPlayer(request.sourcePlayerUuid);
+        if (sourcePlayer != null && sourcePlayer.isOnline()) {
+            plugin.getMessageConfig().sendMessage(sourcePlayer, "tpHandoffTimeout",
+                    Map.of("resName", request.residenceName));
+        }
+    }
+    
+    /**
+     * 向来源子服确认玩家已到达本服
+     */
+    public void confirmArrival(String sourceServerId, UUID requestId) {
+        sendCrossServerMessage(sourceServerId, PacketType.TELEPORT_ARRIVED, new TeleportResponse(requestId, true, null));
+    }
+    
     /**
      * 处理领地查询请求
      */
-    private void handleResidenceQuery(String fromServer, JsonObject data) {
+    private void handleResidenceQuery(String fromServer, ResidenceQuery query) {
         try {
-            String residenceName = data.get("residenceName").getAsString();
-            
-            // 在本地查找领地
-            plugin.getResidenceService().findResidenceCrossServer(residenceName)
-                    .thenAccept(residence -> {
-                        if (residence != null) {
-                            JsonObject response = gson.toJsonTree(residence).getAsJsonObject();
-                            sendCrossServerMessage(fromServer, "RESIDENCE_RESPONSE", response);
-                        } else {
-                            JsonObject response = new JsonObject();
-                            response.addProperty("found", false);
-                            sendCrossServerMessage(fromServer, "RESIDENCE_RESPONSE", response);
-                        }
-                    });
+            // 只在本服查找，不再转发；未找到或查询失败时回复null，让对方尽快查询下一个子服
+            plugin.getResidenceService().getResidence(query.residenceName, plugin.getPluginConfig().getServerId())
+                    .exceptionally(e -> null)
+                    .thenAccept(residence -> sendCrossServerMessage(fromServer, PacketType.RESIDENCE_RESPONSE,
+                            new ResidenceQueryResponse(query.queryId, residence)));
             
         } catch (Exception e) {
             LoggerUtil.severe("处理领地查询失败: " + e.getMessage(), e);
@@ -256,137 +664,214 @@ public class CrossServerService {
     /**
      * 处理领地查询响应
      */
-    private void handleResidenceResponse(String fromServer, JsonObject data) {
-        // 这个方法通常用于异步处理查询结果
-        // 实际实现需要根据具体需求来设计
-        LoggerUtil.debug("收到领地查询响应");
+    private void handleResidenceResponse(String fromServer, ResidenceQueryResponse response) {
+        if (!residenceQueries.complete(fromServer, response, this::sendResidenceQuery)) {
+            LoggerUtil.debug("忽略已结束的领地查询响应: " + response.queryId);
+        }
     }
     
     /**
-     * 检查玩家是否有跨服权限
+     * 向其他可达子服查询领地
+     * 
+     * @return 找到领地时以领地完成，所有子服都没有、查询超时或跨服传输未启用时以null完成
      */
-    private boolean hasCrossServerPermission(Player player) {
-        return player.hasPermission("residencesync.crossserver") ||
-               player.hasPermission("residencesync.admin");
+    public CompletableFuture<ResidenceData> queryResidence(String residenceName) {
+        ClusterMembership membership = this.membership;
+        if (transport == null || membership == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        List<String> candidates = new ArrayList<>(membership.getAvailableMembers().keySet());
+        return residenceQueries.query(residenceName, candidates, this::sendResidenceQuery);
+    }
+    
+    private void sendResidenceQuery(String serverId, ResidenceQuery query) {
+        sendCrossServerMessage(serverId, PacketType.RESIDENCE_QUERY, query);
     }
     
     /**
-     * 发送传送响应
+     * 发送传送响应，优先发往发起传送的玩家当前所在的子服
      */
-    private void sendTeleportResponse(String toServer, UUID requestId, boolean success, String reason) {
-        TeleportResponse response = new TeleportResponse(requestId, success, reason);
-        JsonObject data = gson.toJsonTree(response).getAsJsonObject();
-        sendCrossServerMessage(toServer, "TELEPORT_RESPONSE", data);
+    private void sendTeleportResponse(String toServer, TeleportRequest request, boolean success, String reason) {
+        TeleportResponse response = new TeleportResponse(request.requestId, success, reason);
+        PlayerPresence player = request.sourcePlayerUuid != null ? presence.get(request.sourcePlayerUuid) : null;
+        if (player != null) {
+            sendCrossServerMessage(player.serverId, PacketType.TELEPORT_RESPONSE, response);
+        } else if (request.sourcePlayerName != null) {
+            sendCrossServerMessageToPlayer(request.sourcePlayerName, PacketType.TELEPORT_RESPONSE, response);
+        } else {
+            sendCrossServerMessage(toServer, PacketType.TELEPORT_RESPONSE, response);
+        }
     }
     
     /**
-     * 请求跨服传送
+     * 请求跨服传送，先通过领地索引或跨服查询确定领地所在的子服
+     * 
+     * @return 玩家到达目标子服时以true完成；任一阶段超时以 TimeoutException 结束，并提示玩家
      */
     public CompletableFuture<Boolean> requestCrossServerTeleport(Player player, String residenceName) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                UUID requestId = UUID.randomUUID();
-                
-                TeleportRequest request = new TeleportRequest(
-                        requestId,
-                        player.getName(),
-                        player.getUniqueId(),
-                        residenceName,
-                        plugin.getPluginConfig().getServerId()
-                );
-                
-                // 发送到所有服务器查询
-                broadcastMessage("TELEPORT_REQUEST", gson.toJsonTree(request).getAsJsonObject());
-                
-                // 等待响应（简化实现）
-                return true;
-                
-            } catch (Exception e) {
-                LoggerUtil.severe("请求跨服传送失败: " + e.getMessage(), e);
-                return false;
-            }
-        });
+        if (transport == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        return plugin.getResidenceService().findResidenceCrossServer(residenceName)
+                .exceptionally(e -> null)
+                .thenCompose(residence -> requestCrossServerTeleport(player, residenceName,
+                        residence != null ? residence.getServerId() : null));
     }
     
     /**
-     * 广播消息到所有服务器
+     * 向指定子服请求跨服传送：目标子服准备好落点后请求代理切换子服，目标子服确认玩家到达时完成
+     * 
+     * 只有领地所在的子服能准备落点，serverId 未知或为本服时直接失败
+     */
+    public CompletableFuture<Boolean> requestCrossServerTeleport(Player player, String residenceName, String serverId) {
+        if (transport == null || serverId == null || serverId.equals(plugin.getPluginConfig().getServerId())) {
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        TeleportRequest request = new TeleportRequest(
+                UUID.randomUUID(),
+                player.getName(),
+                player.getUniqueId(),
+                residenceName,
+                plugin.getPluginConfig().getServerId()
+        );
+        
+        // 目标子服疑似故障时直接失败，不等待超时
+        MessageRouter router = this.router;
+        if (router == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String target = router.resolve(serverId);
+        if (!router.isReachable(target)) {
+            LoggerUtil.debug("子服 " + serverId + " 疑似故障，跳过传送请求");
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        // 重发与第一次发送使用同一条消息，目标子服只处理一次
+        byte[] payload = buildPacket(target, PacketType.TELEPORT_REQUEST, request);
+        CompletableFuture<TeleportResponse> response = pendingTeleports.register(request,
+                () -> sendFrame(router, target, payload));
+        if (!response.isDone()) {
+            sendFrame(router, target, payload);
+        }
+        return response.thenCompose(result -> result.success
+                ? handoff(player, request, serverId) : CompletableFuture.completedFuture(false));
+    }
+    
+    /**
+     * 请求代理把玩家切换到目标子服，并登记等待目标子服的到达确认
      */
-    private void broadcastMessage(String messageType, JsonObject data) {
-        for (String serverName : connectedServers.keySet()) {
-            sendCrossServerMessage(serverName, messageType, data);
+    private CompletableFuture<Boolean> handoff(Player player, TeleportRequest request, String serverId) {
+        ProxyConnector connector = this.connector;
+        if (connector == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        CompletableFuture<TeleportResponse> arrival = handoffs.register(request);
+        if (!arrival.isDone() && !connector.connect(player, serverId)) {
+            handoffs.complete(new TeleportResponse(request.requestId, false, "玩家已离线"));
         }
+        return arrival.thenApply(result -> result.success);
     }
     
     /**
-     * 获取连接状态
+     * 广播消息到所有服务器
      */
-    public Map<String, ServerInfo> getConnectedServers() {
-        return new HashMap<>(connectedServers);
+    private void broadcastMessage(PacketType messageType, Object body) {
+        sendCrossServerMessage(MessageTransport.ALL_SERVERS, messageType, body);
     }
     
     /**
-     * 检查是否有其他服务器连接
+     * 获取跨服消息传输，未启用时返回null
      */
-    public boolean hasConnectedServers() {
-        return !connectedServers.isEmpty();
+    public MessageTransport getTransport() {
+        return transport;
     }
     
-    // 内部数据类
+    /**
+     * 获取按序号去重的过滤器
+     */
+    public DuplicateFilter getDuplicates() {
+        return duplicates;
+    }
     
     /**
-     * 服务器信息类
+     * 获取全网玩家在线位置表
      */
-    public static class ServerInfo {
-        public String serverName;
-        public String serverId;
-        public long lastSeen;
-        public int playerCount;
-        
-        public ServerInfo() {}
-        
-        public ServerInfo(String serverName, String serverId) {
-            this.serverName = serverName;
-            this.serverId = serverId;
-            this.lastSeen = System.currentTimeMillis();
-        }
+    public PresenceDirectory getPresence() {
+        return presence;
     }
     
     /**
-     * 传送请求类
+     * 获取跨服消息接收队列，未启用时返回null
      */
-    public static class TeleportRequest {
-        public UUID requestId;
-        public String sourcePlayerName;
-        public UUID sourcePlayerUuid;
-        public String residenceName;
-        public String targetServerId;
-        
-        public TeleportRequest() {}
-        
-        public TeleportRequest(UUID requestId, String sourcePlayerName, UUID sourcePlayerUuid, 
-                             String residenceName, String targetServerId) {
-            this.requestId = requestId;
-            this.sourcePlayerName = sourcePlayerName;
-            this.sourcePlayerUuid = sourcePlayerUuid;
-            this.residenceName = residenceName;
-            this.targetServerId = targetServerId;
-        }
+    public InboundQueue getInbound() {
+        return inbound;
     }
     
     /**
-     * 传送响应类
+     * 获取跨服消息路由，未启用时返回null
      */
-    public static class TeleportResponse {
-        public UUID requestId;
-        public boolean success;
-        public String reason;
-        
-        public TeleportResponse() {}
-        
-        public TeleportResponse(UUID requestId, boolean success, String reason) {
-            this.requestId = requestId;
-            this.success = success;
-            this.reason = reason;
-        }
+    public MessageRouter getRouter() {
+        return router;
+    }
+    
+    /**
+     * 获取批量发送器，未启用时返回null
+     */
+    public OutboundBatcher getBatcher() {
+        return batcher;
+    }
+    
+    /**
+     * 获取跨服成员表，未启用时返回null
+     */
+    public ClusterMembership getMembership() {
+        return membership;
+    }
+    
+    /**
+     * 获取进行中的领地查询表
+     */
+    public ResidenceQueryTable getResidenceQueries() {
+        return residenceQueries;
+    }
+    
+    /**
+     * 获取领地查询的延迟统计
+     */
+    public LatencyTracker getQueryLatencies() {
+        return queryLatencies;
+    }
+    
+    /**
+     * 获取等待到达确认的子服切换表
+     */
+    public PendingTeleportTable getHandoffs() {
+        return handoffs;
+    }
+    
+    /**
+     * 获取等待响应的传送请求表
+     */
+    public PendingTeleportTable getPendingTeleports() {
+        return pendingTeleports;
+    }
+    
+    /**
+     * 获取连接状态
+     */
+    public Map<String, ServerInfo> getConnectedServers() {
+        ClusterMembership membership = this.membership;
+        return membership != null ? membership.getAvailableMembers() : new HashMap<>();
+    }
+    
+    /**
+     * 检查是否有其他服务器连接
+     */
+    public boolean hasConnectedServers() {
+        return !getConnectedServers().isEmpty();
     }
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+package cn.popcraft.residencesync.service;
+
+import cn.popcraft.residencesync.messaging.TeleportRequest;
+import cn.popcraft.residencesync.messaging.TeleportResponse;
+import cn.popcraft.residencesync.util.TimingWheel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * 等待响应的跨服传送请求表
+ * 
+ * 每个请求带有截止时间，由时间轮跟踪；主线程每tick推进一次时间轮，超时的请求以 TimeoutException 结束。
+ * 表的大小有上限，已满时新的请求直接失败，丢失的响应不会让条目无限堆积。
+ * 登记时提供了重发回调的请求在收到响应前每隔 retryMillis 重发一次，接收方按序号去重。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class PendingTeleportTable {
+    
+    // 时间轮刻度与服务端tick一致
+    private static final long TICK_MILLIS = 50L;
+    private static final int WHEEL_SIZE = 256;
+    
+    private final int maxPending;
+    private final long timeoutMillis;
+    private final long retryMillis;
+    private final Map<UUID, PendingTeleport> pending = new HashMap<>();
+    private final TimingWheel<PendingTeleport> wheel;
+    
+    private long retryCount;
+    
+    /**
+     * @param retryMillis 重发间隔，不大于0时不重发
+     */
+    public PendingTeleportTable(int maxPending, long timeoutMillis, long retryMillis) {
+        this.maxPending = Math.max(1, maxPending);
+        this.timeoutMillis = Math.max(TICK_MILLIS, timeoutMillis);
+        this.retryMillis = retryMillis > 0 ? Math.max(TICK_MILLIS, retryMillis) : 0L;
+        this.wheel = new TimingWheel<>(TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+    }
+    
+    /**
+     * 登记等待响应的请求
+     * 
+     * @return 收到响应时完成的Future，超时以 TimeoutException 结束；表已满时直接失败
+     */
+    public CompletableFuture<TeleportResponse> register(TeleportRequest request) {
+        return register(request, null);
+    }
+    
+    /**
+     * 登记等待响应的请求，收到响应或超时前定期调用 resend 重发
+     */
+    public synchronized CompletableFuture<TeleportResponse> register(TeleportRequest request, Runnable resend) {
+        if (pending.size() >= maxPending) {
+            return CompletableFuture.failedFuture(new IllegalStateException("等待响应的传送请求过多"));
+        }
+        
+        long now = System.currentTimeMillis();
+        PendingTeleport entry = new PendingTeleport(request, resend, now + timeoutMillis);
+        entry.timeout = wheel.schedule(entry, nextWakeup(entry, now));
+        pending.put(request.requestId, entry);
+        return entry.future;
+    }
+    
+    /**
+     * 下一次重发或超时的时间
+     */
+    private long nextWakeup(PendingTeleport entry, long nowMillis) {
+        if (entry.resend == null || retryMillis <= 0) {
+            return entry.deadline;
+        }
+        return Math.min(entry.deadline, nowMillis + retryMillis);
+    }
+    
+    /**
+     * 用收到的响应完成请求
+     * 
+     * @return 对应的请求，已超时或不存在时返回null
+     */
+    public TeleportRequest complete(TeleportResponse response) {
+        PendingTeleport entry;
+        synchronized (this) {
+            entry = pending.remove(response.requestId);
+            if (entry == null) {
+                return null;
+            }
+            entry.timeout.cancel();
+        }
+        
+        entry.future.complete(response);
+        return entry.request;
+    }
+    
+    /**
+     * 推进时间轮，重发到达重发时间的请求，超时的请求以 TimeoutException 结束并交给回调
+     */
+    public void expire(long nowMillis, Consumer<TeleportRequest> expired) {
+        List<PendingTeleport> timedOut = new ArrayList<>();
+        List<PendingTeleport> retries = new ArrayList<>();
+        synchronized (this) {
+            wheel.advance(nowMillis, entry -> {
+                if (nowMillis >= entry.deadline) {
+                    pending.remove(entry.request.requestId);
+                    timedOut.add(entry);
+                } else {
+                    retries.add(entry);
+                }
+            });
+            
+            // 时间轮回调中不能再添加定时项
+            for (PendingTeleport entry : retries) {
+                entry.timeout = wheel.schedule(entry, nextWakeup(entry, nowMillis));
+            }
+            retryCount += retries.size();
+        }
+        
+        for (PendingTeleport entry : retries) {
+            entry.resend.run();
+        }
+        
+        for (PendingTeleport entry : timedOut) {
+            entry.future.completeExceptionally(new TimeoutException("传送请求 " + entry.request.requestId + " 等待响应超时"));
+            expired.accept(entry.request);
+        }
+    }
+    
+    /**
+     * 取消所有请求
+     */
+    public void clear() {
+        List<PendingTeleport> cancelled = new ArrayList<>();
+        synchronized (this) {
+            wheel.clear(cancelled::add);
+            pending.clear();
+        }
+        
+        for (PendingTeleport entry : cancelled) {
+            entry.future.cancel(false);
+        }
+    }
+    
+    /**
+     * 等待响应的请求数量
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+    
+    public int getMaxPending() {
+        return maxPending;
+    }
+    
+    /**
+     * 重发的请求数量
+     */
+    public synchronized long getRetryCount() {
+        return retryCount;
+    }
+    
+    /**
+     * 等待中的请求
+     */
+    private static class PendingTeleport {
+        
+        private final TeleportRequest request;
+        private final Runnable resend;
+        private final long deadline;
+        private final CompletableFuture<TeleportResponse> future = new CompletableFuture<>();
+        private TimingWheel.Timeout<PendingTeleport> timeout;
+        
+        private PendingTeleport(TeleportRequest request, Runnable resend, long deadline) {
+            this.request = request;
+            this.resend = resend;
+            this.deadline = deadline;
+        }
+    }
+}
\ No newline at end of file
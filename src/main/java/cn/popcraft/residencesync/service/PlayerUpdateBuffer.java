@@ -0,0 +1,155 @@
+package cn.popcraft.residencesync.service;
+
+import cn.popcraft.residencesync.database.DatabaseManager;
+import cn.popcraft.residencesync.database.PlayerData;
+import cn.popcraft.residencesync.util.LoggerUtil;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 玩家信息写入缓冲
+ * 
+ * 玩家加入和退出时只记录最新的名称和时间，同一玩家的多次更新合并为一条，
+ * 每隔固定时间或缓冲条目达到上限时以一次批量语句写入数据库。
+ * 写入失败的条目会重新放回缓冲，不会覆盖之后的新数据；失败后只由定时任务重试，
+ * 条目达到上限也不会立即再次写入。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class PlayerUpdateBuffer {
+    
+    private final cn.popcraft.residencesync.ResidenceSyncPlugin plugin;
+    private final DatabaseManager databaseManager;
+    private final Map<UUID, PlayerData> pendingUpdates = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+    // 上一次写入失败，等待定时任务重试
+    private volatile boolean lastFlushFailed;
+    private volatile CompletableFuture<Void> currentFlush = CompletableFuture.completedFuture(null);
+    private final int maxEntries;
+    private final long flushIntervalMillis;
+    private BukkitTask flushTask;
+    
+    public PlayerUpdateBuffer(cn.popcraft.residencesync.ResidenceSyncPlugin plugin, DatabaseManager databaseManager) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.maxEntries = Math.max(1, plugin.getPluginConfig().getPlayerBufferMaxEntries());
+        this.flushIntervalMillis = Math.max(50L, plugin.getPluginConfig().getPlayerBufferFlushIntervalMillis());
+    }
+    
+    /**
+     * 启动定时写入任务
+     */
+    public void start() {
+        long periodTicks = Math.max(1L, flushIntervalMillis / 50L);
+        flushTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }.runTaskTimerAsynchronously(plugin, periodTicks, periodTicks);
+    }
+    
+    /**
+     * 记录玩家的最新名称和在线时间
+     */
+    public void enqueue(UUID uuid, String playerName) {
+        pendingUpdates.put(uuid, new PlayerData(uuid, playerName, new Timestamp(System.currentTimeMillis())));
+        
+        if (pendingUpdates.size() >= maxEntries && !lastFlushFailed) {
+            flush();
+        }
+    }
+    
+    /**
+     * 将缓冲中的更新写入数据库，同时只会有一个写入任务
+     */
+    public CompletableFuture<Void> flush() {
+        if (pendingUpdates.isEmpty() || !flushing.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        currentFlush = done;
+        
+        List<PlayerData> updates = drain();
+        databaseManager.updatePlayers(updates)
+                .exceptionally(throwable -> {
+                    LoggerUtil.warning("批量更新玩家信息失败: " + throwable.getMessage());
+                    return false;
+                })
+                .thenAccept(success -> {
+                    // 执行器拒绝任务时回调在调用线程同步执行，失败后不能在这里再次写入
+                    lastFlushFailed = !success;
+                    if (!success) {
+                        requeue(updates);
+                    }
+                    flushing.set(false);
+                    
+                    if (success && pendingUpdates.size() >= maxEntries) {
+                        flush();
+                    }
+                    done.complete(null);
+                });
+        return done;
+    }
+    
+    /**
+     * 停止定时任务并写入剩余的全部更新
+     */
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+        
+        // 等待正在进行的写入完成，然后写入剩余条目
+        while (flushing.get()) {
+            currentFlush.join();
+        }
+        
+        if (!pendingUpdates.isEmpty()) {
+            int count = pendingUpdates.size();
+            flush().join();
+            LoggerUtil.info("已写入 " + count + " 条缓冲的玩家信息");
+        }
+    }
+    
+    /**
+     * 获取缓冲中等待写入的玩家数量
+     */
+    public int size() {
+        return pendingUpdates.size();
+    }
+    
+    /**
+     * 取出缓冲中的全部更新
+     */
+    private List<PlayerData> drain() {
+        List<PlayerData> updates = new ArrayList<>(pendingUpdates.size());
+        for (UUID uuid : pendingUpdates.keySet()) {
+            PlayerData update = pendingUpdates.remove(uuid);
+            if (update != null) {
+                updates.add(update);
+            }
+        }
+        return updates;
+    }
+    
+    /**
+     * 将写入失败的更新放回缓冲，已有更新的玩家保留较新的数据
+     */
+    private void requeue(List<PlayerData> updates) {
+        for (PlayerData update : updates) {
+            pendingUpdates.putIfAbsent(update.getUuid(), update);
+        }
+    }
+}
\ No newline at end of file
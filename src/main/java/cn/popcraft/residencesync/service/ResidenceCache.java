@@ -0,0 +1,223 @@
+package cn.popcraft.residencesync.service;
+
+import cn.popcraft.residencesync.database.ResidenceData;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 领地缓存
+ * 
+ * 由 ResidenceService 持有的写穿透缓存，同时按所有者UUID和（领地名称, 服务器ID）索引。
+ * 所有者索引只在从数据库完整加载过该玩家的领地后才存在，因此命中即代表结果完整。
+ * 加载期间发生过写入时不缓存加载结果；写入方法互斥执行，检查写入版本和写入缓存之间不会插入其他写入。
+ * 过期条目不会被删除，数据库不可用时仍可通过 getStale* 方法读取。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class ResidenceCache {
+    
+    private final Map<String, CachedResidence> residencesByKey = new ConcurrentHashMap<>();
+    private final Map<UUID, OwnerEntry> residencesByOwner = new ConcurrentHashMap<>();
+    private final AtomicLong writeVersion = new AtomicLong();
+    private final long ttlMillis;
+    
+    public ResidenceCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+    
+    /**
+     * 生成（领地名称, 服务器ID）缓存键，名称不区分大小写，与数据库排序规则一致
+     */
+    private static String key(String residenceName, String serverId) {
+        return serverId + ':' + residenceName.toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * 获取玩家的全部领地，未加载或已过期时返回null
+     */
+    public List<ResidenceData> getOwnerResidences(UUID ownerUuid) {
+        OwnerEntry entry = residencesByOwner.get(ownerUuid);
+        if (entry == null || isExpired(entry.loadedAt)) {
+            return null;
+        }
+        return collectOwnerResidences(entry);
+    }
+    
+    /**
+     * 获取玩家的全部领地，忽略过期时间，用于数据库不可用时降级读取
+     */
+    public List<ResidenceData> getStaleOwnerResidences(UUID ownerUuid) {
+        OwnerEntry entry = residencesByOwner.get(ownerUuid);
+        return entry != null ? collectOwnerResidences(entry) : null;
+    }
+    
+    /**
+     * 按所有者索引收集领地
+     */
+    private List<ResidenceData> collectOwnerResidences(OwnerEntry entry) {
+        List<ResidenceData> residences = new ArrayList<>(entry.keys.size());
+        for (String key : entry.keys) {
+            CachedResidence cached = residencesByKey.get(key);
+            if (cached != null) {
+                residences.add(cached.residence);
+            }
+        }
+        
+        // 与数据库查询保持一致：按创建时间倒序
+        residences.sort(Comparator.comparing(ResidenceData::getCreationTime,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return residences;
+    }
+    
+    /**
+     * 根据名称和服务器ID获取领地
+     */
+    public ResidenceData getResidence(String residenceName, String serverId) {
+        CachedResidence cached = residencesByKey.get(key(residenceName, serverId));
+        if (cached == null || isExpired(cached.cachedAt)) {
+            return null;
+        }
+        return cached.residence;
+    }
+    
+    /**
+     * 根据名称和服务器ID获取领地，忽略过期时间，用于数据库不可用时降级读取
+     */
+    public ResidenceData getStaleResidence(String residenceName, String serverId) {
+        CachedResidence cached = residencesByKey.get(key(residenceName, serverId));
+        return cached != null ? cached.residence : null;
+    }
+    
+    /**
+     * 开始从数据库加载前获取写入版本，用于判断加载期间是否发生过写入
+     */
+    public long beginLoad() {
+        return writeVersion.get();
+    }
+    
+    /**
+     * 写入从数据库加载的玩家完整领地列表，加载期间发生过写入时结果可能已过时，不缓存
+     */
+    public synchronized void putOwnerResidences(UUID ownerUuid, List<ResidenceData> residences, long loadVersion) {
+        if (writeVersion.get() != loadVersion) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        OwnerEntry entry = new OwnerEntry(now);
+        for (ResidenceData residence : residences) {
+            String key = key(residence.getName(), residence.getServerId());
+            residencesByKey.put(key, new CachedResidence(residence, now));
+            entry.keys.add(key);
+        }
+        residencesByOwner.put(ownerUuid, entry);
+    }
+    
+    /**
+     * 写入从数据库加载的单个领地
+     */
+    public synchronized void putLoaded(ResidenceData residence, long loadVersion) {
+        if (writeVersion.get() != loadVersion) {
+            return;
+        }
+        residencesByKey.put(key(residence.getName(), residence.getServerId()),
+                new CachedResidence(residence, System.currentTimeMillis()));
+    }
+    
+    /**
+     * 写入或更新单个领地
+     *
+     * @return 被替换的旧领地数据，不存在时返回null
+     */
+    public synchronized ResidenceData put(ResidenceData residence) {
+        String key = key(residence.getName(), residence.getServerId());
+        writeVersion.incrementAndGet();
+        CachedResidence previous = residencesByKey.put(key, new CachedResidence(residence, System.currentTimeMillis()));
+        
+        // 所有者变更时从原所有者的索引中移除
+        if (previous != null && !previous.residence.getOwnerUuid().equals(residence.getOwnerUuid())) {
+            OwnerEntry previousOwner = residencesByOwner.get(previous.residence.getOwnerUuidAsUUID());
+            if (previousOwner != null) {
+                previousOwner.keys.remove(key);
+            }
+        }
+        
+        // 只更新已完整加载的所有者索引，避免生成不完整的列表
+        OwnerEntry owner = residencesByOwner.get(residence.getOwnerUuidAsUUID());
+        if (owner != null) {
+            owner.keys.add(key);
+        }
+        
+        return previous != null ? previous.residence : null;
+    }
+    
+    /**
+     * 移除单个领地
+     *
+     * @return 被移除的领地数据，未缓存时返回null
+     */
+    public synchronized ResidenceData remove(String residenceName, String serverId) {
+        String key = key(residenceName, serverId);
+        writeVersion.incrementAndGet();
+        CachedResidence removed = residencesByKey.remove(key);
+        if (removed != null) {
+            OwnerEntry owner = residencesByOwner.get(removed.residence.getOwnerUuidAsUUID());
+            if (owner != null) {
+                owner.keys.remove(key);
+            }
+            return removed.residence;
+        }
+        return null;
+    }
+    
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        writeVersion.incrementAndGet();
+        residencesByOwner.clear();
+        residencesByKey.clear();
+    }
+    
+    /**
+     * 获取已缓存的领地数量
+     */
+    public int size() {
+        return residencesByKey.size();
+    }
+    
+    /**
+     * 检查缓存条目是否已过期
+     */
+    private boolean isExpired(long cachedAt) {
+        return System.currentTimeMillis() - cachedAt > ttlMillis;
+    }
+    
+    /**
+     * 领地缓存条目
+     */
+    private static class CachedResidence {
+        private final ResidenceData residence;
+        private final long cachedAt;
+        
+        private CachedResidence(ResidenceData residence, long cachedAt) {
+            this.residence = residence;
+            this.cachedAt = cachedAt;
+        }
+    }
+    
+    /**
+     * 所有者索引条目
+     */
+    private static class OwnerEntry {
+        private final long loadedAt;
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+        
+        private OwnerEntry(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+    }
+}
\ No newline at end of file
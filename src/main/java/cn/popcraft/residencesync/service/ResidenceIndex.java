@@ -0,0 +1,171 @@
+package cn.popcraft.residencesync.service;
+
+import cn.popcraft.residencesync.database.ResidenceData;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 全网领地名称索引
+ * 
+ * 将小写领地名称映射到全网所有同名领地（服务器ID、所有者、边界），
+ * 跨服查找领地只需一次哈希查找，不需要访问数据库或其他服务器。
+ * 启动时从数据库全量加载，之后由本地写入和定期全量刷新保持最新。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class ResidenceIndex {
+    
+    private static final ResidenceData[] EMPTY = new ResidenceData[0];
+    
+    private final Object writeLock = new Object();
+    private volatile Map<String, ResidenceData[]> residencesByName = new ConcurrentHashMap<>();
+    
+    // 全量加载期间发生的本地写入，加载完成后按顺序重放
+    private List<Consumer<Map<String, ResidenceData[]>>> pendingWrites;
+    
+    /**
+     * 生成索引键
+     */
+    private static String key(String residenceName) {
+        return residenceName.toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * 查找领地，存在多个同名领地时优先返回指定服务器上的领地
+     */
+    public ResidenceData find(String residenceName, String preferredServerId) {
+        ResidenceData[] entries = residencesByName.get(key(residenceName));
+        if (entries == null || entries.length == 0) {
+            return null;
+        }
+        
+        for (ResidenceData entry : entries) {
+            if (entry.getServerId().equals(preferredServerId)) {
+                return entry;
+            }
+        }
+        return entries[0];
+    }
+    
+    /**
+     * 开始全量加载，之后的本地写入会在加载完成时重放
+     */
+    public void beginLoad() {
+        synchronized (writeLock) {
+            pendingWrites = new ArrayList<>();
+        }
+    }
+    
+    /**
+     * 使用从数据库加载的全部领地替换索引
+     */
+    public void completeLoad(List<ResidenceData> residences) {
+        Map<String, ResidenceData[]> rebuilt = new ConcurrentHashMap<>(Math.max(16, residences.size() * 4 / 3));
+        for (ResidenceData residence : residences) {
+            putInto(rebuilt, residence);
+        }
+        
+        synchronized (writeLock) {
+            if (pendingWrites != null) {
+                for (Consumer<Map<String, ResidenceData[]>> write : pendingWrites) {
+                    write.accept(rebuilt);
+                }
+            }
+            pendingWrites = null;
+            
+            residencesByName = rebuilt;
+        }
+    }
+    
+    /**
+     * 放弃本次全量加载
+     */
+    public void abortLoad() {
+        synchronized (writeLock) {
+            pendingWrites = null;
+        }
+    }
+    
+    /**
+     * 写入或更新单个领地
+     */
+    public void put(ResidenceData residence) {
+        synchronized (writeLock) {
+            putInto(residencesByName, residence);
+            if (pendingWrites != null) {
+                pendingWrites.add(index -> putInto(index, residence));
+            }
+        }
+    }
+    
+    /**
+     * 移除单个领地
+     */
+    public void remove(String residenceName, String serverId) {
+        synchronized (writeLock) {
+            removeFrom(residencesByName, residenceName, serverId);
+            if (pendingWrites != null) {
+                pendingWrites.add(index -> removeFrom(index, residenceName, serverId));
+            }
+        }
+    }
+    
+    /**
+     * 获取索引中的领地数量
+     */
+    public int size() {
+        int size = 0;
+        for (ResidenceData[] entries : residencesByName.values()) {
+            size += entries.length;
+        }
+        return size;
+    }
+    
+    /**
+     * 将领地写入指定的索引表，同名同服务器的条目会被替换
+     */
+    private static void putInto(Map<String, ResidenceData[]> index, ResidenceData residence) {
+        String key = key(residence.getName());
+        ResidenceData[] entries = index.getOrDefault(key, EMPTY);
+        
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].getServerId().equals(residence.getServerId())) {
+                ResidenceData[] updated = entries.clone();
+                updated[i] = residence;
+                index.put(key, updated);
+                return;
+            }
+        }
+        
+        ResidenceData[] updated = Arrays.copyOf(entries, entries.length + 1);
+        updated[entries.length] = residence;
+        index.put(key, updated);
+    }
+    
+    /**
+     * 从指定的索引表中移除领地
+     */
+    private static void removeFrom(Map<String, ResidenceData[]> index, String residenceName, String serverId) {
+        String key = key(residenceName);
+        ResidenceData[] entries = index.get(key);
+        if (entries == null) {
+            return;
+        }
+        
+        List<ResidenceData> remaining = new ArrayList<>(entries.length);
+        for (ResidenceData entry : entries) {
+            if (!entry.getServerId().equals(serverId)) {
+                remaining.add(entry);
+            }
+        }
+        
+        if (remaining.isEmpty()) {
+            index.remove(key);
+        } else if (remaining.size() != entries.length) {
+            index.put(key, remaining.toArray(EMPTY));
+        }
+    }
+}
\ No newline at end of file
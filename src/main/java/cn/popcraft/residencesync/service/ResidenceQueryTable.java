@@ -0,0 +1,301 @@
+package cn.popcraft.residencesync.service;
+
+import cn.popcraft.residencesync.database.ResidenceData;
+import cn.popcraft.residencesync.messaging.LatencyTracker;
+import cn.popcraft.residencesync.messaging.ResidenceQuery;
+import cn.popcraft.residencesync.messaging.ResidenceQueryResponse;
+import cn.popcraft.residencesync.util.TimingWheel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 进行中的跨服领地查询
+ * 
+ * 候选子服按 p95 延迟从低到高排序，同时最多向 fanout 个子服发送查询；某个子服回复"没有"后立即查询下一个，
+ * 某个子服超过自己的 p95 延迟仍未回复时，额外向下一个子服发送一次对冲请求。
+ * 第一个找到领地的响应完成查询，其余尚未发送的查询不再发送，迟到的响应直接忽略；
+ * 所有候选子服都回复"没有"时立即以null完成，超过 timeoutMillis 同样以null完成。
+ * 主线程每tick推进一次时间轮处理对冲和超时。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class ResidenceQueryTable {
+    
+    // 时间轮刻度与服务端tick一致
+    private static final long TICK_MILLIS = 50L;
+    private static final int WHEEL_SIZE = 128;
+    
+    private final LatencyTracker latencies;
+    private final int fanout;
+    private final long hedgeMinMillis;
+    private final long timeoutMillis;
+    private final Map<UUID, Query> queries = new HashMap<>();
+    private final TimingWheel<Deadline> wheel;
+    
+    private final AtomicLong queryCount = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hedgedCount = new AtomicLong();
+    
+    public ResidenceQueryTable(LatencyTracker latencies, int fanout, long hedgeMinMillis, long timeoutMillis) {
+        this.latencies = latencies;
+        this.fanout = fanout;
+        this.hedgeMinMillis = Math.max(TICK_MILLIS, hedgeMinMillis);
+        this.timeoutMillis = Math.max(TICK_MILLIS, timeoutMillis);
+        this.wheel = new TimingWheel<>(TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+    }
+    
+    /**
+     * 开始查询领地
+     * 
+     * @param candidates 候选子服
+     * @param sender 向子服发送查询，在持有锁之外调用
+     * @return 找到领地时以领地完成，所有候选子服都没有或超时时以null完成
+     */
+    public CompletableFuture<ResidenceData> query(String residenceName, List<String> candidates,
+                                                  BiConsumer<String, ResidenceQuery> sender) {
+        if (candidates.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        List<String> ordered = new ArrayList<>(candidates);
+        ordered.sort(Comparator.comparingLong(serverId -> latencies.getP95(serverId, hedgeMinMillis)));
+        
+        Query query = new Query(new ResidenceQuery(UUID.randomUUID(), residenceName), ordered);
+        List<String> targets = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            query.timeout = wheel.schedule(new Deadline(query, null), now + timeoutMillis);
+            queries.put(query.request.queryId, query);
+            
+            int initial = fanout > 0 ? fanout : ordered.size();
+            while (targets.size() < initial) {
+                if (!sendNext(query, now, targets)) {
+                    break;
+                }
+            }
+        }
+        queryCount.incrementAndGet();
+        
+        send(query, targets, sender);
+        return query.future;
+    }
+    
+    /**
+     * 处理子服的查询响应
+     * 
+     * @return 响应对应的查询仍在进行时返回true
+     */
+    public boolean complete(String fromServer, ResidenceQueryResponse response, BiConsumer<String, ResidenceQuery> sender) {
+        Query query;
+        List<String> targets = new ArrayList<>();
+        boolean finished;
+        synchronized (this) {
+            query = queries.get(response.queryId);
+            if (query == null) {
+                return false;
+            }
+            
+            long now = System.currentTimeMillis();
+            Outstanding outstanding = query.outstanding.remove(fromServer);
+            if (outstanding != null) {
+                outstanding.hedge.cancel();
+                latencies.record(fromServer, now - outstanding.sentMillis);
+            }
+            
+            if (response.residence != null) {
+                finish(query);
+                finished = true;
+            } else {
+                // 保持并发数量，继续查询下一个子服
+                if (outstanding != null) {
+                    sendNext(query, now, targets);
+                }
+                finished = query.outstanding.isEmpty() && query.remaining.isEmpty();
+                if (finished) {
+                    finish(query);
+                }
+            }
+        }
+        
+        if (finished) {
+            query.future.complete(response.residence);
+        } else {
+            send(query, targets, sender);
+        }
+        return true;
+    }
+    
+    /**
+     * 推进时间轮：超过 p95 延迟仍未回复的查询发送对冲请求，超时的查询以null完成
+     */
+    public void tick(long nowMillis, BiConsumer<String, ResidenceQuery> sender) {
+        List<Query> timedOut = new ArrayList<>();
+        Map<Query, List<String>> hedges = new HashMap<>();
+        synchronized (this) {
+            // 先取出到期的定时再处理，处理时会取消同一查询的其他定时
+            List<Deadline> due = new ArrayList<>();
+            wheel.advance(nowMillis, due::add);
+            
+            for (Deadline deadline : due) {
+                Query query = deadline.query;
+                if (deadline.serverId == null) {
+                    finish(query);
+                    timedOut.add(query);
+                    continue;
+                }
+                
+                Outstanding outstanding = query.outstanding.get(deadline.serverId);
+                if (outstanding != null && !outstanding.hedged) {
+                    outstanding.hedged = true;
+                    List<String> targets = hedges.computeIfAbsent(query, key -> new ArrayList<>());
+                    if (sendNext(query, nowMillis, targets)) {
+                        hedgedCount.incrementAndGet();
+                    }
+                }
+            }
+        }
+        
+        hedges.keySet().removeAll(timedOut);
+        hedges.forEach((query, targets) -> send(query, targets, sender));
+        for (Query query : timedOut) {
+            query.future.complete(null);
+        }
+    }
+    
+    /**
+     * 取消所有查询
+     */
+    public void clear() {
+        List<Query> cancelled;
+        synchronized (this) {
+            cancelled = new ArrayList<>(queries.values());
+            wheel.clear(deadline -> {});
+            queries.clear();
+        }
+        
+        for (Query query : cancelled) {
+            query.future.complete(null);
+        }
+    }
+    
+    /**
+     * 取出下一个候选子服并登记对冲时间
+     */
+    private boolean sendNext(Query query, long nowMillis, List<String> targets) {
+        String serverId = query.remaining.pollFirst();
+        if (serverId == null) {
+            return false;
+        }
+        
+        long hedgeDelay = Math.max(hedgeMinMillis, latencies.getP95(serverId, hedgeMinMillis));
+        Outstanding outstanding = new Outstanding(nowMillis);
+        outstanding.hedge = wheel.schedule(new Deadline(query, serverId), nowMillis + hedgeDelay);
+        query.outstanding.put(serverId, outstanding);
+        targets.add(serverId);
+        return true;
+    }
+    
+    /**
+     * 移除查询并取消它的所有定时
+     */
+    private void finish(Query query) {
+        queries.remove(query.request.queryId);
+        query.timeout.cancel();
+        for (Outstanding outstanding : query.outstanding.values()) {
+            outstanding.hedge.cancel();
+        }
+        query.outstanding.clear();
+        query.remaining.clear();
+    }
+    
+    private void send(Query query, List<String> targets, BiConsumer<String, ResidenceQuery> sender) {
+        for (String serverId : targets) {
+            requestCount.incrementAndGet();
+            sender.accept(serverId, query.request);
+        }
+    }
+    
+    /**
+     * 进行中的查询数量
+     */
+    public synchronized int size() {
+        return queries.size();
+    }
+    
+    /**
+     * 已开始的查询数量
+     */
+    public long getQueryCount() {
+        return queryCount.get();
+    }
+    
+    /**
+     * 发出的查询请求数量，包括对冲请求
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+    
+    /**
+     * 对冲请求数量
+     */
+    public long getHedgedCount() {
+        return hedgedCount.get();
+    }
+    
+    /**
+     * 一次领地查询
+     */
+    private static class Query {
+        
+        private final ResidenceQuery request;
+        private final Deque<String> remaining;
+        private final Map<String, Outstanding> outstanding = new HashMap<>();
+        private final CompletableFuture<ResidenceData> future = new CompletableFuture<>();
+        private TimingWheel.Timeout<Deadline> timeout;
+        
+        private Query(ResidenceQuery request, List<String> candidates) {
+            this.request = request;
+            this.remaining = new ArrayDeque<>(candidates);
+        }
+    }
+    
+    /**
+     * 已发送、尚未回复的查询请求
+     */
+    private static class Outstanding {
+        
+        private final long sentMillis;
+        private TimingWheel.Timeout<Deadline> hedge;
+        private boolean hedged;
+        
+        private Outstanding(long sentMillis) {
+            this.sentMillis = sentMillis;
+        }
+    }
+    
+    /**
+     * 时间轮中的定时，serverId 为null表示整个查询的超时
+     */
+    private static class Deadline {
+        
+        private final Query query;
+        private final String serverId;
+        
+        private Deadline(Query query, String serverId) {
+            this.query = query;
+            this.serverId = serverId;
+        }
+    }
+}
\ No newline at end of file
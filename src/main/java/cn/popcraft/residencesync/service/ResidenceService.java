@@ -1,19 +1,26 @@
 package cn.popcraft.residencesync.service;
 
 import cn.popcraft.residencesync.database.DatabaseManager;
+import cn.popcraft.residencesync.database.DatabaseUnavailableException;
 import cn.popcraft.residencesync.database.ResidenceData;
 import cn.popcraft.residencesync.util.LoggerUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * 领地服务类
  * 
- * 提供领地相关的业务逻辑处理
+ * 提供领地相关的业务逻辑处理。数据库不可用时，读取降级为缓存和全网索引中可能过期的数据。
  * 
  * @author MiniMax Agent
  * @version 1.0.0
@@ -22,47 +29,158 @@ public class ResidenceService {
     
     private final cn.popcraft.residencesync.ResidenceSyncPlugin plugin;
     private final DatabaseManager databaseManager;
+    private final ResidenceCache residenceCache;
+    private final ResidenceIndex residenceIndex = new ResidenceIndex();
+    private final AtomicBoolean indexLoading = new AtomicBoolean(false);
+    private final List<Consumer<UUID>> ownerChangeListeners = new CopyOnWriteArrayList<>();
+    private final PlayerUpdateBuffer playerUpdateBuffer;
     
     public ResidenceService(cn.popcraft.residencesync.ResidenceSyncPlugin plugin) {
         this.plugin = plugin;
         this.databaseManager = plugin.getDatabaseManager();
+        this.residenceCache = new ResidenceCache(plugin.getPluginConfig().getCacheTtlSeconds() * 1000L);
+        this.playerUpdateBuffer = new PlayerUpdateBuffer(plugin, databaseManager);
+    }
+    
+    /**
+     * 初始化领地服务：加载全网领地索引并定期刷新，启动玩家信息写入缓冲
+     */
+    public void initialize() {
+        reloadIndex();
+        playerUpdateBuffer.start();
+        
+        long period = plugin.getPluginConfig().getIndexRefreshSeconds() * 20L;
+        if (period > 0) {
+            new BukkitRunnable() {
+                @Override
+                public void run() {
+                    reloadIndex();
+                }
+            }.runTaskTimerAsynchronously(plugin, period, period);
+        }
+    }
+    
+    /**
+     * 关闭领地服务，写入缓冲中剩余的玩家信息
+     */
+    public void shutdown() {
+        playerUpdateBuffer.shutdown();
+    }
+    
+    /**
+     * 从数据库全量重建领地名称索引
+     */
+    public CompletableFuture<Void> reloadIndex() {
+        // 同一时间只允许一次全量加载
+        if (!indexLoading.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        residenceIndex.beginLoad();
+        return databaseManager.getAllResidences().handle((residences, throwable) -> {
+            if (throwable != null) {
+                residenceIndex.abortLoad();
+                LoggerUtil.warning("加载领地索引失败: " + throwable.getMessage());
+            } else {
+                residenceIndex.completeLoad(residences);
+                LoggerUtil.debug("领地索引已加载: " + residences.size() + " 个领地");
+            }
+            indexLoading.set(false);
+            return null;
+        });
     }
     
     /**
      * 获取玩家的所有领地（跨服）
      */
     public CompletableFuture<List<ResidenceData>> getPlayerResidences(Player player) {
-        return databaseManager.getPlayerResidences(player.getUniqueId());
+        return getPlayerResidences(player.getUniqueId());
+    }
+    
+    /**
+     * 根据UUID获取玩家的所有领地（跨服），优先从缓存读取
+     */
+    public CompletableFuture<List<ResidenceData>> getPlayerResidences(UUID playerUuid) {
+        List<ResidenceData> cached = residenceCache.getOwnerResidences(playerUuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        long loadVersion = residenceCache.beginLoad();
+        return withFallback(databaseManager.getPlayerResidences(playerUuid).thenApply(residences -> {
+            residenceCache.putOwnerResidences(playerUuid, residences, loadVersion);
+            return residences;
+        }), () -> {
+            List<ResidenceData> stale = residenceCache.getStaleOwnerResidences(playerUuid);
+            return stale != null ? stale : new ArrayList<>();
+        });
     }
     
     /**
      * 获取玩家的领地数量
      */
     public CompletableFuture<Integer> getPlayerResidenceCount(Player player) {
-        return getPlayerResidences(player).thenApply(List::size);
+        List<ResidenceData> cached = residenceCache.getOwnerResidences(player.getUniqueId());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.size());
+        }
+        return withFallback(databaseManager.countResidences(player.getUniqueId()), () -> {
+            List<ResidenceData> stale = residenceCache.getStaleOwnerResidences(player.getUniqueId());
+            return stale != null ? stale.size() : 0;
+        });
     }
     
     /**
      * 检查玩家是否拥有指定领地
      */
     public CompletableFuture<Boolean> playerOwnsResidence(Player player, String residenceName) {
-        return getPlayerResidences(player).thenApply(residences -> 
-            residences.stream().anyMatch(res -> res.getName().equalsIgnoreCase(residenceName))
-        );
+        List<ResidenceData> cached = residenceCache.getOwnerResidences(player.getUniqueId());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(
+                    cached.stream().anyMatch(res -> res.getName().equalsIgnoreCase(residenceName)));
+        }
+        return withFallback(databaseManager.ownsResidence(player.getUniqueId(), residenceName), () -> {
+            List<ResidenceData> stale = residenceCache.getStaleOwnerResidences(player.getUniqueId());
+            return stale != null && stale.stream().anyMatch(res -> res.getName().equalsIgnoreCase(residenceName));
+        });
     }
     
     /**
      * 根据名称和服务器ID获取领地
      */
     public CompletableFuture<ResidenceData> getResidence(String residenceName, String serverId) {
-        return databaseManager.getResidence(residenceName, serverId);
+        ResidenceData cached = residenceCache.getResidence(residenceName, serverId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        long loadVersion = residenceCache.beginLoad();
+        return withFallback(databaseManager.getResidence(residenceName, serverId).thenApply(residence -> {
+            if (residence != null) {
+                residenceCache.putLoaded(residence, loadVersion);
+            }
+            return residence;
+        }), () -> {
+            ResidenceData stale = residenceCache.getStaleResidence(residenceName, serverId);
+            if (stale != null) {
+                return stale;
+            }
+            ResidenceData indexed = residenceIndex.find(residenceName, serverId);
+            return indexed != null && indexed.getServerId().equals(serverId) ? indexed : null;
+        });
     }
     
     /**
      * 跨服查找领地
      */
     public CompletableFuture<ResidenceData> findResidenceCrossServer(String residenceName) {
-        // 首先在本地服务器查找
+        // 优先查询全网领地索引
+        ResidenceData indexed = residenceIndex.find(residenceName, plugin.getPluginConfig().getServerId());
+        if (indexed != null) {
+            return CompletableFuture.completedFuture(indexed);
+        }
+        
+        // 索引未命中（尚未加载或刚创建的领地），在本地服务器查找
         return getResidence(residenceName, plugin.getPluginConfig().getServerId())
                 .thenCompose(residence -> {
                     if (residence != null) {
@@ -70,22 +188,26 @@ public class ResidenceService {
                     }
                     
                     // 如果本地没有，在其他服务器查找
-                    // 这里需要实现跨服通信逻辑
-                    LoggerUtil.info("正在跨服查找领地: " + residenceName);
+                    LoggerUtil.debug("正在跨服查找领地: " + residenceName);
                     return findResidenceInOtherServers(residenceName);
                 });
     }
     
     /**
-     * 在其他服务器查找领地
+     * 在其他服务器查找领地，找到的领地加入全网索引
      */
     private CompletableFuture<ResidenceData> findResidenceInOtherServers(String residenceName) {
-        // TODO: 实现跨服通信查找逻辑
-        // 这里应该通过BungeeCord或者Redis等方式查询其他服务器
-        LoggerUtil.info("在其他服务器中查找领地: " + residenceName);
+        CrossServerService crossServerService = plugin.getCrossServerService();
+        if (crossServerService == null) {
+            return CompletableFuture.completedFuture(null);
+        }
         
-        // 暂时返回null，实际实现时需要查询其他服务器
-        return CompletableFuture.completedFuture(null);
+        return crossServerService.queryResidence(residenceName).thenApply(residence -> {
+            if (residence != null) {
+                residenceIndex.put(residence);
+            }
+            return residence;
+        });
     }
     
     /**
@@ -102,14 +224,134 @@ public class ResidenceService {
      * 添加新领地
      */
     public CompletableFuture<Boolean> addResidence(ResidenceData residence) {
-        return databaseManager.addOrUpdateResidence(residence);
+        return databaseManager.addOrUpdateResidence(residence).thenApply(success -> {
+            if (success) {
+                ResidenceData previous = residenceCache.put(residence);
+                residenceIndex.put(residence);
+                notifyOwnerChanged(residence.getOwnerUuidAsUUID());
+                if (previous != null && !previous.getOwnerUuid().equals(residence.getOwnerUuid())) {
+                    notifyOwnerChanged(previous.getOwnerUuidAsUUID());
+                }
+            }
+            return success;
+        });
+    }
+    
+    /**
+     * 批量添加或更新领地信息
+     * 
+     * @return 成功写入的领地数量
+     */
+    public CompletableFuture<Integer> addResidences(Collection<ResidenceData> residences) {
+        return databaseManager.addOrUpdateResidences(residences).thenApply(written -> {
+            if (written < residences.size()) {
+                // 无法确定哪些分块写入成功，丢弃缓存并重新加载索引
+                residenceCache.clear();
+                reloadIndex();
+            }
+            
+            Set<UUID> changedOwners = new HashSet<>();
+            for (ResidenceData residence : residences) {
+                if (written == residences.size()) {
+                    ResidenceData previous = residenceCache.put(residence);
+                    residenceIndex.put(residence);
+                    if (previous != null && !previous.getOwnerUuid().equals(residence.getOwnerUuid())) {
+                        changedOwners.add(previous.getOwnerUuidAsUUID());
+                    }
+                }
+                changedOwners.add(residence.getOwnerUuidAsUUID());
+            }
+            changedOwners.forEach(this::notifyOwnerChanged);
+            
+            return written;
+        });
     }
     
     /**
      * 删除领地
      */
     public CompletableFuture<Boolean> deleteResidence(String residenceName, String serverId) {
-        return databaseManager.deleteResidence(residenceName, serverId);
+        return databaseManager.deleteResidence(residenceName, serverId).thenApply(success -> {
+            // 无论是否删除成功都移除缓存，下次读取时以数据库为准
+            ResidenceData removed = residenceCache.remove(residenceName, serverId);
+            if (success) {
+                residenceIndex.remove(residenceName, serverId);
+            }
+            if (removed != null) {
+                notifyOwnerChanged(removed.getOwnerUuidAsUUID());
+            }
+            return success;
+        });
+    }
+    
+    /**
+     * 批量删除领地
+     * 
+     * @return 成功处理的领地数量
+     */
+    public CompletableFuture<Integer> deleteResidences(Collection<ResidenceData> residences) {
+        return databaseManager.deleteResidences(residences).thenApply(deleted -> {
+            Set<UUID> changedOwners = new HashSet<>();
+            for (ResidenceData residence : residences) {
+                ResidenceData removed = residenceCache.remove(residence.getName(), residence.getServerId());
+                if (deleted == residences.size()) {
+                    residenceIndex.remove(residence.getName(), residence.getServerId());
+                }
+                changedOwners.add(residence.getOwnerUuidAsUUID());
+                if (removed != null) {
+                    changedOwners.add(removed.getOwnerUuidAsUUID());
+                }
+            }
+            
+            if (deleted < residences.size()) {
+                // 无法确定哪些分块删除成功，重新加载索引
+                reloadIndex();
+            }
+            changedOwners.forEach(this::notifyOwnerChanged);
+            
+            return deleted;
+        });
+    }
+    
+    /**
+     * 注册领地所有者变更监听器，玩家的领地被添加、修改或删除时调用
+     */
+    public void addOwnerChangeListener(Consumer<UUID> listener) {
+        ownerChangeListeners.add(listener);
+    }
+    
+    /**
+     * 通知玩家的领地发生变化
+     */
+    private void notifyOwnerChanged(UUID ownerUuid) {
+        for (Consumer<UUID> listener : ownerChangeListeners) {
+            try {
+                listener.accept(ownerUuid);
+            } catch (Exception e) {
+                LoggerUtil.warning("处理领地变更通知失败: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 清空领地缓存
+     */
+    public void clearCache() {
+        residenceCache.clear();
+    }
+    
+    /**
+     * 获取已缓存的领地数量
+     */
+    public int getCachedResidenceCount() {
+        return residenceCache.size();
+    }
+    
+    /**
+     * 获取全网领地索引中的领地数量
+     */
+    public int getIndexedResidenceCount() {
+        return residenceIndex.size();
     }
     
     /**
@@ -139,12 +381,23 @@ public class ResidenceService {
      * 获取玩家的可操作领地列表
      */
     public CompletableFuture<List<String>> getPlayerAccessibleResidenceNames(Player player) {
-        return getPlayerResidences(player).thenApply(residences -> 
-            residences.stream()
+        List<ResidenceData> cached = residenceCache.getOwnerResidences(player.getUniqueId());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.stream()
+                    .map(ResidenceData::getName)
+                    .sorted(String.CASE_INSENSITIVE_ORDER)
+                    .toList());
+        }
+        return withFallback(databaseManager.listResidenceNames(player.getUniqueId()), () -> {
+            List<ResidenceData> stale = residenceCache.getStaleOwnerResidences(player.getUniqueId());
+            if (stale == null) {
+                return new ArrayList<>();
+            }
+            return stale.stream()
                     .map(ResidenceData::getName)
-                    .sorted()
-                    .toList()
-        );
+                    .sorted(String.CASE_INSENSITIVE_ORDER)
+                    .toList();
+        });
     }
     
     /**
@@ -220,10 +473,10 @@ public class ResidenceService {
     }
     
     /**
-     * 更新玩家在数据库中的信息
+     * 更新玩家信息，写入缓冲后批量写入数据库
      */
-    public CompletableFuture<Boolean> updatePlayerInfo(Player player) {
-        return databaseManager.updatePlayer(player.getUniqueId(), player.getName());
+    public void updatePlayerInfo(Player player) {
+        playerUpdateBuffer.enqueue(player.getUniqueId(), player.getName());
     }
     
     /**
@@ -235,7 +488,21 @@ public class ResidenceService {
             return CompletableFuture.completedFuture(player.getName());
         }
         
-        return databaseManager.getPlayerName(uuid);
+        return withFallback(databaseManager.getPlayerName(uuid), () -> null);
+    }
+    
+    /**
+     * 数据库不可用时使用降级结果，其他异常照常传递
+     */
+    private static <T> CompletableFuture<T> withFallback(CompletableFuture<T> future, Supplier<T> fallback) {
+        return future.exceptionally(throwable -> {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+            if (cause instanceof DatabaseUnavailableException) {
+                return fallback.get();
+            }
+            throw throwable instanceof CompletionException ? (CompletionException) throwable : new CompletionException(throwable);
+        });
     }
     
     /**
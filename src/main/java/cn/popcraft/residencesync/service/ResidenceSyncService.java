@@ -0,0 +1,213 @@
+package cn.popcraft.residencesync.service;
+
+import cn.popcraft.residencesync.database.ResidenceData;
+import cn.popcraft.residencesync.util.LoggerUtil;
+import com.bekvon.residence.Residence;
+import com.bekvon.residence.protection.ClaimedResidence;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 领地全量同步服务
+ * 
+ * 将本服 Residence 插件中的领地与数据库中本服的记录做差集：
+ * 一次性读取本服的全部记录，按内容哈希比对，只批量写入新增或变化的领地，并批量删除已不存在的领地。
+ * Residence 没有返回任何领地或有领地读取失败时不删除记录；要删除的记录超过 settings.syncMaxDeletePercent 时
+ * 也不删除，除非使用 force 同步。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class ResidenceSyncService {
+    
+    private final cn.popcraft.residencesync.ResidenceSyncPlugin plugin;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    
+    public ResidenceSyncService(cn.popcraft.residencesync.ResidenceSyncPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * 执行一次全量同步，需要在主线程调用以读取 Residence 插件的数据
+     */
+    public CompletableFuture<SyncResult> synchronize() {
+        return synchronize(false);
+    }
+    
+    /**
+     * 执行一次全量同步
+     * 
+     * @param force 为true时允许删除超过比例上限的记录
+     */
+    public CompletableFuture<SyncResult> synchronize(boolean force) {
+        if (!running.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("已有同步任务正在进行"));
+        }
+        
+        Residence residencePlugin = Residence.getInstance();
+        if (residencePlugin == null) {
+            running.set(false);
+            return CompletableFuture.failedFuture(new IllegalStateException("Residence插件未加载，无法同步数据"));
+        }
+        
+        String serverId = plugin.getPluginConfig().getServerId();
+        
+        // 在主线程读取本服领地
+        Map<String, ResidenceData> localResidences = new HashMap<>();
+        int readFailures = 0;
+        for (ClaimedResidence residence : residencePlugin.getResidenceManager().getResidences().values()) {
+            try {
+                ResidenceData data = toResidenceData(residence, serverId);
+                localResidences.put(key(data.getName()), data);
+            } catch (Exception e) {
+                readFailures++;
+                LoggerUtil.warning("读取领地失败: " + residence.getName() + " - " + e.getMessage());
+            }
+        }
+        
+        LoggerUtil.info("开始同步 " + localResidences.size() + " 个领地数据...");
+        
+        int localReadFailures = readFailures;
+        return plugin.getDatabaseManager().getServerResidences(serverId)
+                .thenCompose(storedResidences -> applyDiff(localResidences, storedResidences, localReadFailures, force))
+                .whenComplete((result, throwable) -> {
+                    running.set(false);
+                    if (throwable != null) {
+                        LoggerUtil.warning("数据同步失败: " + throwable.getMessage());
+                    } else {
+                        LoggerUtil.info("数据同步完成: " + result);
+                    }
+                });
+    }
+    
+    /**
+     * 比对本地领地与数据库记录，写入变化的领地并删除已不存在的领地
+     */
+    private CompletableFuture<SyncResult> applyDiff(Map<String, ResidenceData> localResidences,
+                                                    List<ResidenceData> storedResidences, int readFailures, boolean force) {
+        Map<String, Long> storedHashes = new HashMap<>(storedResidences.size() * 2);
+        List<ResidenceData> removed = new ArrayList<>();
+        for (ResidenceData stored : storedResidences) {
+            String key = key(stored.getName());
+            storedHashes.put(key, stored.getContentHash());
+            if (!localResidences.containsKey(key)) {
+                removed.add(stored);
+            }
+        }
+        
+        List<ResidenceData> changed = new ArrayList<>();
+        for (Map.Entry<String, ResidenceData> entry : localResidences.entrySet()) {
+            Long storedHash = storedHashes.get(entry.getKey());
+            if (storedHash == null || storedHash != entry.getValue().getContentHash()) {
+                changed.add(entry.getValue());
+            }
+        }
+        
+        int unchanged = localResidences.size() - changed.size();
+        ResidenceService residenceService = plugin.getResidenceService();
+        
+        // Residence 数据可能没有完整加载，此时不能把缺少的领地当作已删除
+        int skippedDeletes = 0;
+        if (!removed.isEmpty()) {
+            String reason = null;
+            if (readFailures > 0) {
+                reason = "有 " + readFailures + " 个领地读取失败";
+            } else if (localResidences.isEmpty() && !force) {
+                reason = "Residence 没有返回任何领地";
+            } else if (!force && removed.size() * 100L > storedResidences.size()
+                    * (long) plugin.getPluginConfig().getSyncMaxDeletePercent()) {
+                reason = "要删除 " + removed.size() + "/" + storedResidences.size() + " 个记录，超过了 "
+                        + plugin.getPluginConfig().getSyncMaxDeletePercent() + "% 的上限";
+            }
+            
+            if (reason != null) {
+                LoggerUtil.warning("同步时跳过删除: " + reason);
+                skippedDeletes = removed.size();
+                removed = new ArrayList<>();
+            }
+        }
+        
+        CompletableFuture<Integer> upserts = changed.isEmpty()
+                ? CompletableFuture.completedFuture(0) : residenceService.addResidences(changed);
+        CompletableFuture<Integer> deletes = removed.isEmpty()
+                ? CompletableFuture.completedFuture(0) : residenceService.deleteResidences(removed);
+        
+        int toDelete = removed.size();
+        int skipped = skippedDeletes;
+        return upserts.thenCombine(deletes, (written, deleted) -> new SyncResult(unchanged, written, deleted,
+                readFailures + changed.size() - written + toDelete - deleted, skipped));
+    }
+    
+    /**
+     * 将Residence插件的领地转换为ResidenceData
+     */
+    public static ResidenceData toResidenceData(ClaimedResidence residence, String serverId) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        
+        return new ResidenceData(
+                residence.getName(),
+                residence.getOwner().toString(),
+                serverId,
+                residence.getWorld().getName(),
+                residence.getX1(), residence.getY1(), residence.getZ1(),
+                residence.getX2(), residence.getY2(), residence.getZ2(),
+                now,
+                now
+        );
+    }
+    
+    /**
+     * 比对键，名称不区分大小写，与数据库排序规则一致
+     */
+    private static String key(String residenceName) {
+        return residenceName.toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * 同步结果
+     */
+    public static class SyncResult {
+        private final int unchanged;
+        private final int upserted;
+        private final int deleted;
+        private final int failed;
+        private final int skippedDeletes;
+        
+        private SyncResult(int unchanged, int upserted, int deleted, int failed, int skippedDeletes) {
+            this.unchanged = unchanged;
+            this.upserted = upserted;
+            this.deleted = deleted;
+            this.failed = failed;
+            this.skippedDeletes = skippedDeletes;
+        }
+        
+        public int getUnchanged() {
+            return unchanged;
+        }
+        
+        public int getUpserted() {
+            return upserted;
+        }
+        
+        public int getDeleted() {
+            return deleted;
+        }
+        
+        public int getFailed() {
+            return failed;
+        }
+        
+        public int getSkippedDeletes() {
+            return skippedDeletes;
+        }
+        
+        @Override
+        public String toString() {
+            return "未变化 " + unchanged + " 个，写入 " + upserted + " 个，删除 " + deleted + " 个，失败 " + failed + " 个，"
+                    + "跳过删除 " + skippedDeletes + " 个";
+        }
+    }
+}
\ No newline at end of file
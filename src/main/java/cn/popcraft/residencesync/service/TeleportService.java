@@ -1,34 +1,53 @@
 package cn.popcraft.residencesync.service;
 
 import cn.popcraft.residencesync.database.ResidenceData;
+import cn.popcraft.residencesync.messaging.TeleportRequest;
 import cn.popcraft.residencesync.util.LoggerUtil;
 import cn.popcraft.residencesync.util.Vector3D;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * 传送服务类
  * 
- * 处理玩家传送相关的逻辑，包括跨服传送、传送延迟等
+ * 处理玩家传送相关的逻辑，包括跨服传送、传送延迟等。
+ * 作为跨服传送的目标子服时，收到请求即异步加载目标区块并计算落点，玩家进入本服时直接传送。
+ * 异步加载区块依赖 Paper 的 World#getChunkAtAsync，Spigot 上改为在主线程分多个tick加载。
  * 
  * @author MiniMax Agent
  * @version 1.0.0
  */
 public class TeleportService {
     
+    // 查找安全落点的搜索半径
+    private static final int SAFE_SEARCH_RADIUS = 10;
+    // Spigot 上每tick同步加载的区块数
+    private static final int SYNC_CHUNKS_PER_TICK = 2;
+    // Paper 的 World#getChunkAtAsync(int, int)，Spigot 上为null
+    private static final Method GET_CHUNK_AT_ASYNC = findGetChunkAtAsync();
+    
     private final cn.popcraft.residencesync.ResidenceSyncPlugin plugin;
     private final Map<UUID, TeleportTask> activeTeleports = new HashMap<>();
+    private final ArrivalTable arrivals;
+    private final Executor mainThread;
     
     public TeleportService(cn.popcraft.residencesync.ResidenceSyncPlugin plugin) {
         this.plugin = plugin;
+        this.arrivals = new ArrivalTable(plugin, plugin.getPluginConfig().getMessagingArrivalTimeoutMillis());
+        this.mainThread = task -> Bukkit.getScheduler().runTask(plugin, task);
     }
     
     /**
@@ -114,8 +133,6 @@ public class TeleportService {
             // 显示寻找其他服务器的消息
             plugin.getMessageConfig().sendMessage(player, "tryFindOtherServerRes");
             
-            // 这里需要实现跨服通信逻辑
-            // 暂时模拟跨服传送过程
             return processRemoteServerTeleport(player, residence);
             
         } catch (Exception e) {
@@ -125,31 +142,177 @@ public class TeleportService {
     }
     
     /**
-     * 处理远程服务器传送
+     * 处理远程服务器传送：目标子服准备好落点后通过代理切换子服，目标子服确认玩家到达时完成
+     * 
+     * 等待期间不占用任何线程，超时由主线程的时间轮处理
      */
     private CompletableFuture<Boolean> processRemoteServerTeleport(Player player, ResidenceData residence) {
-        // TODO: 实现真正的跨服通信
-        // 这里应该通过BungeeCord或Redis将玩家传送到对应服务器
+        CrossServerService crossServerService = plugin.getCrossServerService();
+        if (crossServerService == null) {
+            return CompletableFuture.completedFuture(false);
+        }
         
-        LoggerUtil.info("模拟跨服传送玩家 " + player.getName() + " 到服务器 " + residence.getServerId());
+        LoggerUtil.debug("跨服传送玩家 " + player.getName() + " 到服务器 " + residence.getServerId());
+        return crossServerService.requestCrossServerTeleport(player, residence.getName(), residence.getServerId());
+    }
+    
+    /**
+     * 为即将进入本服的玩家准备落点：异步加载领地中心附近的区块，在主线程计算安全落点并登记到落点表
+     * 
+     * @param sourceServerId 发出传送请求的子服，玩家到达后向它确认
+     * @return 落点登记成功时为true，领地不在本服或找不到安全位置时为false
+     */
+    public CompletableFuture<Boolean> prepareArrival(TeleportRequest request, String sourceServerId) {
+        if (request.sourcePlayerUuid == null) {
+            return CompletableFuture.completedFuture(false);
+        }
         
-        // 模拟跨服传送延迟
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // 模拟网络延迟
-                Thread.sleep(1000);
-                
-                // 在实际实现中，这里应该发送跨服传送请求
-                // 并处理返回结果
-                
-                LoggerUtil.info("跨服传送完成");
-                return true;
+        return plugin.getResidenceService().getResidence(request.residenceName, plugin.getPluginConfig().getServerId())
+                .thenComposeAsync(residence -> {
+                    if (residence == null) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    // 区块加载完成的回调在主线程执行，此时查找落点不会同步加载区块
+                    return loadSearchArea(residence).thenApply(loaded -> loaded ? createTeleportLocation(residence) : null);
+                }, mainThread)
+                .thenApply(location -> {
+                    if (location == null) {
+                        return false;
+                    }
+                    arrivals.put(request.sourcePlayerUuid, location, request.residenceName,
+                            request.requestId, sourceServerId);
+                    return true;
+                });
+    }
+    
+    /**
+     * 通过反射查找 Paper 的异步区块加载方法，当前服务端不支持时返回null
+     */
+    private static Method findGetChunkAtAsync() {
+        try {
+            return World.class.getMethod("getChunkAtAsync", int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 加载查找落点时会访问的所有区块，在主线程调用
+     * 
+     * Paper 上异步加载；Spigot 上每tick加载 SYNC_CHUNKS_PER_TICK 个区块，加载期间持有插件区块票据，
+     * 全部加载完成并执行完回调后释放
+     * 
+     * @return 世界不存在时为false
+     */
+    private CompletableFuture<Boolean> loadSearchArea(ResidenceData residence) {
+        World world = Bukkit.getWorld(residence.getWorld());
+        if (world == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        // 安全检查会访问落点周围一格的方块
+        Vector3D center = residence.getCenter();
+        int reach = SAFE_SEARCH_RADIUS + 1;
+        int minChunkX = (int) Math.floor(center.getX() - reach) >> 4;
+        int maxChunkX = (int) Math.floor(center.getX() + reach) >> 4;
+        int minChunkZ = (int) Math.floor(center.getZ() - reach) >> 4;
+        int maxChunkZ = (int) Math.floor(center.getZ() + reach) >> 4;
+        
+        List<int[]> coordinates = new ArrayList<>();
+        for (int x = minChunkX; x <= maxChunkX; x++) {
+            for (int z = minChunkZ; z <= maxChunkZ; z++) {
+                coordinates.add(new int[]{x, z});
+            }
+        }
+        
+        if (GET_CHUNK_AT_ASYNC == null) {
+            return loadChunksAcrossTicks(world, coordinates);
+        }
+        
+        List<CompletableFuture<?>> chunks = new ArrayList<>();
+        try {
+            for (int[] chunk : coordinates) {
+                chunks.add((CompletableFuture<?>) GET_CHUNK_AT_ASYNC.invoke(world, chunk[0], chunk[1]));
+            }
+        } catch (ReflectiveOperationException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(ignored -> true);
+    }
+    
+    /**
+     * 在主线程分多个tick加载区块，已加载的区块直接跳过
+     */
+    private CompletableFuture<Boolean> loadChunksAcrossTicks(World world, List<int[]> coordinates) {
+        CompletableFuture<Boolean> loaded = new CompletableFuture<>();
+        List<int[]> ticketed = new ArrayList<>();
+        
+        new BukkitRunnable() {
+            private int next;
+            
+            @Override
+            public void run() {
+                int loadedThisTick = 0;
+                while (next < coordinates.size() && loadedThisTick < SYNC_CHUNKS_PER_TICK) {
+                    int[] chunk = coordinates.get(next++);
+                    boolean wasLoaded = world.isChunkLoaded(chunk[0], chunk[1]);
+                    // 添加票据会同步加载区块；已加载的区块也持有票据，避免在加载其余区块期间被卸载
+                    if (world.addPluginChunkTicket(chunk[0], chunk[1], plugin)) {
+                        ticketed.add(chunk);
+                    }
+                    if (!wasLoaded) {
+                        loadedThisTick++;
+                    }
+                }
                 
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return false;
+                if (next < coordinates.size()) {
+                    return;
+                }
+                cancel();
+                // 依赖此Future的落点计算在 complete 中同步执行，之后才释放票据
+                loaded.complete(true);
+                for (int[] chunk : ticketed) {
+                    world.removePluginChunkTicket(chunk[0], chunk[1], plugin);
+                }
             }
-        });
+        }.runTaskTimer(plugin, 0L, 1L);
+        return loaded;
+    }
+    
+    /**
+     * 玩家进入本服时传送到预先准备的落点，并向来源子服确认到达
+     * 
+     * @return 有等待中的落点时返回true
+     */
+    public boolean completeArrival(Player player) {
+        ArrivalTable.Arrival arrival = arrivals.take(player.getUniqueId());
+        if (arrival == null) {
+            return false;
+        }
+        
+        player.teleport(arrival.getLocation());
+        plugin.getMessageConfig().sendMessage(player, "playerTpSuccess",
+                Map.of("resName", arrival.getResidenceName()));
+        
+        CrossServerService crossServerService = plugin.getCrossServerService();
+        if (crossServerService != null) {
+            crossServerService.confirmArrival(arrival.getSourceServerId(), arrival.getRequestId());
+        }
+        return true;
+    }
+    
+    /**
+     * 移除过期的落点，由主线程定期调用
+     */
+    public void expireArrivals(long nowMillis) {
+        arrivals.expire(nowMillis);
+    }
+    
+    /**
+     * 获取等待玩家到达的落点表
+     */
+    public ArrivalTable getArrivals() {
+        return arrivals;
     }
     
     /**
@@ -207,7 +370,7 @@ public class TeleportService {
         );
         
         // 查找最近的可用位置
-        return plugin.getResidenceService().getNearestSafeLocation(teleportLocation, 10);
+        return plugin.getResidenceService().getNearestSafeLocation(teleportLocation, SAFE_SEARCH_RADIUS);
     }
     
     /**
@@ -0,0 +1,171 @@
+package cn.popcraft.residencesync.util;
+
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮
+ * 
+ * 按到期刻度把定时项散列到固定数量的槽中，每个槽是一个双向链表；超过一圈的定时项留在槽中直到到期刻度。
+ * 添加和取消都是 O(1)，推进一个刻度只需遍历当前槽，不需要为每个定时项维护单独的定时器。
+ * 非线程安全，调用方需要自行同步。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class TimingWheel<T> {
+    
+    private final long tickMillis;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    
+    // 已处理到的刻度
+    private long currentTick;
+    private int size;
+    
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.tickMillis = Math.max(1L, tickMillis);
+        
+        int capacity = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.buckets = new Timeout[capacity];
+        this.mask = capacity - 1;
+        this.currentTick = startMillis / this.tickMillis;
+    }
+    
+    /**
+     * 添加定时项
+     * 
+     * @param value 到期时交给回调的值
+     * @param deadlineMillis 到期时间戳
+     * @return 可用于取消的句柄
+     */
+    public Timeout<T> schedule(T value, long deadlineMillis) {
+        // 至少在下一个刻度到期，避免落在已经处理过的槽里
+        long deadlineTick = Math.max(currentTick + 1, (deadlineMillis + tickMillis - 1) / tickMillis);
+        
+        Timeout<T> timeout = new Timeout<>(this, value, deadlineMillis);
+        timeout.deadlineTick = deadlineTick;
+        timeout.bucket = (int) (deadlineTick & mask);
+        
+        Timeout<T> head = buckets[timeout.bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+        size++;
+        
+        return timeout;
+    }
+    
+    /**
+     * 推进到指定时间，依次处理经过的每个槽并回调到期的定时项
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        
+        // 长时间未推进时每个槽只需检查一次
+        if (targetTick - currentTick >= buckets.length) {
+            currentTick = targetTick;
+            for (int i = 0; i < buckets.length; i++) {
+                expireBucket(i, expired);
+            }
+            return;
+        }
+        
+        while (currentTick < targetTick) {
+            currentTick++;
+            expireBucket((int) (currentTick & mask), expired);
+        }
+    }
+    
+    private void expireBucket(int bucket, Consumer<T> expired) {
+        Timeout<T> timeout = buckets[bucket];
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            
+            // 尚未到期的定时项属于后面的圈
+            if (timeout.deadlineTick <= currentTick) {
+                unlink(timeout);
+                expired.accept(timeout.value);
+            }
+            timeout = next;
+        }
+    }
+    
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.wheel = null;
+        size--;
+    }
+    
+    /**
+     * 清空所有定时项
+     */
+    public void clear(Consumer<T> removed) {
+        for (int i = 0; i < buckets.length; i++) {
+            while (buckets[i] != null) {
+                Timeout<T> timeout = buckets[i];
+                unlink(timeout);
+                removed.accept(timeout.value);
+            }
+        }
+    }
+    
+    /**
+     * 未到期的定时项数量
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 时间轮中的定时项
+     */
+    public static class Timeout<T> {
+        
+        private final T value;
+        private final long deadlineMillis;
+        
+        private TimingWheel<T> wheel;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int bucket;
+        private long deadlineTick;
+        
+        private Timeout(TimingWheel<T> wheel, T value, long deadlineMillis) {
+            this.wheel = wheel;
+            this.value = value;
+            this.deadlineMillis = deadlineMillis;
+        }
+        
+        /**
+         * 取消定时项，已到期或已取消时返回false
+         */
+        public boolean cancel() {
+            if (wheel == null) {
+                return false;
+            }
+            wheel.unlink(this);
+            return true;
+        }
+        
+        public T getValue() {
+            return value;
+        }
+        
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+    }
+}
\ No newline at end of file
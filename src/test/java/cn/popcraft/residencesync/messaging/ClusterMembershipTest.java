@@ -0,0 +1,59 @@
+package cn.popcraft.residencesync.messaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 成员表可达性测试
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+class ClusterMembershipTest {
+    
+    private static final long HEARTBEAT_MILLIS = 1_000L;
+    private static final long REMOVE_MILLIS = 60_000L;
+    
+    @Test
+    void unknownServersAreReachable() {
+        ClusterMembership membership = new ClusterMembership("survival", HEARTBEAT_MILLIS, 8.0, REMOVE_MILLIS);
+        assertTrue(membership.isAvailable("creative"));
+    }
+    
+    @Test
+    void prunedServerStaysUnreachableUntilNewerHeartbeat() {
+        ClusterMembership membership = new ClusterMembership("survival", HEARTBEAT_MILLIS, 8.0, REMOVE_MILLIS);
+        long now = System.currentTimeMillis();
+        membership.merge(List.of(info("creative", 100L)), now);
+        assertTrue(membership.isAvailable("creative"));
+        
+        assertEquals(List.of("creative"), membership.prune(now + REMOVE_MILLIS + 1));
+        assertFalse(membership.isAvailable("creative"));
+        
+        // 其他子服转发的过期成员表不能让它复活
+        membership.merge(List.of(info("creative", 100L)), now);
+        assertFalse(membership.isAvailable("creative"));
+        
+        membership.merge(List.of(info("creative", 101L)), System.currentTimeMillis());
+        assertTrue(membership.isAvailable("creative"));
+    }
+    
+    @Test
+    void leftServerIsUnreachable() {
+        ClusterMembership membership = new ClusterMembership("survival", HEARTBEAT_MILLIS, 8.0, REMOVE_MILLIS);
+        membership.merge(List.of(info("creative", 100L)), System.currentTimeMillis());
+        
+        membership.leave("creative");
+        
+        assertFalse(membership.isAvailable("creative"));
+    }
+    
+    private static ServerInfo info(String serverId, long heartbeat) {
+        ServerInfo info = new ServerInfo(serverId, serverId);
+        info.heartbeat = heartbeat;
+        return info;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package cn.popcraft.residencesync.messaging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 去重窗口测试
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+class DuplicateFilterTest {
+    
+    private static final long EPOCH = 1_000L;
+    private static final String STREAM = "creative";
+    
+    @Test
+    void acceptsEachSequenceOnceInAnyOrder() {
+        DuplicateFilter filter = new DuplicateFilter(64);
+        
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 3));
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 1));
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 2));
+        assertFalse(filter.accept("survival", STREAM, EPOCH, 2));
+        assertFalse(filter.accept("survival", STREAM, EPOCH, 3));
+        assertEquals(2L, filter.getDuplicateCount());
+    }
+    
+    @Test
+    void windowSlidesPastOldSequences() {
+        DuplicateFilter filter = new DuplicateFilter(64);
+        for (long seq = 1; seq <= 64; seq++) {
+            assertTrue(filter.accept("survival", STREAM, EPOCH, seq));
+        }
+        
+        // 滑动后窗口为 137..200，滑过的位置重新可用，但只对窗口内从未收到的序号
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 200));
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 150));
+        assertFalse(filter.accept("survival", STREAM, EPOCH, 150));
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 137));
+        
+        // 间隔小于窗口的滑动只清除滑过的位置
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 210));
+        assertFalse(filter.accept("survival", STREAM, EPOCH, 150));
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 205));
+    }
+    
+    @Test
+    void rejectsSequencesBelowTheWindow() {
+        DuplicateFilter filter = new DuplicateFilter(64);
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 100));
+        
+        assertFalse(filter.accept("survival", STREAM, EPOCH, 36));
+        assertFalse(filter.accept("survival", STREAM, EPOCH, 1));
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 37));
+    }
+    
+    @Test
+    void newEpochResetsTheWindowAndOldEpochIsDropped() {
+        DuplicateFilter filter = new DuplicateFilter(64);
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 500));
+        
+        // 对方重启后序号从1开始
+        assertTrue(filter.accept("survival", STREAM, EPOCH + 1, 1));
+        assertFalse(filter.accept("survival", STREAM, EPOCH + 1, 1));
+        assertTrue(filter.accept("survival", STREAM, EPOCH + 1, 2));
+        
+        // 重启前发出、延迟到达的消息
+        assertFalse(filter.accept("survival", STREAM, EPOCH, 501));
+    }
+    
+    @Test
+    void streamsAndSendersHaveIndependentWindows() {
+        DuplicateFilter filter = new DuplicateFilter(64);
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 1));
+        
+        // 发往其他目标的大量消息不会把重发挤出窗口
+        for (long seq = 1; seq <= 1_000; seq++) {
+            assertTrue(filter.accept("survival", MessageTransport.ALL_SERVERS, EPOCH, seq));
+        }
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 2));
+        assertFalse(filter.accept("survival", STREAM, EPOCH, 1));
+        
+        assertTrue(filter.accept("lobby", STREAM, EPOCH, 1));
+        assertTrue(filter.accept("survival", DuplicateFilter.stream(null), EPOCH, 1));
+    }
+    
+    @Test
+    void removeForgetsAllStreamsOfSender() {
+        DuplicateFilter filter = new DuplicateFilter(64);
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 1));
+        assertTrue(filter.accept("survival", MessageTransport.ALL_SERVERS, EPOCH, 1));
+        
+        filter.remove("survival");
+        
+        assertTrue(filter.accept("survival", STREAM, EPOCH, 1));
+        assertTrue(filter.accept("survival", MessageTransport.ALL_SERVERS, EPOCH, 1));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,190 @@
+package cn.popcraft.residencesync.messaging;
+
+import cn.popcraft.residencesync.database.ResidenceData;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 跨服消息编解码基准
+ * 
+ * 对比 PacketCodec 与原先 Gson 树的每条消息字节数和编码/解码耗时，直接运行 main 即可。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+public class PacketCodecBenchmark {
+    
+    private static final int WARMUP_ROUNDS = 200_000;
+    private static final int MEASURE_ROUNDS = 1_000_000;
+    
+    private static final Gson GSON = new Gson();
+    private static final Type SERVER_INFO_LIST = new TypeToken<List<ServerInfo>>() { }.getType();
+    private static final Type FRAME_LIST = new TypeToken<List<byte[]>>() { }.getType();
+    
+    // 防止编解码结果被 JIT 消除
+    private static long blackhole;
+    
+    public static void main(String[] args) {
+        long now = System.currentTimeMillis();
+        UUID playerUuid = UUID.randomUUID();
+        UUID queryId = UUID.randomUUID();
+        Timestamp timestamp = new Timestamp(now);
+        PacketCodec codec = new PacketCodec();
+        
+        Packet[] packets = {
+                new Packet(PacketType.SERVER_CONNECT, "survival", MessageTransport.ALL_SERVERS, now,
+                        new ServerInfo("survival", "survival")),
+                new Packet(PacketType.SERVER_DISCONNECT, "survival", MessageTransport.ALL_SERVERS, now, null),
+                new Packet(PacketType.TELEPORT_REQUEST, "survival", MessageTransport.ALL_SERVERS, now,
+                        new TeleportRequest(UUID.randomUUID(), "Steve", playerUuid, "spawn_home", "survival")),
+                new Packet(PacketType.TELEPORT_RESPONSE, "creative", "survival", now,
+                        new TeleportResponse(UUID.randomUUID(), true, "传送成功")),
+                new Packet(PacketType.RESIDENCE_QUERY, "survival", "creative", now,
+                        new ResidenceQuery(queryId, "spawn_home")),
+                new Packet(PacketType.RESIDENCE_RESPONSE, "creative", "survival", now,
+                        new ResidenceQueryResponse(queryId, new ResidenceData("spawn_home", playerUuid.toString(),
+                                "creative", "world", -120, 62, 340, -80, 120, 390, timestamp, timestamp))),
+                new Packet(PacketType.HEARTBEAT, "survival", MessageTransport.ALL_SERVERS, now, members(now)),
+                new Packet(PacketType.BATCH, "creative", "survival", now, frames(codec, now)),
+                new Packet(PacketType.PRESENCE, "survival", MessageTransport.ALL_SERVERS, now, presence(now))
+        };
+        
+        System.out.printf("%-20s %10s %10s %14s %14s %14s %14s%n",
+                "type", "binary B", "json B", "bin enc ns", "bin dec ns", "json enc ns", "json dec ns");
+        
+        for (Packet packet : packets) {
+            byte[] binary = codec.encode(packet);
+            byte[] json = encodeJson(packet);
+            
+            runBinary(codec, packet, binary, WARMUP_ROUNDS);
+            runJson(packet, json, WARMUP_ROUNDS);
+            
+            long binaryEncode = measure(() -> blackhole += codec.encode(packet).length);
+            long binaryDecode = measure(() -> blackhole += codec.decode(binary).getTimestamp());
+            long jsonEncode = measure(() -> blackhole += encodeJson(packet).length);
+            long jsonDecode = measure(() -> blackhole += decodeJson(packet.getType(), json).hashCode());
+            
+            System.out.printf("%-20s %10d %10d %14.1f %14.1f %14.1f %14.1f%n",
+                    packet.getType(), binary.length, json.length,
+                    binaryEncode / (double) MEASURE_ROUNDS, binaryDecode / (double) MEASURE_ROUNDS,
+                    jsonEncode / (double) MEASURE_ROUNDS, jsonDecode / (double) MEASURE_ROUNDS);
+        }
+        
+        System.out.println("blackhole=" + blackhole);
+    }
+    
+    /**
+     * 心跳携带的成员表，模拟一个有八个子服的网络
+     */
+    private static List<ServerInfo> members(long now) {
+        List<ServerInfo> members = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ServerInfo info = new ServerInfo("server-" + i, "server-" + i);
+            info.heartbeat = now + i * 1000L;
+            info.playerCount = 40 + i;
+            info.mspt = 12.5 + i;
+            members.add(info);
+        }
+        return members;
+    }
+    
+    /**
+     * 一个tick内合并发送的消息，模拟同一tick的四个传送回复
+     */
+    private static List<byte[]> frames(PacketCodec codec, long now) {
+        List<byte[]> frames = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            frames.add(codec.encode(new Packet(PacketType.TELEPORT_RESPONSE, "creative", "survival", now,
+                    new TeleportResponse(UUID.randomUUID(), true, "传送成功"))));
+        }
+        return frames;
+    }
+    
+    /**
+     * 在线玩家快照，模拟一个有五十名玩家的子服
+     */
+    private static PresenceUpdate presence(long now) {
+        List<PlayerPresence> online = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            online.add(new PlayerPresence(UUID.randomUUID(), "Player" + i, null, now - i * 60_000L));
+        }
+        return new PresenceUpdate(true, online, new ArrayList<>());
+    }
+    
+    private static void runBinary(PacketCodec codec, Packet packet, byte[] binary, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            blackhole += codec.encode(packet).length;
+            blackhole += codec.decode(binary).getTimestamp();
+        }
+    }
+    
+    private static void runJson(Packet packet, byte[] json, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            blackhole += encodeJson(packet).length;
+            blackhole += decodeJson(packet.getType(), json).hashCode();
+        }
+    }
+    
+    private static long measure(Runnable task) {
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            task.run();
+        }
+        return System.nanoTime() - start;
+    }
+    
+    /**
+     * 原先的 JSON 编码方式：消息体转为 JsonObject 后整体序列化
+     */
+    private static byte[] encodeJson(Packet packet) {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", packet.getType().name());
+        json.addProperty("fromServer", packet.getFromServer());
+        json.addProperty("toServer", packet.getToServer());
+        json.addProperty("timestamp", packet.getTimestamp());
+        
+        Object body = packet.getBody();
+        json.add("data", body != null ? GSON.toJsonTree(body) : new JsonObject());
+        
+        return GSON.toJson(json).getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 原先的 JSON 解码方式：解析为树后按类型转换消息体
+     */
+    private static Object decodeJson(PacketType type, byte[] bytes) {
+        JsonObject json = JsonParser.parseString(new String(bytes, StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonElement data = json.get("data");
+        
+        switch (type) {
+            case SERVER_CONNECT:
+                return GSON.fromJson(data, ServerInfo.class);
+            case TELEPORT_REQUEST:
+                return GSON.fromJson(data, TeleportRequest.class);
+            case TELEPORT_RESPONSE:
+                return GSON.fromJson(data, TeleportResponse.class);
+            case RESIDENCE_QUERY:
+                return GSON.fromJson(data, ResidenceQuery.class);
+            case RESIDENCE_RESPONSE:
+                return GSON.fromJson(data, ResidenceQueryResponse.class);
+            case HEARTBEAT:
+                return GSON.fromJson(data, SERVER_INFO_LIST);
+            case BATCH:
+                return GSON.fromJson(data, FRAME_LIST);
+            case PRESENCE:
+                return GSON.fromJson(data, PresenceUpdate.class);
+            default:
+                return json;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,263 @@
+package cn.popcraft.residencesync.messaging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 套接字传输的回环集群测试
+ * 
+ * 在本机启动四个节点（两个 TCP、两个 Unix 域套接字），互相发送消息，检查大帧、重启重连和连接认证。
+ * 
+ * @author MiniMax Agent
+ * @version 1.0.0
+ */
+class SocketMessageTransportTest {
+    
+    private static final String SECRET = "loopback-secret";
+    private static final List<String> NODE_IDS = List.of("tcp-a", "tcp-b", "unix-a", "unix-b");
+    private static final long TIMEOUT_MILLIS = 20_000L;
+    
+    @TempDir
+    Path tempDir;
+    
+    private final List<SocketMessageTransport> started = new ArrayList<>();
+    
+    @AfterEach
+    void stopAll() {
+        for (SocketMessageTransport transport : started) {
+            transport.stop();
+        }
+    }
+    
+    @Test
+    void deliversAllToAllTrafficIncludingLargeFrames() throws Exception {
+        Map<String, String> addresses = addresses();
+        Map<String, Node> nodes = new LinkedHashMap<>();
+        for (String id : NODE_IDS) {
+            nodes.put(id, start(id, addresses, SECRET));
+        }
+        
+        int perPeer = 250;
+        for (Node from : nodes.values()) {
+            for (String to : NODE_IDS) {
+                if (to.equals(from.id)) {
+                    continue;
+                }
+                for (int seq = 0; seq < perPeer; seq++) {
+                    // 每50条夹带一个 200KB 的大帧
+                    int size = seq % 50 == 0 ? 200 * 1024 : 64;
+                    from.transport.send(to, payload(from.id, to, seq, size));
+                }
+            }
+        }
+        
+        for (Node node : nodes.values()) {
+            awaitCount(node, perPeer * (NODE_IDS.size() - 1));
+            Set<String> keys = verify(node);
+            for (String from : NODE_IDS) {
+                if (from.equals(node.id)) {
+                    continue;
+                }
+                for (int seq = 0; seq < perPeer; seq++) {
+                    assertTrue(keys.contains(from + ":" + seq), node.id + " 缺少 " + from + ":" + seq);
+                }
+            }
+        }
+    }
+    
+    @Test
+    void restartedNodeReceivesFramesQueuedWhileDown() throws Exception {
+        Map<String, String> addresses = addresses();
+        Map<String, Node> nodes = new LinkedHashMap<>();
+        for (String id : NODE_IDS) {
+            nodes.put(id, start(id, addresses, SECRET));
+        }
+        
+        String restarted = "unix-b";
+        for (Node from : nodes.values()) {
+            if (!from.id.equals(restarted)) {
+                from.transport.send(restarted, payload(from.id, restarted, 0, 64));
+            }
+        }
+        awaitCount(nodes.get(restarted), NODE_IDS.size() - 1);
+        
+        nodes.get(restarted).transport.stop();
+        
+        // 等待其他节点发现连接断开，之后的消息只能排队
+        for (Node node : nodes.values()) {
+            if (!node.id.equals(restarted)) {
+                awaitConnected(node, NODE_IDS.size() - 2);
+            }
+        }
+        
+        int queued = 100;
+        for (Node from : nodes.values()) {
+            if (from.id.equals(restarted)) {
+                continue;
+            }
+            for (int seq = 1; seq <= queued; seq++) {
+                from.transport.send(restarted, payload(from.id, restarted, seq, seq % 25 == 0 ? 300 * 1024 : 64));
+            }
+        }
+        
+        Node revived = start(restarted, addresses, SECRET);
+        awaitCount(revived, queued * (NODE_IDS.size() - 1));
+        verify(revived);
+        
+        for (Node node : nodes.values()) {
+            if (!node.id.equals(restarted)) {
+                assertEquals(0L, node.transport.getDroppedCount(), node.id + " 丢弃了消息");
+            }
+        }
+    }
+    
+    @Test
+    void rejectsConnectionsWithWrongSecret() throws Exception {
+        Map<String, String> addresses = new LinkedHashMap<>();
+        addresses.put("tcp-a", "127.0.0.1:" + freePort());
+        addresses.put("tcp-b", "127.0.0.1:" + freePort());
+        
+        Node receiver = start("tcp-a", addresses, SECRET);
+        Node intruder = start("tcp-b", addresses, "wrong-secret");
+        intruder.transport.send("tcp-a", payload("tcp-b", "tcp-a", 0, 64));
+        
+        // 直接连接并回复错误的认证码
+        String[] hostPort = addresses.get("tcp-a").split(":");
+        try (Socket socket = new Socket(hostPort[0], Integer.parseInt(hostPort[1]))) {
+            socket.setSoTimeout((int) TIMEOUT_MILLIS);
+            InputStream in = socket.getInputStream();
+            assertEquals(16, in.readNBytes(16).length);
+            
+            OutputStream out = socket.getOutputStream();
+            out.write(new byte[32]);
+            byte[] frame = payload("raw", "tcp-a", 0, 64);
+            out.write(ByteBuffer.allocate(4).putInt(frame.length).array());
+            out.write(frame);
+            out.flush();
+            
+            int next;
+            try {
+                next = in.read();
+            } catch (SocketException e) {
+                // 对方关闭时还有未读的数据会重置连接
+                next = -1;
+            }
+            assertEquals(-1, next, "认证失败的连接应当被关闭");
+        }
+        
+        Thread.sleep(500L);
+        assertTrue(receiver.received.isEmpty(), "未认证的连接不应投递消息");
+    }
+    
+    @Test
+    void refusesPublicBindWithoutSecret() throws Exception {
+        SocketMessageTransport transport = new SocketMessageTransport("0.0.0.0:" + freePort(), Map.of(), "",
+                100, 20L, 200L, Runnable::run);
+        assertThrows(IllegalStateException.class, () -> transport.start(payload -> { }));
+    }
+    
+    private Map<String, String> addresses() throws IOException {
+        Map<String, String> addresses = new LinkedHashMap<>();
+        for (String id : NODE_IDS) {
+            addresses.put(id, id.startsWith("unix")
+                    ? "unix:" + tempDir.resolve(id + ".sock") : "127.0.0.1:" + freePort());
+        }
+        return addresses;
+    }
+    
+    private Node start(String id, Map<String, String> addresses, String secret) {
+        Map<String, String> peers = new LinkedHashMap<>(addresses);
+        peers.remove(id);
+        
+        SocketMessageTransport transport = new SocketMessageTransport(addresses.get(id), peers, secret,
+                10_000, 20L, 200L, Runnable::run);
+        Node node = new Node(id, transport);
+        transport.start(node.received::add);
+        started.add(transport);
+        return node;
+    }
+    
+    /**
+     * 消息内容为 "来源:序号:" 加上按序号生成的填充字节
+     */
+    private static byte[] payload(String from, String to, int seq, int size) {
+        byte[] header = (from + ":" + seq + ":").getBytes(StandardCharsets.UTF_8);
+        byte[] payload = Arrays.copyOf(header, header.length + size);
+        for (int i = 0; i < size; i++) {
+            payload[header.length + i] = (byte) (seq * 31 + i);
+        }
+        return payload;
+    }
+    
+    /**
+     * 检查收到的每条消息都完整且不重复，返回 "来源:序号" 集合
+     */
+    private static Set<String> verify(Node node) {
+        Set<String> keys = new HashSet<>();
+        for (byte[] payload : node.received) {
+            String text = new String(payload, StandardCharsets.ISO_8859_1);
+            int first = text.indexOf(':');
+            int second = text.indexOf(':', first + 1);
+            String key = text.substring(0, second);
+            int seq = Integer.parseInt(text.substring(first + 1, second));
+            
+            for (int i = second + 1; i < payload.length; i++) {
+                assertEquals((byte) (seq * 31 + i - second - 1), payload[i], node.id + " 收到的 " + key + " 内容损坏");
+            }
+            assertTrue(keys.add(key), node.id + " 重复收到 " + key);
+        }
+        return keys;
+    }
+    
+    private static void awaitCount(Node node, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (node.received.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals(expected, node.received.size(), node.id + " 收到的消息数量");
+    }
+    
+    private static void awaitConnected(Node node, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (node.transport.getConnectedPeerCount() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals(expected, node.transport.getConnectedPeerCount(), node.id + " 的连接数量");
+    }
+    
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+    
+    /**
+     * 一个节点及其收到的消息
+     */
+    private static class Node {
+        
+        private final String id;
+        private final SocketMessageTransport transport;
+        private final Queue<byte[]> received = new ConcurrentLinkedQueue<>();
+        
+        private Node(String id, SocketMessageTransport transport) {
+            this.id = id;
+            this.transport = transport;
+        }
+    }
+}
\ No newline at end of file